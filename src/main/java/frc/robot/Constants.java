@@ -7,10 +7,13 @@ package frc.robot;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.trajectory.TrapezoidProfile;
 import edu.wpi.first.wpilibj.PneumaticsModuleType;
+import frc.robot.swerve.DriveOdometry;
 import frc.robot.swerve.SwerveCANIDs;
 import frc.robot.util.FiringSolution;
+import friarLib2.telemetry.TelemetryLevel;
 import friarLib2.utility.PIDParameters;
 
 /**
@@ -34,6 +37,8 @@ public final class Constants {
 
     public static final PneumaticsModuleType PCM_TYPE = PneumaticsModuleType.REVPH;
 
+    public static final TelemetryLevel TELEMETRY_LEVEL = TelemetryLevel.competition; // Can be changed from the dashboard
+
     /**
      * Constants for the Climber
      */
@@ -71,6 +76,27 @@ public final class Constants {
         public static final Translation2d BACK_LEFT_MODULE_TRANSLATION = new Translation2d(-0.34671, 0.23241);
         public static final Translation2d BACK_RIGHT_MODULE_TRANSLATION = new Translation2d(-0.34671, -0.23241);
 
+        // Every per-module array on the drivetrain is in this order
+        public static final Translation2d[] MODULE_TRANSLATIONS = {
+            FRONT_LEFT_MODULE_TRANSLATION,
+            FRONT_RIGHT_MODULE_TRANSLATION,
+            BACK_LEFT_MODULE_TRANSLATION,
+            BACK_RIGHT_MODULE_TRANSLATION
+        };
+        public static final String[] MODULE_NAMES = {"Front left", "Front right", "Back left", "Back right"};
+
+        public static final SwerveDriveKinematics SWERVE_KINEMATICS = new SwerveDriveKinematics(MODULE_TRANSLATIONS);
+
+        /********** Odometry **********/
+        public static final double ODOMETRY_PERIOD = 0.005; // Seconds, 200 Hz
+        public static final double POSE_HISTORY_LENGTH = 2; // Seconds of poses kept for latency compensation and shot analysis
+        public static final double VISION_CORRECTION_GAIN = 0.1; // How much of the difference between the odometry and each vision fix to correct
+        public static final double MAX_VISION_CORRECTION = 1; // Meters, vision fixes further than this from the estimate are ignored as bad readings
+        public static final double HUB_ESTIMATE_GAIN = 0.05; // Fraction of the way each sighting moves the hub estimate, once it has a few
+        public static final double MAX_HUB_ESTIMATE_ERROR = 1; // Meters, hub sightings further than this from the estimate are ignored
+        public static final DriveOdometry.Mode ODOMETRY_MODE = DriveOdometry.Mode.positionDelta; // Compare the modes with ./gradlew benchmarkOdometry
+        public static final int ODOMETRY_STATUS_FRAME_PERIOD = 5; // Milliseconds, how often the drive, steering and IMU sensors are sent over CAN
+
         /********** Autonomous Motion Envelope **********/
         public static final double MAX_AUTON_SPEED = 2; // Meters/second
         public static final double MAX_AUTON_ACCELERATION = 2.5; // Meters/second squared
@@ -104,6 +130,7 @@ public final class Constants {
         public static final double CONVEYOR_POWER = .5;
         public static final double GATE_WHEEL_SHOOTING_POWER = .75;
         public static final double GATE_WHEEL_INDEXING_VOLTS = 3;
+        public static final double GATE_WHEEL_TRANSPORT_DELAY = 0.08; // Seconds from starting the gate wheel until the cargo reaches the flywheel, estimated
 
         public static final PIDParameters GATE_WHEEL_PID = new PIDParameters(0.25, 0, 0, "Gate wheel PID");
 
@@ -138,13 +165,30 @@ public final class Constants {
         /********** PCM Ports **********/
         public static final int HOOD_SOLENOID_ID = 3;
 
-        /******** PID Gains ********/
-        public static final PIDParameters FLYWHEEL_MOTOR_PID = new PIDParameters(0.2, 0.001, 2, "Flywheel PID");
-        public static final double FLYWHEEL_IZONE = 700; // RPM
+        /******** Flywheel Model ********/
+        // Volts = kS + kV * RPM + kA * RPM/second. Estimated from the motors and gearing, characterize with SysId.
+        public static final double FLYWHEEL_KS = 0.3; // Volts
+        public static final double FLYWHEEL_KV = 0.0024; // Volts/RPM
+        public static final double FLYWHEEL_KA = 0.0012; // Volts/(RPM/second)
+
+        /******** Flywheel Controller ********/
+        public static final double FLYWHEEL_MODEL_STD_DEV = 300; // RPM/second, how far off the model can be
+        public static final double FLYWHEEL_VOLTAGE_ERROR_STD_DEV = 0.5; // Volts/second, how quickly the model's voltage error can change
+        public static final double FLYWHEEL_MEASUREMENT_STD_DEV = 15; // RPM
+        public static final double FLYWHEEL_LQR_TOLERANCE = 200; // RPM of error worth full voltage
+        public static final double FLYWHEEL_MAX_VOLTAGE = 12; // Volts
+        public static final double FLYWHEEL_MEASUREMENT_DELAY = 0.02; // Seconds, the Falcon's velocity filter and CAN frame
+        public static final double FLYWHEEL_CONTROL_PERIOD = 0.02; // Seconds, the main loop
 
         /********** Tuning Constants **********/
         public static final double FLYWHEEL_SPEED_TOLERANCE = 10; // RPM
-        public static final double FLYWHEEL_ROC_TOLERANCE = 400; // RPM/second
+        public static final double FLYWHEEL_READY_HORIZON = 1; // Seconds, how far ahead to predict the flywheel being ready
+
+        /********** Shot Detection **********/
+        public static final double SHOT_DETECTION_RPM_DROP = 100; // RPM below the recent peak
+        public static final double SHOT_DETECTION_CURRENT = 40; // Amps, the velocity loop's answer to the drop
+        public static final double SHOT_RECOVERY_TOLERANCE = 30; // RPM, counts as recovered
+        public static final int SHOT_HISTORY_SIZE = 32; // Shots kept for the averages
 
         /******** Physical Constants ********/
         public static final double MAIN_FLYWHEEL_GEAR_RATIO = 18.0 / 24.0;
@@ -156,5 +200,20 @@ public final class Constants {
         public static final FiringSolution HIGH_HUB_FROM_FENDER = new FiringSolution(2900, false); //2400 //2520
         public static final FiringSolution HIGH_HUB_FROM_TARMAC = new FiringSolution(2750, true);
         public static final FiringSolution HIGH_HUB_FROM_LAUNCHPAD = new FiringSolution(3450, true);
+
+        /********** Shooting Map **********/
+        public static final String SHOOTING_MAP_FILE = "shooting_map.csv"; // In the deploy directory
+
+        /********** Pre-spin **********/
+        public static final double PRE_SPIN_APPROACH_DISTANCE = 1.5; // Meters beyond the longest shot in the map to start idling
+        public static final double PRE_SPIN_HYSTERESIS = 0.5; // Meters further out before coasting again
+        public static final double PRE_SPIN_IDLE_FRACTION = 0.75; // Of the longest shot's speed, while approaching
+        public static final double PRE_SPIN_RAMP_RATE = 1500; // RPM/second, about a fifth of the current of a full power spin up
+        public static final double PRE_SPIN_STOP_MATCH_TIME = 20; // Seconds left in teleop to coast for the climb
+
+        /********** Shooting While Moving **********/
+        // Cargo time of flight = base + per meter * meters from the hub's center. Estimated from video, needs calibrating.
+        public static final double CARGO_TIME_OF_FLIGHT_BASE = 0.75; // Seconds
+        public static final double CARGO_TIME_OF_FLIGHT_PER_METER = 0.08; // Seconds/meter
     }
 }
@@ -1,16 +1,45 @@
 package frc.robot;
 
-import com.ctre.phoenix.sensors.PigeonIMU;
-
 import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.subsystems.io.GyroIO;
 
 /**
  * Contains static references to the robot's internal measurement
  * unit and related methods.
+ *
+ * <p>
+ * The IMU is read once per loop by {@link #updateInputs()}, and every
+ * getter returns the values from that read.
  */
 public class IMU {
-    // We're using a Pigeon 1.0 because we have a bunch floating around from previous robots
-    public static PigeonIMU imu = new PigeonIMU(Constants.PIGEON_IMU_ID);
+    private static GyroIO io = new GyroIO() {};
+    private static final GyroIO.Inputs inputs = new GyroIO.Inputs();
+
+    /**
+     * Set the hardware (or simulation) to read the IMU from. Must be
+     * called before any subsystems are created.
+     */
+    public static void setIO (GyroIO newIO) {
+        io = newIO;
+        updateInputs();
+    }
+
+    /**
+     * Read the IMU. Called once per loop, before the command scheduler runs.
+     */
+    public static void updateInputs () {
+        io.updateInputs(inputs);
+    }
+
+    /**
+     * Read just the yaw straight from the IMU, for code running on another
+     * thread that can't use the once per loop snapshot (the odometry thread)
+     *
+     * @return The yaw in degrees
+     */
+    public static double readYawDegrees () {
+        return io.readYawDegrees();
+    }
 
     /**
      * Set the yaw and FusedHeading to zero
@@ -23,8 +52,7 @@ public class IMU {
      * Set the yaw and FusedHeading to the specified value
      */
     public static void tareIMU (double newYawDegrees) {
-        imu.setYaw(newYawDegrees);
-        imu.setFusedHeading(newYawDegrees);
+        io.setYaw(newYawDegrees);
     }
 
     /**
@@ -36,28 +64,37 @@ public class IMU {
 
     /**
      * Use the IMU to read the robot's yaw (left/right)
-     * 
+     *
      * @return Rotation2d representing IMU's measured angle
      */
     public static Rotation2d getRobotYaw () {
-        return Rotation2d.fromDegrees(imu.getFusedHeading());
+        return Rotation2d.fromDegrees(inputs.yawDegrees);
+    }
+
+    /**
+     * The same as {@link #getRobotYaw()}, without creating a Rotation2d
+     *
+     * @return The IMU's measured yaw in degrees
+     */
+    public static double getRobotYawDegrees () {
+        return inputs.yawDegrees;
     }
 
     /**
      * Use the IMU to read the robot's pitch (up/down)
-     * 
+     *
      * @return Rotation2d representing IMU's measured angle
      */
     public static Rotation2d getRobotPitch () {
-        return Rotation2d.fromDegrees(imu.getPitch());
+        return Rotation2d.fromDegrees(inputs.pitchDegrees);
     }
 
     /**
      * Use the IMU to read the robot's roll (side/side)
-     * 
+     *
      * @return Rotation2d representing IMU's measured angle
      */
     public static Rotation2d getRobotRoll () {
-        return Rotation2d.fromDegrees(imu.getRoll());
+        return Rotation2d.fromDegrees(inputs.rollDegrees);
     }
 }
@@ -0,0 +1,82 @@
+package frc.robot;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import friarLib2.logging.DataLogger;
+
+/**
+ * Contains a static reference to the robot's on-board data log.
+ *
+ * <p>
+ * Subsystems create their channels with {@code Log.logger.addChannel()}
+ * and log samples to them from periodic().
+ *
+ * <p>
+ * Each logger only accepts samples from one thread, so the odometry
+ * thread has a log of its own, written to a second file.
+ *
+ * <p>
+ * The main log is about 27 KB/s and the odometry log about 61 KB/s, so
+ * the odometry log is only written while the robot is enabled or at a
+ * match, and files are split and the oldest deleted to stay within a
+ * budget. The RoboRIO's own storage gets a much smaller budget than a
+ * USB drive, because a full disk stops the logs and deploys.
+ */
+public class Log {
+    // At 50 Hz, this holds about 20 seconds of data for 40 channels if the disk stalls
+    public static final DataLogger logger = new DataLogger(40000);
+
+    // At 200 Hz, this holds about 20 seconds of data for 15 channels
+    public static final DataLogger odometryLogger = new DataLogger(60000);
+
+    private static final Path USB_LOG_DIRECTORY = Paths.get("/U/logs");
+    private static final Path ROBORIO_LOG_DIRECTORY = Paths.get("/home/lvuser/logs");
+    private static final Path SIM_LOG_DIRECTORY = Paths.get("logs");
+
+    private static final long MAX_FILE_BYTES = 32L << 20; // About 20 minutes of main log or 9 of odometry
+    private static final long USB_LOG_BUDGET = 4L << 30;
+    private static final long ROBORIO_LOG_BUDGET = 100L << 20;
+    private static final long SIM_LOG_BUDGET = 1L << 30;
+
+    private static final DataLogger.Channel partLog = logger.addChannel("Log part");
+
+    /**
+     * Start writing the log to a USB drive if one is plugged in,
+     * otherwise to the RoboRIO's internal storage
+     */
+    public static void start () {
+        Path directory;
+        long budget;
+        if (RobotBase.isSimulation()) {
+            directory = SIM_LOG_DIRECTORY;
+            budget = SIM_LOG_BUDGET;
+        } else if (Files.isDirectory(USB_LOG_DIRECTORY.getParent())) {
+            directory = USB_LOG_DIRECTORY;
+            budget = USB_LOG_BUDGET;
+        } else {
+            directory = ROBORIO_LOG_DIRECTORY;
+            budget = ROBORIO_LOG_BUDGET;
+        }
+
+        String fileName = new SimpleDateFormat("'log_'yyyy-MM-dd_HH-mm-ss").format(new Date());
+        logger.start(directory, fileName, MAX_FILE_BYTES, budget);
+        odometryLogger.start(directory, fileName + "_odometry", MAX_FILE_BYTES, budget);
+    }
+
+    /**
+     * Start the main log's loop, and only keep the odometry log while
+     * it's worth having. Call at the start of every main loop.
+     */
+    public static void update () {
+        odometryLogger.setPaused(!DriverStation.isEnabled() && !DriverStation.isFMSAttached());
+        if (logger.beginLoop()) {
+            partLog.log(logger.getPart());
+        }
+    }
+}
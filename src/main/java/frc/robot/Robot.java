@@ -8,6 +8,8 @@ import edu.wpi.first.cameraserver.CameraServer;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import friarLib2.profiling.LoopProfiler;
+import friarLib2.telemetry.Telemetry;
 
 /**
  * The VM is configured to automatically run this class, and to call the functions corresponding to
@@ -20,15 +22,25 @@ public class Robot extends TimedRobot {
 
     private RobotContainer m_robotContainer;
 
+    private final LoopProfiler.Section telemetrySection = LoopProfiler.addSection("Telemetry.update");
+
     /**
      * This function is run when the robot is first started up and should be used for any
      * initialization code.
      */
     @Override
     public void robotInit() {
+        // Must be installed before any triggers are created so that it can time button polling
+        LoopProfiler.install(getPeriod());
+
         // Instantiate our RobotContainer.  This will perform all our button bindings, and put our
         // autonomous chooser on the dashboard.
         m_robotContainer = new RobotContainer();
+
+        LoopProfiler.finishButtonPolling();
+
+        Telemetry.init(Constants.TELEMETRY_LEVEL);
+        Log.start();
         
         //CameraServer.startAutomaticCapture();
         Pneumatics.COMPRESSOR.enableAnalog(100, 120);
@@ -43,11 +55,25 @@ public class Robot extends TimedRobot {
      */
     @Override
     public void robotPeriodic() {
+        LoopProfiler.startLoop();
+        Log.update();
+
+        // Subsystems read their own hardware in periodic(), but the IMU and cameras are shared so they are read here
+        IMU.updateInputs();
+        Vision.updateInputs();
+
         // Runs the Scheduler.  This is responsible for polling buttons, adding newly-scheduled
         // commands, running already-scheduled commands, removing finished or interrupted commands,
         // and running subsystem periodic() methods.  This must be called from the robot's periodic
         // block in order for anything in the Command-based framework to work.
         CommandScheduler.getInstance().run();
+
+        // Publish every dashboard value in one pass
+        telemetrySection.start();
+        Telemetry.update();
+        telemetrySection.stop();
+
+        LoopProfiler.endLoop();
     }
 
     /** This function is called once each time the robot enters Disabled mode. */
@@ -7,6 +7,7 @@ package frc.robot;
 import java.util.function.BooleanSupplier;
 
 import edu.wpi.first.wpilibj.GenericHID;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
@@ -23,6 +24,7 @@ import frc.robot.commands.drive.PointInDirectionOfTravel;
 import frc.robot.commands.intake.IntakeAndIndex;
 import frc.robot.commands.intake.Outtake;
 import frc.robot.commands.intake.SpinIntakeRollers;
+import frc.robot.commands.shoot.PreSpinFlywheel;
 import frc.robot.commands.shoot.ReverseShooter;
 import frc.robot.commands.shoot.Shoot;
 import frc.robot.subsystems.ClimberSubsystem;
@@ -30,7 +32,20 @@ import frc.robot.subsystems.DriveSubsystem;
 import frc.robot.subsystems.IndexerSubsystem;
 import frc.robot.subsystems.IntakeSubsystem;
 import frc.robot.subsystems.ShooterSubsystem;
+import frc.robot.subsystems.io.ClimberIOFalcon;
+import frc.robot.subsystems.io.ClimberIOSim;
+import frc.robot.subsystems.io.GyroIOPigeon;
+import frc.robot.subsystems.io.GyroIOSim;
+import frc.robot.subsystems.io.IndexerIOSim;
+import frc.robot.subsystems.io.IndexerIOTalonSRX;
+import frc.robot.subsystems.io.IntakeIO;
+import frc.robot.subsystems.io.IntakeIOTalonSRX;
+import frc.robot.subsystems.io.ShooterIOFalcon;
+import frc.robot.subsystems.io.ShooterIOSim;
+import frc.robot.swerve.SwerveModuleIOFalcon;
+import frc.robot.swerve.SwerveModuleIOSim;
 import frc.robot.util.FiringSolution;
+import frc.robot.util.ShootingMap;
 import friarLib2.hid.LambdaTrigger;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
@@ -44,16 +59,52 @@ import edu.wpi.first.wpilibj2.command.WaitUntilCommand;
  */
 public class RobotContainer {
     // The robot's subsystems and commands are defined here...
-    private final DriveSubsystem drive = new DriveSubsystem();
-    public final ClimberSubsystem climber = new ClimberSubsystem();
-    private final IndexerSubsystem indexer = new IndexerSubsystem();
-    private final IntakeSubsystem intake = new IntakeSubsystem();
-    private final ShooterSubsystem shooter = new ShooterSubsystem();
+    private final DriveSubsystem drive;
+    public final ClimberSubsystem climber;
+    private final IndexerSubsystem indexer;
+    private final IntakeSubsystem intake;
+    private final ShooterSubsystem shooter;
+
+    private final ShootingMap shootingMap;
 
     private final SendableChooser<Command> autoChooser = new SendableChooser<>();
 
     /** The container for the robot. Contains subsystems, OI devices, and commands. */
     public RobotContainer() {
+        // Use the real hardware on the robot and simulated hardware everywhere else
+        if (RobotBase.isReal()) {
+            IMU.setIO(new GyroIOPigeon(Constants.PIGEON_IMU_ID));
+            drive = new DriveSubsystem(
+                new SwerveModuleIOFalcon(225, Constants.Drive.FRONT_LEFT_MODULE_IDS),
+                new SwerveModuleIOFalcon(315, Constants.Drive.FRONT_RIGHT_MODULE_IDS),
+                new SwerveModuleIOFalcon(135, Constants.Drive.BACK_LEFT_MODULE_IDS),
+                new SwerveModuleIOFalcon(45, Constants.Drive.BACK_RIGHT_MODULE_IDS)
+            );
+            climber = new ClimberSubsystem(new ClimberIOFalcon());
+            indexer = new IndexerSubsystem(new IndexerIOTalonSRX());
+            intake = new IntakeSubsystem(new IntakeIOTalonSRX());
+            shooter = new ShooterSubsystem(new ShooterIOFalcon());
+        } else {
+            GyroIOSim gyro = new GyroIOSim();
+            IMU.setIO(gyro);
+            drive = new DriveSubsystem(
+                new SwerveModuleIOSim(),
+                new SwerveModuleIOSim(),
+                new SwerveModuleIOSim(),
+                new SwerveModuleIOSim()
+            );
+            gyro.setYawRateSupplier(() -> Math.toDegrees(drive.getMeasuredRotationalSpeed()));
+            Vision.useSimulatedCamera(drive::getRobotPose);
+            climber = new ClimberSubsystem(new ClimberIOSim());
+            indexer = new IndexerSubsystem(new IndexerIOSim());
+            intake = new IntakeSubsystem(new IntakeIO() {});
+            shooter = new ShooterSubsystem(new ShooterIOSim());
+        }
+
+        Vision.start();
+
+        shootingMap = loadShootingMap();
+
         // Add autos to SmartDashboard
         autoChooser.addOption("No auto", new WaitUntilCommand(0));
         autoChooser.addOption("Preload auto (low goal)", new TaxiAndPreloadAuto(Constants.Shooter.LOW_HUB_FROM_FENDER, drive, indexer, shooter));
@@ -69,6 +120,7 @@ public class RobotContainer {
     private void configureDefaultCommands() {
         drive.setDefaultCommand(new DriveTeleop(drive));
         climber.setDefaultCommand(new ClimbManual(climber));
+        shooter.setDefaultCommand(new PreSpinFlywheel(shootingMap, drive, indexer, shooter));
     }
 
     /**
@@ -116,6 +168,14 @@ public class RobotContainer {
 
         bindShootingCommand(Constants.Shooter.HIGH_HUB_FROM_LAUNCHPAD, 0); //45
 
+        // Shoot from anywhere in range, using the distance to the hub
+        new LambdaTrigger(() -> OI.operatorController.getPOV() == 90)
+            .whileActiveContinuous(
+                new Shoot(
+                    () -> OI.operatorController.getAButton() || OI.leftStickRightCluster.get() || OI.rightStickLeftCluster.get(),
+                    shootingMap, drive.getShotSolver(), shooter, indexer),
+                true);
+
         // Spin the flywheel in reverse in case a cargo falls on our robot
         new LambdaTrigger(() -> OI.operatorController.getStartButton())
             .whileActiveContinuous(new ReverseShooter(indexer, shooter));
@@ -141,6 +201,19 @@ public class RobotContainer {
                 true); // Set the command as interruptible
     }
 
+    /**
+     * Load the shooting map from the deploy directory. If it's missing or
+     * broken, fall back to a map with just the shot from the tarmac, so
+     * the button still shoots like the old fixed one did.
+     */
+    private ShootingMap loadShootingMap() {
+        ShootingMap fallback = new ShootingMap(
+            new double[] {0},
+            new double[] {Constants.Shooter.HIGH_HUB_FROM_TARMAC.getFlywheelRPM()},
+            new boolean[] {Constants.Shooter.HIGH_HUB_FROM_TARMAC.getDeflector()});
+        return ShootingMap.loadFromDeploy(Constants.Shooter.SHOOTING_MAP_FILE, fallback);
+    }
+
     /**
      * Use this to pass the autonomous command to the main {@link Robot} class.
      *
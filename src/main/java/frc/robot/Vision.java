@@ -1,41 +1,158 @@
 package frc.robot;
 
-import edu.wpi.first.math.util.Units;
+import java.util.List;
+import java.util.function.Supplier;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.util.HubProcessor;
+import frc.robot.util.Targeting;
+import friarLib2.logging.DataLogger;
+import friarLib2.profiling.LoopProfiler;
 import friarLib2.vision.PhotonCameraWrapper;
+import friarLib2.vision.SimVisionCamera;
+import friarLib2.vision.TargetTracker;
 import friarLib2.vision.VisionCamera;
-import friarLib2.vision.utility.PixelToAngle;
+import friarLib2.vision.VisionManager;
+import friarLib2.vision.VisionMeasurement;
 
 /**
  * Container for the vision systems
+ *
+ * <p>
+ * The cameras are read by the {@link VisionManager}'s worker threads,
+ * which turn each frame into a yaw and distance to the hub with a
+ * {@link HubProcessor}, fitting the ring of tape to every strip the
+ * camera sees. Once per loop, {@link #updateInputs()} collects those
+ * measurements from every camera, and every command and subsystem
+ * shares them.
+ *
+ * <p>
+ * The yaw and distance to the center of the hub are then filtered by
+ * {@link #hubTracker}, which {@link frc.robot.subsystems.DriveSubsystem}
+ * feeds with the odometry and each new measurement, so it keeps up with
+ * the robot between frames.
  */
 public class Vision {
 
     public static VisionCamera shooterCamera = new PhotonCameraWrapper("gloworm");
 
-    private static final PixelToAngle ANGLE_CONVERTER = new PixelToAngle(320, 240, 54, 41); // Constants for the limelight 2
-    private static final double HEIGHT_OF_CAMERA = 0.7747; // Meters
-    private static final double ANGLE_OF_CAMERA = 34.8; // Degrees
+    public static final TargetTracker hubTracker = Targeting.createHubTracker();
+
+    private static final VisionManager manager = new VisionManager(
+        2, // Worker threads
+        0.01); // Seconds between checking each camera for a new frame
 
     private static double lastDistance = 0; // Return this if the robot does not have a target
 
+    private static final LoopProfiler.Section updateSection = LoopProfiler.addSection("Vision.updateInputs");
+
+    private static final DataLogger.Channel targetYawLog = Log.logger.addChannel("Vision target yaw");
+    private static final DataLogger.Channel targetPitchLog = Log.logger.addChannel("Vision target pitch");
+    private static final DataLogger.Channel visibleStripsLog = Log.logger.addChannel("Hub visible strips");
+    private static final DataLogger.Channel stripYawLog = Log.logger.addChannel("Hub strip yaw");
+    private static final DataLogger.Channel stripPitchLog = Log.logger.addChannel("Hub strip pitch");
+    private static final DataLogger.Channel hubStripsLog = Log.logger.addChannel("Hub fit strips");
+    private static final DataLogger.Channel hubFitResidualLog = Log.logger.addChannel("Hub fit residual");
+    private static final DataLogger.Channel hubYawLog = Log.logger.addChannel("Hub yaw");
+    private static final DataLogger.Channel hubDistanceLog = Log.logger.addChannel("Hub distance");
+
     /**
-     * @return the distance in meters from the target
+     * Replace the shooter camera with a simulated one that sees the hub's
+     * ring of tape from the simulated robot's pose, with roughly the
+     * latency, noise and dropouts of the real camera
+     *
+     * @param robotPose Where the simulated robot is on the field
      */
-    public static double getMetersFromTarget () {
-        try {
-            double a2;
-            if (shooterCamera instanceof PhotonCameraWrapper) {
-                a2 = shooterCamera.getBestTarget().getY();
-            } else {
-                a2 = ANGLE_CONVERTER.calculateYAngle(shooterCamera.getBestTarget());
+    public static void useSimulatedCamera (Supplier<Pose2d> robotPose) {
+        SimVisionCamera camera = new SimVisionCamera(
+            robotPose,
+            Targeting.HEIGHT_OF_CAMERA,
+            Targeting.ANGLE_OF_CAMERA,
+            Targeting.CAMERA_HORIZONTAL_FOV,
+            Targeting.CAMERA_VERTICAL_FOV,
+            3309);
+        camera.setFrameRate(30);
+        camera.setLatency(0.035);
+        camera.setAngleNoise(0.1);
+        camera.setDropoutChance(0.05);
+
+        for (int i = 0; i < Targeting.HUB_VISION_TAPE_STRIPS; i++) {
+            double angle = 2 * Math.PI * i / Targeting.HUB_VISION_TAPE_STRIPS;
+            camera.addTarget(
+                Targeting.HUB_X + Targeting.HUB_VISION_TAPE_RADIUS * Math.cos(angle),
+                Targeting.HUB_Y + Targeting.HUB_VISION_TAPE_RADIUS * Math.sin(angle),
+                Targeting.HEIGHT_OF_TARGET,
+                angle,
+                Targeting.HUB_VISION_TAPE_WIDTH,
+                Targeting.HUB_VISION_TAPE_HEIGHT);
+        }
+
+        shooterCamera = camera;
+    }
+
+    /**
+     * Start reading the cameras on the worker threads. Called once the
+     * cameras have been chosen, after which they must not be used from
+     * the main loop.
+     */
+    public static void start () {
+        manager.addCamera("shooter", shooterCamera, new HubProcessor(Targeting.CAMERA_MOUNT_YAW));
+        manager.start();
+    }
+
+    /**
+     * Collect the measurements the cameras have made since the last loop.
+     * Called once per loop, before the command scheduler runs.
+     */
+    public static void updateInputs () {
+        updateSection.start();
+        manager.update();
+
+        List<VisionMeasurement> measurements = manager.getMeasurements();
+        for (int i = 0; i < measurements.size(); i++) {
+            VisionMeasurement measurement = measurements.get(i);
+
+            // The frame's strips and the fit to them, so the fit can be replayed
+            targetYawLog.log(measurement.getBestTargetYaw());
+            targetPitchLog.log(measurement.getBestTargetPitch());
+            visibleStripsLog.log(measurement.getStripCount());
+            for (int j = 0; j < measurement.getStripCount(); j++) {
+                stripYawLog.log(measurement.getStripYaw(j));
+                stripPitchLog.log(measurement.getStripPitch(j));
             }
-            double a1 = ANGLE_OF_CAMERA;
-            double h1 = HEIGHT_OF_CAMERA;
-            double h2 = Units.inchesToMeters(12*8 + 8); // Height of target
+            hubStripsLog.log(measurement.getTargetCount());
+            hubFitResidualLog.log(measurement.getResidual());
+            hubYawLog.log(measurement.getYaw());
+            hubDistanceLog.log(measurement.getDistance());
+        }
+        updateSection.stop();
+    }
+
+    /**
+     * @return Every measurement of the hub from every camera since the
+     *     last loop, oldest capture first. The distance is to the near
+     *     side of the hub's tape.
+     */
+    public static List<VisionMeasurement> getMeasurements () {
+        return manager.getMeasurements();
+    }
 
-            lastDistance = (h2 - h1) / Math.tan(Math.toRadians(a1 + a2));
-        } catch (IndexOutOfBoundsException e) {} // If the camera has no target
+    /**
+     * @return the filtered distance in meters from the hub, or the last
+     *     known distance if the hub has been out of sight for too long
+     */
+    public static double getMetersFromTarget () {
+        return getMetersFromTarget(Timer.getFPGATimestamp());
+    }
 
+    /**
+     * The same as {@link #getMetersFromTarget()}, at a given time
+     *
+     * @param now The current time in seconds
+     */
+    public static double getMetersFromTarget (double now) {
+        lastDistance = Targeting.calculateMetersFromTarget(hubTracker, now, lastDistance);
         return lastDistance;
     }
-}
\ No newline at end of file
+}
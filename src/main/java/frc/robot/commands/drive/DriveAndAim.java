@@ -1,30 +1,59 @@
 package frc.robot.commands.drive;
 
-import frc.robot.Constants;
-import frc.robot.Vision;
+import frc.robot.Log;
 import frc.robot.subsystems.DriveSubsystem;
+import frc.robot.util.MovingShotSolver;
+import frc.robot.util.Targeting;
+import friarLib2.logging.DataLogger;
 import friarLib2.utility.Vector3309;
 
 /**
  * Point at the target as the robot moves about the field
+ *
+ * <p>
+ * Aims at the shot solver's virtual target, which is the hub moved to
+ * make up for the robot's velocity so that shots taken while driving
+ * still go in. The solver uses the hub tracker while it has the hub,
+ * and the hub estimator and odometry when it doesn't. Either way, add a
+ * feedforward from the requested translational speed so the heading
+ * keeps up while strafing.
  */
 public class DriveAndAim extends DriveTeleop {
+
+    private static final DataLogger.Channel targetYawLog = Log.logger.addChannel("Aim target yaw");
+    private static final DataLogger.Channel aimSpeedLog = Log.logger.addChannel("Aim rotational speed");
+    private static final DataLogger.Channel aimFeedforwardLog = Log.logger.addChannel("Aim feedforward");
+
+    private final double[] pose = new double[3];
+
     public DriveAndAim (DriveSubsystem drive) {
         super(drive);
     }
 
     /**
-     * Use the data from the vision system to point towards the target
+     * Use the shot solver to point towards the virtual target. The solver
+     * is brought up to date with the robot's motion every loop, so it
+     * keeps aiming through short dropouts and doesn't lag behind the
+     * camera frame.
      */
     @Override
     protected double calculateRotationalSpeed (Vector3309 translationalSpeeds) {
-        Constants.Drive.VISION_AIM_PID.setSetpoint(1);
-
-        if (Vision.shooterCamera.hasTargets()) {
-            return Constants.Drive.VISION_AIM_PID.calculate(Vision.shooterCamera.getBestTarget().getX());
+        MovingShotSolver shotSolver = drive.getShotSolver();
+        if (!shotSolver.hasSolution()) {
+            // Use driver input if the hub has never been seen
+            return super.calculateRotationalSpeed(translationalSpeeds);
         }
-        
-        // Use driver input if no target is found
-        return super.calculateRotationalSpeed(translationalSpeeds);
+
+        drive.getRobotPose(pose);
+        double heading = pose[2];
+        double targetYaw = shotSolver.getVirtualYaw(heading);
+        double speed = Targeting.calculateAimSpeed(targetYaw);
+        double feedforward = Targeting.calculateAimFeedforward(shotSolver.getVirtualDX(), shotSolver.getVirtualDY(), translationalSpeeds.getXComponent(), translationalSpeeds.getYComponent());
+
+        // Logged in pairs so the calculation can be replayed
+        targetYawLog.log(targetYaw);
+        aimSpeedLog.log(speed);
+        aimFeedforwardLog.log(feedforward);
+        return speed + feedforward;
     }
 }
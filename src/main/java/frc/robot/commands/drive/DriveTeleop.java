@@ -1,11 +1,9 @@
 package frc.robot.commands.drive;
 
-import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.Constants;
-import frc.robot.IMU;
 import frc.robot.OI;
 import frc.robot.subsystems.DriveSubsystem;
 import friarLib2.utility.DoubleSlewRateLimiter;
@@ -42,6 +40,8 @@ public class DriveTeleop extends CommandBase {
         SmartDashboard.putData("Drivetrain acceleration", accelChooser);
     }
 
+    private final Vector3309 translationalSpeeds = Vector3309.fromCartesianCoords(0, 0); // Reused every loop
+
     public DriveTeleop(DriveSubsystem drive) {
         this.drive = drive;
 
@@ -53,9 +53,13 @@ public class DriveTeleop extends CommandBase {
 
     @Override
     public void execute() {
-        Vector3309 translationalSpeeds = Vector3309.fromCartesianCoords(
-            -OI.leftStick.getXWithDeadband(), 
-            -OI.leftStick.getYWithDeadband()).capMagnitude(1).scale(Constants.Drive.MAX_TELEOP_SPEED);
+        double stickX = -OI.leftStick.getXWithDeadband();
+        double stickY = -OI.leftStick.getYWithDeadband();
+
+        // Same as Vector3309.fromCartesianCoords(stickX, stickY).capMagnitude(1).scale(MAX_TELEOP_SPEED), without creating new vectors
+        translationalSpeeds.setRadialCoords(
+            Math.atan2(stickY, stickX),
+            Math.min(Math.sqrt(stickX * stickX + stickY * stickY), 1) * Constants.Drive.MAX_TELEOP_SPEED);
 
         if (accelChooser.getSelected()) {
             // Limit the drivebase's acceleration to reduce wear on the swerve modules
@@ -63,13 +67,10 @@ public class DriveTeleop extends CommandBase {
             translationalSpeeds.setYComponent(yAccelLimiter.calculate(translationalSpeeds.getYComponent()));
         }
 
-        ChassisSpeeds speeds = ChassisSpeeds.fromFieldRelativeSpeeds(
+        drive.setFieldRelativeSpeeds(
             translationalSpeeds.getXComponent(), 
             translationalSpeeds.getYComponent(), 
-            calculateRotationalSpeed(translationalSpeeds), 
-            IMU.getRobotYaw());
-
-        drive.setChassisSpeeds(speeds);
+            calculateRotationalSpeed(translationalSpeeds));
     }
 
     /**
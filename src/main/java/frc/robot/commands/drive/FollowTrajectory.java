@@ -14,6 +14,8 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.Constants;
 import frc.robot.subsystems.DriveSubsystem;
+import friarLib2.telemetry.Telemetry;
+import friarLib2.telemetry.TelemetryLevel;
 
 /**
  * Makes the robot follow the pathweaver JSON passed in through the constructor
@@ -30,6 +32,9 @@ public class FollowTrajectory extends CommandBase {
 
     private final Field2d field = new Field2d();
 
+    private PathPlannerState goal; // The target state during the most recent loop
+    private boolean running = false; // The dashboard values are only meaningful while following the path
+
     /**
      * @param drive The drive subsystem
      */
@@ -72,6 +77,7 @@ public class FollowTrajectory extends CommandBase {
     @Override
     public void initialize() {
         PathPlannerState initialState = (PathPlannerState) trajectory.sample(0);
+        goal = initialState;
 
         if (resetOdometry) {
             drive.resetOdometry(new Pose2d(initialState.poseMeters.getTranslation(), initialState.holonomicRotation)); // Re-zero the robot's odometry
@@ -79,12 +85,46 @@ public class FollowTrajectory extends CommandBase {
 
         timer.reset();
         timer.start();
+
+        running = true;
+        registerTelemetry();
+    }
+
+    /**
+     * Point the holonomic controller's dashboard values at this command.
+     * Re-registered every time the command starts because several
+     * FollowTrajectory commands share the same keys. Once the command
+     * ends, they publish NaN (or an empty string) instead of the error
+     * against its last goal.
+     */
+    private void registerTelemetry () {
+        Telemetry.addString("Holonomic controller error", TelemetryLevel.debug, 10, () -> running ? drive.getRobotPose().minus(goal.poseMeters).toString() : "");
+        Telemetry.addNumber("Holonomic x error", TelemetryLevel.practice, 2, () -> running ? calculateGoalError(true) : Double.NaN);
+        Telemetry.addNumber("Holonomic y error", TelemetryLevel.practice, 2, () -> running ? calculateGoalError(false) : Double.NaN);
+        Telemetry.addNumber("Holonomic theta target", TelemetryLevel.debug, 5, () -> running ? goal.holonomicRotation.getDegrees() : Double.NaN);
+        Telemetry.addNumber("Holonomic theta error", TelemetryLevel.practice, 2, () -> running ? Constants.Drive.HOLONOMIC_CONTROLLER_PID_THETA.getPositionError() : Double.NaN);
+    }
+
+    /**
+     * The robot's position relative to the goal, in the goal's frame like
+     * {@code Pose2d.minus()}, without allocating a Transform2d
+     *
+     * @param x True for the x component, false for the y
+     */
+    private double calculateGoalError (boolean x) {
+        Pose2d pose = drive.getRobotPose();
+        double dx = pose.getX() - goal.poseMeters.getX();
+        double dy = pose.getY() - goal.poseMeters.getY();
+        double goalRadians = goal.poseMeters.getRotation().getRadians();
+        double cos = Math.cos(goalRadians);
+        double sin = Math.sin(goalRadians);
+        return x ? dx * cos + dy * sin : -dx * sin + dy * cos;
     }
 
     // Called every time the scheduler runs while the command is scheduled.
     @Override
     public void execute() {
-        PathPlannerState goal = (PathPlannerState) trajectory.sample(timer.get()); //Find the target pose for the current time
+        goal = (PathPlannerState) trajectory.sample(timer.get()); //Find the target pose for the current time
 
         //Use the holonomic drive controller to calculate the required chassis speeds to follow the trajectory
         drive.setChassisSpeeds(holonomicController.calculate(
@@ -92,12 +132,6 @@ public class FollowTrajectory extends CommandBase {
             goal, 
             goal.holonomicRotation
         ));
-        
-        SmartDashboard.putString("Holonomic controller error", drive.getRobotPose().minus(goal.poseMeters).toString());
-        SmartDashboard.putNumber("Holonomic x error",  drive.getRobotPose().minus(goal.poseMeters).getTranslation().getX());
-        SmartDashboard.putNumber("Holonomic y error",  drive.getRobotPose().minus(goal.poseMeters).getTranslation().getY());
-        SmartDashboard.putNumber("Holonomic theta target", goal.holonomicRotation.getDegrees());
-        SmartDashboard.putNumber("Holonomic theta error", Constants.Drive.HOLONOMIC_CONTROLLER_PID_THETA.getPositionError());
 
         field.setRobotPose(new Pose2d(goal.poseMeters.getTranslation(), goal.holonomicRotation));
     }
@@ -105,6 +139,7 @@ public class FollowTrajectory extends CommandBase {
     // Called once the command ends or is interrupted.
     @Override
     public void end(boolean interrupted) {
+        running = false;
         drive.stopChassis();
     }
 
@@ -27,7 +27,7 @@ public class PointInDirectionOfTravel extends DriveTeleop {
      */
     @Override
     protected double calculateRotationalSpeed (Vector3309 translationalSpeeds) {
-        double currentHeading = IMU.getRobotYaw().getDegrees();
+        double currentHeading = IMU.getRobotYawDegrees();
 
         // Do some math to calculate the appropriate target heading.
         double directionOfTravel = translationalSpeeds.getDegrees() + 90; // Add 90 degrees because robot heading 0 is forward, and mathematical 0 is to the right
@@ -0,0 +1,143 @@
+package frc.robot.commands.shoot;
+
+import edu.wpi.first.math.filter.SlewRateLimiter;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.Log;
+import frc.robot.subsystems.DriveSubsystem;
+import frc.robot.subsystems.IndexerSubsystem;
+import frc.robot.subsystems.ShooterSubsystem;
+import frc.robot.util.ShootingMap;
+import frc.robot.util.Targeting;
+import friarLib2.logging.DataLogger;
+import friarLib2.vision.FieldTargetEstimator;
+
+import static frc.robot.Constants.Shooter.*;
+
+/**
+ * Spin the flywheel up ahead of a shot, so a Shoot command doesn't start
+ * from a stopped flywheel. Meant to be the shooter's default command.
+ *
+ * <p>
+ * While the robot has a cargo and is within range of the hub, the
+ * flywheel spins at the speed the shooting map expects for where the
+ * robot is. Approaching that range, it idles below the longest shot's
+ * speed. Otherwise, or near the end of the match when the robot should
+ * be climbing, it coasts. The distance comes from the odometry pose and
+ * the hub's estimated position, or the hub's position on the field until
+ * it has been seen.
+ *
+ * <p>
+ * The speed is ramped, so pre-spinning draws a fraction of the current
+ * a full power spin up would, and the battery is left for driving.
+ */
+public class PreSpinFlywheel extends CommandBase {
+
+    private static final DataLogger.Channel targetRPMLog = Log.logger.addChannel("Pre-spin target RPM");
+
+    private final ShootingMap shootingMap;
+    private final DriveSubsystem drive;
+    private final IndexerSubsystem indexer;
+    private final ShooterSubsystem shooter;
+
+    private final double[] pose = new double[3];
+    private final SlewRateLimiter rampLimiter = new SlewRateLimiter(PRE_SPIN_RAMP_RATE);
+    private boolean spinning = false;
+    private boolean inApproachZone = false;
+
+    public PreSpinFlywheel (ShootingMap shootingMap, DriveSubsystem drive, IndexerSubsystem indexer, ShooterSubsystem shooter) {
+        this.shootingMap = shootingMap;
+        this.drive = drive;
+        this.indexer = indexer;
+        this.shooter = shooter;
+
+        addRequirements(shooter);
+    }
+
+    @Override
+    public void initialize () {
+        spinning = false;
+        inApproachZone = false;
+    }
+
+    @Override
+    public void execute () {
+        double targetRPM = calculateTargetRPM();
+        targetRPMLog.log(targetRPM);
+
+        if (targetRPM == 0) {
+            spinning = false;
+            shooter.stopFlywheel();
+            return;
+        }
+
+        if (!spinning) {
+            // Ramp from however fast the flywheel is still coasting
+            rampLimiter.reset(shooter.getFlywheelRPM());
+            spinning = true;
+        }
+        shooter.setFlywheelSpeed(rampLimiter.calculate(targetRPM));
+    }
+
+    /**
+     * @return The speed to pre-spin at, 0 to coast
+     */
+    private double calculateTargetRPM () {
+        if (!indexer.hasCargo() || isClimbingTime()) {
+            inApproachZone = false;
+            return 0;
+        }
+
+        double metersFromTarget = calculateMetersFromTarget();
+        double approachDistance = shootingMap.getMaxDistance() + PRE_SPIN_APPROACH_DISTANCE;
+
+        // Hysteresis, so driving along the edge doesn't start and stop the flywheel
+        if (inApproachZone) {
+            inApproachZone = metersFromTarget <= approachDistance + PRE_SPIN_HYSTERESIS;
+        } else {
+            inApproachZone = metersFromTarget <= approachDistance;
+        }
+
+        if (!inApproachZone) {
+            return 0;
+        }
+        if (metersFromTarget <= shootingMap.getMaxDistance()) {
+            // The map holds its closest shot for anything closer
+            return shootingMap.getFlywheelRPM(metersFromTarget);
+        }
+        return shootingMap.getFlywheelRPM(shootingMap.getMaxDistance()) * PRE_SPIN_IDLE_FRACTION;
+    }
+
+    /**
+     * @return The distance from the robot to the hub's vision tape, like {@link frc.robot.Vision#getMetersFromTarget()}
+     */
+    private double calculateMetersFromTarget () {
+        FieldTargetEstimator hubEstimator = drive.getHubEstimator();
+        double hubDistance;
+        if (hubEstimator.hasEstimate()) {
+            // The estimate is in the odometry's frame, so it's compared with the raw odometry
+            drive.getRobotPose(pose);
+            hubDistance = Math.hypot(hubEstimator.getX() - pose[0], hubEstimator.getY() - pose[1]);
+        } else {
+            drive.getEstimatedPose(pose);
+            hubDistance = Math.hypot(Targeting.HUB_X - pose[0], Targeting.HUB_Y - pose[1]);
+        }
+        return hubDistance - Targeting.HUB_VISION_TAPE_RADIUS;
+    }
+
+    /**
+     * @return If it's the end of teleop, when the robot should be climbing
+     *     instead of shooting. Off the field the match time isn't counting
+     *     down, so it's never climbing time.
+     */
+    private boolean isClimbingTime () {
+        double matchTime = DriverStation.getMatchTime();
+        return DriverStation.isTeleop() && matchTime > 0 && matchTime <= PRE_SPIN_STOP_MATCH_TIME;
+    }
+
+    @Override
+    public void end (boolean interrupted) {
+        // Leave the flywheel spinning for whatever interrupted this, usually a Shoot command
+        spinning = false;
+    }
+}
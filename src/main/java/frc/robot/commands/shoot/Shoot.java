@@ -5,15 +5,28 @@ import java.util.function.BooleanSupplier;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.subsystems.IndexerSubsystem;
 import frc.robot.subsystems.ShooterSubsystem;
+import frc.robot.Constants;
+import frc.robot.Vision;
 import frc.robot.util.FiringSolution;
+import frc.robot.util.MovingShotSolver;
+import frc.robot.util.ShootingMap;
 
 /**
  * Activate the shooter, firing cargo if the condition evalutes to true
+ *
+ * <p>
+ * The shooter either goes to a fixed firing solution, or follows a
+ * shooting map, updating the flywheel speed and deflector every loop
+ * from the distance to the hub. When following a map, the distance comes
+ * from the shot solver's virtual target, so the speed makes up for the
+ * robot driving towards or away from the hub.
  */
 public class Shoot extends CommandBase {
 
     protected BooleanSupplier shootCondition;
     private final FiringSolution solution;
+    private final ShootingMap shootingMap;
+    private final MovingShotSolver shotSolver;
 
     private final ShooterSubsystem shooter;
     private final IndexerSubsystem indexer;
@@ -21,6 +34,25 @@ public class Shoot extends CommandBase {
     public Shoot(BooleanSupplier shootCondition, FiringSolution solution, ShooterSubsystem shooter, IndexerSubsystem indexer) {
         this.shootCondition = shootCondition;
         this.solution = solution;
+        this.shootingMap = null;
+        this.shotSolver = null;
+
+        this.shooter = shooter;
+        this.indexer = indexer;
+
+        addRequirements(shooter, indexer);
+    }
+
+    /**
+     * Shoot from wherever the robot is, using the distance to the hub
+     *
+     * @param shotSolver Where to aim while moving, from {@link frc.robot.subsystems.DriveSubsystem#getShotSolver()}
+     */
+    public Shoot(BooleanSupplier shootCondition, ShootingMap shootingMap, MovingShotSolver shotSolver, ShooterSubsystem shooter, IndexerSubsystem indexer) {
+        this.shootCondition = shootCondition;
+        this.solution = null;
+        this.shootingMap = shootingMap;
+        this.shotSolver = shotSolver;
 
         this.shooter = shooter;
         this.indexer = indexer;
@@ -30,13 +62,22 @@ public class Shoot extends CommandBase {
 
     @Override
     public void initialize() {
-        shooter.goToFiringSolution(solution);
+        shooter.startShotSequence();
+        if (shootingMap == null) {
+            shooter.goToFiringSolution(solution);
+        } else {
+            followShootingMap();
+        }
     }
 
     @Override
     public void execute() {
-        // If the flywheel is up to speed and the condition is true
-        if (shooter.isFlywheelUpToSpeed() && shootCondition.getAsBoolean()) {
+        if (shootingMap != null) {
+            followShootingMap();
+        }
+
+        // If the flywheel will be up to speed by the time the cargo reaches it and the condition is true
+        if (shooter.isFlywheelReadyWithin(Constants.Indexer.GATE_WHEEL_TRANSPORT_DELAY) && shootCondition.getAsBoolean()) {
             indexer.startConveyor();
             indexer.startGateWheelForShooting();
         } else {
@@ -45,8 +86,14 @@ public class Shoot extends CommandBase {
         }
     }
 
+    private void followShootingMap() {
+        double distance = shotSolver.hasSolution() ? shotSolver.getVirtualMetersFromTarget() : Vision.getMetersFromTarget();
+        shooter.goToShootingMap(shootingMap, distance);
+    }
+
     @Override
     public void end(boolean interrupted) {
+        shooter.endShotSequence();
         shooter.stopFlywheel();
         indexer.stopConveyor();
         indexer.stopGateWheel();
@@ -1,59 +1,26 @@
 package frc.robot.subsystems;
 
-import com.ctre.phoenix.motorcontrol.ControlMode;
-import com.ctre.phoenix.motorcontrol.NeutralMode;
-import edu.wpi.first.wpilibj.Solenoid;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import frc.robot.Constants;
 import frc.robot.IMU;
-import frc.robot.UnitConversions;
-
-import static frc.robot.Constants.Climber.*;
-
-import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
-import frc.robot.util.TalonStatusFrames;
+import frc.robot.subsystems.io.ClimberIO;
+import friarLib2.telemetry.Telemetry;
+import friarLib2.telemetry.TelemetryLevel;
 
 public class ClimberSubsystem extends SubsystemBase {
 
-    private final Solenoid solenoid;
-
-    private final WPI_TalonFX leaderMotor;
-    private final WPI_TalonFX followerMotor;
+    private final ClimberIO io;
+    private final ClimberIO.Inputs inputs = new ClimberIO.Inputs();
 
     private boolean isExtended;
 
-    public ClimberSubsystem() {
-        leaderMotor = new WPI_TalonFX(LEADER_MOTOR_ID);
-        followerMotor = new WPI_TalonFX(FOLLOWER_MOTOR_ID);
-
-        leaderMotor.configFactoryDefault();
-        leaderMotor.setNeutralMode(NeutralMode.Brake);
-
-        followerMotor.configFactoryDefault();
-        followerMotor.setNeutralMode(NeutralMode.Brake);
-        followerMotor.follow(leaderMotor);
-        //TalonStatusFrames.configFollowerFrames(followerMotor);
+    public ClimberSubsystem(ClimberIO io) {
+        this.io = io;
+        io.updateInputs(inputs);
 
-        leaderMotor.setInverted(false);
-        followerMotor.setInverted(true);
-
-        //TalonStatusFrames.configDumbFrames(leaderMotor);
-        //TalonStatusFrames.configDumbFrames(followerMotor);
-
-        initEncoder();
-
-        solenoid = new Solenoid(
-            Constants.PCM_CAN_ID,
-            Constants.PCM_TYPE,
-            CLIMBER_SOLENOID_ID
-        );
-
-        isExtended = solenoid.get();
-    }
+        isExtended = inputs.pistonExtended;
 
-    private void initEncoder() {
-        leaderMotor.setSelectedSensorPosition(UnitConversions.Climber.climberDegreesToEncoderTicks(CLIMBER_STARTING_ANGLE));
+        Telemetry.addNumber("Climber Angle", TelemetryLevel.competition, 5, this::getClimberPosition);
+        Telemetry.addNumber("Climber Angle Relative to Ground", TelemetryLevel.practice, 5, this::getClimberPositionRelativeToGround);
     }
 
     public boolean isExtended() {
@@ -62,7 +29,7 @@ public class ClimberSubsystem extends SubsystemBase {
 
     public void setPiston(boolean extended) {
         isExtended = extended;
-        solenoid.set(extended);
+        io.setPiston(extended);
     }
 
     /**
@@ -70,7 +37,7 @@ public class ClimberSubsystem extends SubsystemBase {
      */
     public void setClimberPower(double percent) {
         if (isExtended()) {
-            leaderMotor.set(ControlMode.PercentOutput, percent);
+            io.setClimberPower(percent);
         }
     }
 
@@ -78,7 +45,7 @@ public class ClimberSubsystem extends SubsystemBase {
      * @return The climber's angle relative to the robot frame.
      */
     public double getClimberPosition() {
-        return UnitConversions.Climber.climberEncoderTicksToDegrees(leaderMotor.getSelectedSensorPosition());
+        return inputs.climberDegrees;
     }
 
     public double getClimberPositionRelativeToGround() {
@@ -90,7 +57,6 @@ public class ClimberSubsystem extends SubsystemBase {
 
     @Override
     public void periodic() {
-        SmartDashboard.putNumber("Climber Angle", getClimberPosition());
-        SmartDashboard.putNumber("Climber Angle Relative to Ground", getClimberPositionRelativeToGround());
+        io.updateInputs(inputs);
     }
-}
\ No newline at end of file
+}
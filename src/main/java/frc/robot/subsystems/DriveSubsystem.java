@@ -1,71 +1,145 @@
 package frc.robot.subsystems;
 
+import java.util.List;
+
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
-import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
+import edu.wpi.first.wpilibj.smartdashboard.FieldObject2d;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants;
 import frc.robot.IMU;
+import frc.robot.Log;
 import frc.robot.Vision;
+import frc.robot.swerve.OdometryThread;
+import frc.robot.swerve.PoseEstimator;
 import frc.robot.swerve.SwerveModule3309;
+import frc.robot.swerve.SwerveModuleIO;
+import frc.robot.util.MovingShotSolver;
+import frc.robot.util.Targeting;
 import friarLib2.hardware.SwerveModule;
+import friarLib2.math.CTREModuleState;
+import friarLib2.logging.DataLogger;
+import friarLib2.math.SwerveKinematics;
+import friarLib2.profiling.LoopProfiler;
+import friarLib2.telemetry.Telemetry;
+import friarLib2.telemetry.TelemetryLevel;
+import friarLib2.vision.FieldTargetEstimator;
+import friarLib2.vision.TargetTracker;
+import friarLib2.vision.VisionMeasurement;
 
 import static frc.robot.Constants.Drive.*;
 
 public class DriveSubsystem extends SubsystemBase {
 
+    private static final int FIELD_DIVISOR = 5; // Loops between Field2d updates, which allocate
+    private static final Rotation2d NO_ROTATION = new Rotation2d();
+
+    // The hub tracker's inputs and output, so it can be replayed
+    private static final DataLogger.Channel trackerTimeLog = Log.logger.addChannel("Hub tracker time");
+    private static final DataLogger.Channel trackerMotionXLog = Log.logger.addChannel("Hub tracker motion x");
+    private static final DataLogger.Channel trackerMotionYLog = Log.logger.addChannel("Hub tracker motion y");
+    private static final DataLogger.Channel trackerMotionThetaLog = Log.logger.addChannel("Hub tracker motion theta");
+    private static final DataLogger.Channel observationCountLog = Log.logger.addChannel("Hub tracker observations");
+    private static final DataLogger.Channel observationTimeLog = Log.logger.addChannel("Hub observation time");
+    private static final DataLogger.Channel observationYawLog = Log.logger.addChannel("Hub observation yaw");
+    private static final DataLogger.Channel observationDistanceLog = Log.logger.addChannel("Hub observation distance");
+    private static final DataLogger.Channel metersToTargetLog = Log.logger.addChannel("Meters to target");
+
     private final Field2d field = new Field2d();
+    private final FieldObject2d visionEstimateObject = field.getObject("Vision estimate");
+    private final FieldObject2d hubEstimateObject = field.getObject("Hub estimate");
+    private int fieldLoops = 0;
 
-    private final SwerveModule frontLeftModule;
-    private final SwerveModule frontRightModule;
-    private final SwerveModule backLeftModule;
-    private final SwerveModule backRightModule;
+    private final SwerveModule[] modules;
 
-    private final SwerveDriveOdometry swerveOdometry;
-    private final SwerveDriveKinematics swerveKinematics;
-    private Pose2d currentRobotPose = new Pose2d();
+    private final OdometryThread odometryThread;
+    private final SwerveKinematics swerveKinematics = new SwerveKinematics(MODULE_TRANSLATIONS);
+    private final PoseEstimator poseEstimator;
+    private final FieldTargetEstimator hubEstimator = new FieldTargetEstimator(HUB_ESTIMATE_GAIN, MAX_HUB_ESTIMATE_ERROR);
+    private final double[] pastPose = new double[3];
+    private final double[] robotMotion = new double[3];
+    private final double[] trackedTarget = new double[2];
+    private final MovingShotSolver shotSolver = new MovingShotSolver(Constants.Shooter.CARGO_TIME_OF_FLIGHT_BASE, Constants.Shooter.CARGO_TIME_OF_FLIGHT_PER_METER);
+    private final double[] measuredModuleSpeeds;
+    private final double[] measuredModuleAngles;
+    private final double[] measuredVelocity = new double[3]; // Robot relative
+    private volatile double measuredOmega = 0; // Also read by the simulated gyro on the odometry thread
+    private final double[] robotPose = new double[3]; // This loop's odometry pose
+    private final double[] estimatedPose = new double[3];
+    private final double[] latestPose = new double[3];
+    private double lastPoseX = 0;
+    private double lastPoseY = 0;
+    private double lastPoseTheta = 0;
+    private double metersToTarget = 0;
+
+    // Preallocated so that driving doesn't create any garbage
+    private final double[] moduleSpeeds;
+    private final double[] moduleAngles;
+    private final double[] currentModuleAngles;
+
+    private final LoopProfiler.Section periodicSection = LoopProfiler.addSection("DriveSubsystem.periodic");
 
     /**
      * Initialize the swerve modules, imu, and Kinematics/Odometry objects
+     *
+     * @param moduleIOs The hardware for each module, in the same order as
+     *     {@link frc.robot.Constants.Drive#MODULE_TRANSLATIONS}
      */
-    public DriveSubsystem() {
-        frontLeftModule = new SwerveModule3309(225, FRONT_LEFT_MODULE_IDS, "Front left");
-        frontRightModule = new SwerveModule3309(315, FRONT_RIGHT_MODULE_IDS, "Front right");
-        backLeftModule = new SwerveModule3309(135, BACK_LEFT_MODULE_IDS, "Back left");
-        backRightModule = new SwerveModule3309(45, BACK_RIGHT_MODULE_IDS, "Back right");
+    public DriveSubsystem(SwerveModuleIO... moduleIOs) {
+        if (moduleIOs.length != swerveKinematics.getModuleCount()) {
+            throw new IllegalArgumentException("Expected " + swerveKinematics.getModuleCount() + " swerve modules, got " + moduleIOs.length);
+        }
+
+        int moduleCount = moduleIOs.length;
+        modules = new SwerveModule[moduleCount];
+        moduleSpeeds = new double[moduleCount];
+        moduleAngles = new double[moduleCount];
+        currentModuleAngles = new double[moduleCount];
+        measuredModuleSpeeds = new double[moduleCount];
+        measuredModuleAngles = new double[moduleCount];
 
-        swerveKinematics = new SwerveDriveKinematics(
-            FRONT_LEFT_MODULE_TRANSLATION,
-            FRONT_RIGHT_MODULE_TRANSLATION,
-            BACK_LEFT_MODULE_TRANSLATION,
-            BACK_RIGHT_MODULE_TRANSLATION
-        );
-        swerveOdometry = new SwerveDriveOdometry(swerveKinematics, IMU.getRobotYaw());
+        for (int i = 0; i < moduleCount; i++) {
+            modules[i] = new SwerveModule3309(moduleIOs[i], MODULE_NAMES[i]);
+        }
+
+        odometryThread = new OdometryThread(moduleIOs);
+        poseEstimator = new PoseEstimator(odometryThread.getHistory());
 
         IMU.zeroIMU();
+        odometryThread.start();
 
         SmartDashboard.putData("Odometry", field);
+        Telemetry.addNumber("Robot heading", TelemetryLevel.competition, 5, IMU::getRobotYawDegrees);
+        Telemetry.addNumber("Meters to target", TelemetryLevel.competition, 2, () -> metersToTarget);
+        Telemetry.addNumber("Odometry updates", TelemetryLevel.debug, 50, () -> odometryThread.getUpdateCount());
+        Telemetry.addNumber("Vision correction x", TelemetryLevel.practice, 10, poseEstimator::getOffsetX);
+        Telemetry.addNumber("Vision correction y", TelemetryLevel.practice, 10, poseEstimator::getOffsetY);
+        Telemetry.addNumber("Vision fixes rejected", TelemetryLevel.debug, 25, poseEstimator::getRejectedCount);
+        Telemetry.addNumber("Hub sightings rejected", TelemetryLevel.debug, 25, hubEstimator::getRejectedCount);
+        Telemetry.addNumber("Hub track confidence", TelemetryLevel.practice, 10, () -> Vision.hubTracker.getConfidence(Timer.getFPGATimestamp()));
+        Telemetry.addNumber("Shot time of flight", TelemetryLevel.debug, 10, shotSolver::getTimeOfFlight);
+        Telemetry.addNumber("Shot solver iterations", TelemetryLevel.debug, 25, shotSolver::getIterations);
     }
 
     public void setModuleStates (SwerveModuleState[] states) {
-        frontLeftModule.setState(states[0]);
-        frontRightModule.setState(states[1]);
-        backLeftModule.setState(states[2]);
-        backRightModule.setState(states[3]);
+        for (int i = 0; i < modules.length; i++) {
+            modules[i].setState(states[i]);
+        }
     }
 
     /**
      * Use the CANCoders to rezero each swerve module
      */
     public void zeroModules () {
-        frontLeftModule.zeroSteering();
-        frontRightModule.zeroSteering();
-        backLeftModule.zeroSteering();
-        backRightModule.zeroSteering();
+        for (SwerveModule module : modules) {
+            module.zeroSteering();
+        }
     }
 
     /**
@@ -74,26 +148,159 @@ public class DriveSubsystem extends SubsystemBase {
      * @param speeds
      */
     public void setChassisSpeeds (ChassisSpeeds speeds) {
-        SwerveModuleState[] moduleStates = swerveKinematics.toSwerveModuleStates(speeds); //Generate the swerve module states
-        SwerveDriveKinematics.desaturateWheelSpeeds(moduleStates, SwerveModule3309.ABSOLUTE_MAX_DRIVE_SPEED);
-        setModuleStates(moduleStates);
+        setChassisSpeeds(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond, speeds.omegaRadiansPerSecond);
+    }
+
+    /**
+     * Drive the robot relative to itself. Does not allocate any objects.
+     *
+     * @param vx Forward speed in meters/second
+     * @param vy Leftward speed in meters/second
+     * @param omega Counterclockwise rotational speed in radians/second
+     */
+    public void setChassisSpeeds (double vx, double vy, double omega) {
+        swerveKinematics.toModuleStates(vx, vy, omega, moduleSpeeds, moduleAngles);
+        setModuleSpeeds();
+    }
+
+    /**
+     * Drive the robot relative to the field. Does not allocate any objects.
+     *
+     * @param vx Speed away from the driver station in meters/second
+     * @param vy Leftward speed (from the driver's perspective) in meters/second
+     * @param omega Counterclockwise rotational speed in radians/second
+     */
+    public void setFieldRelativeSpeeds (double vx, double vy, double omega) {
+        swerveKinematics.toModuleStatesFieldRelative(vx, vy, omega, IMU.getRobotYawDegrees(), moduleSpeeds, moduleAngles);
+        setModuleSpeeds();
+    }
+
+    /**
+     * Desaturate, optimize and send the module speeds and angles calculated by the kinematics
+     */
+    private void setModuleSpeeds () {
+        SwerveKinematics.desaturateWheelSpeeds(moduleSpeeds, SwerveModule3309.ABSOLUTE_MAX_DRIVE_SPEED);
+
+        for (int i = 0; i < modules.length; i++) {
+            currentModuleAngles[i] = modules[i].getAngleDegrees();
+        }
+        CTREModuleState.optimize(moduleSpeeds, moduleAngles, currentModuleAngles);
+
+        for (int i = 0; i < modules.length; i++) {
+            modules[i].setOptimizedState(moduleSpeeds[i], moduleAngles[i]);
+        }
     }
 
     /**
      * Set the target speeds to zero (stop the drivetrain)
      */
     public void stopChassis () {
-        setChassisSpeeds(new ChassisSpeeds());
+        setChassisSpeeds(0, 0, 0);
     }
 
     /**
      * Get the current robot pose according to dead-reckoning odometry
      * See https://docs.wpilib.org/en/stable/docs/software/kinematics-and-odometry/swerve-drive-odometry.html for more details
+     *
+     * <p>
+     * The odometry runs on its own thread, so this is the pose from at
+     * most {@link frc.robot.Constants.Drive#ODOMETRY_PERIOD} seconds ago.
      * 
      * @return Current robot pose
      */
     public Pose2d getRobotPose () {
-        return currentRobotPose;
+        return odometryThread.getPose();
+    }
+
+    /**
+     * The same as {@link #getRobotPose()}, but does not allocate anything
+     *
+     * @param pose Filled with the x and y in meters and the heading in radians
+     */
+    public void getRobotPose (double[] pose) {
+        odometryThread.getPose(pose);
+    }
+
+    /**
+     * Get the robot's pose on the field, with the odometry's drift
+     * corrected by vision fixes on the hub. Unlike {@link #getRobotPose()},
+     * this can jump a little when a fix arrives.
+     */
+    public Pose2d getEstimatedPose () {
+        return poseEstimator.getEstimatedPose(getRobotPose());
+    }
+
+    /**
+     * The same as {@link #getEstimatedPose()}, but does not allocate anything
+     *
+     * @param pose Filled with the x and y in meters and the heading in radians
+     */
+    public void getEstimatedPose (double[] pose) {
+        getRobotPose(pose);
+        poseEstimator.correct(pose);
+    }
+
+    /**
+     * How far the robot has turned since some time in the recent past,
+     * e.g. to bring a vision target's yaw up to date. Does not allocate anything.
+     *
+     * @param timestamp The FPGA time in seconds
+     * @return Degrees turned counterclockwise, or 0 if there is no pose history
+     */
+    public double getHeadingChangeSince (double timestamp) {
+        if (!getPoseAt(timestamp, pastPose)) {
+            return 0;
+        }
+        getRobotPose(latestPose);
+        return Math.toDegrees(MathUtil.angleModulus(latestPose[2] - pastPose[2]));
+    }
+
+    /**
+     * Where the hub is, in the odometry's frame, worked out from every
+     * sighting since the odometry was last reset. Lets the robot aim at
+     * the hub when the camera can't see it.
+     */
+    public FieldTargetEstimator getHubEstimator () {
+        return hubEstimator;
+    }
+
+    /**
+     * Find where the robot was at some time in the recent past, e.g. when
+     * a camera frame was captured. Does not allocate anything.
+     *
+     * @param timestamp The FPGA time in seconds
+     * @param pose Filled with the x and y in meters and the heading in radians
+     * @return False if there is no pose history yet (just started or reset)
+     */
+    public boolean getPoseAt (double timestamp, double[] pose) {
+        return odometryThread.getHistory().getPose(timestamp, pose);
+    }
+
+    /**
+     * The same as {@link #getPoseAt(double, double[])}, but creates a Pose2d
+     *
+     * @return Where the robot was, or the current pose if there is no history yet
+     */
+    public Pose2d getPoseAt (double timestamp) {
+        Pose2d pose = odometryThread.getHistory().getPose(timestamp);
+        return pose != null ? pose : getRobotPose();
+    }
+
+    /**
+     * @return How fast the robot is actually moving, according to the modules
+     */
+    public ChassisSpeeds getMeasuredChassisSpeeds () {
+        return new ChassisSpeeds(measuredVelocity[0], measuredVelocity[1], measuredOmega);
+    }
+
+    /**
+     * The same as {@link #getMeasuredChassisSpeeds()}'s omega, but does not
+     * allocate anything. Safe to call from other threads.
+     *
+     * @return Counterclockwise rotational speed in radians/second
+     */
+    public double getMeasuredRotationalSpeed () {
+        return measuredOmega;
     }
 
     /**
@@ -103,28 +310,158 @@ public class DriveSubsystem extends SubsystemBase {
      */
     public void resetOdometry (Pose2d pose) {
         IMU.tareIMU(pose.getRotation());
-        swerveOdometry.resetPosition(pose, new Rotation2d());
+        odometryThread.reset(pose);
+        poseEstimator.reset(Timer.getFPGATimestamp());
+        hubEstimator.reset();
+
+        // The odometry jumped, the robot didn't move
+        lastPoseX = pose.getX();
+        lastPoseY = pose.getY();
+        lastPoseTheta = pose.getRotation().getRadians();
+    }
+
+    /**
+     * Move the hub tracker along with the robot, then give it every new
+     * vision measurement, from every camera
+     */
+    private void updateVision (double now) {
+        calculateRobotMotion(lastPoseX, lastPoseY, lastPoseTheta, robotPose, robotMotion);
+        Vision.hubTracker.predict(now, robotMotion[0], robotMotion[1], robotMotion[2]);
+        lastPoseX = robotPose[0];
+        lastPoseY = robotPose[1];
+        lastPoseTheta = robotPose[2];
+
+        List<VisionMeasurement> measurements = Vision.getMeasurements();
+        trackerTimeLog.log(now);
+        trackerMotionXLog.log(robotMotion[0]);
+        trackerMotionYLog.log(robotMotion[1]);
+        trackerMotionThetaLog.log(robotMotion[2]);
+        observationCountLog.log(measurements.size());
+        for (int i = 0; i < measurements.size(); i++) {
+            addVisionMeasurement(measurements.get(i));
+        }
+    }
+
+    /**
+     * Give a sighting of the hub to the pose estimator, hub estimator and
+     * hub tracker
+     */
+    private void addVisionMeasurement (VisionMeasurement measurement) {
+        double timestamp = measurement.getTimestamp();
+        double hubYaw = measurement.getYaw();
+        double metersFromTarget = measurement.getDistance();
+        double metersFromHubCenter = metersFromTarget + Targeting.HUB_VISION_TAPE_RADIUS;
+        poseEstimator.addVisionMeasurement(timestamp, metersFromTarget, hubYaw);
+
+        // The frame is a few loops old, so move it to where the robot is now
+        if (getPoseAt(timestamp, pastPose)) {
+            hubEstimator.addSighting(pastPose[0], pastPose[1], pastPose[2], hubYaw, metersFromHubCenter);
+            calculateRobotMotion(pastPose[0], pastPose[1], pastPose[2], robotPose, robotMotion);
+            TargetTracker.compensateForRobotMotion(hubYaw, metersFromHubCenter, robotMotion[0], robotMotion[1], robotMotion[2], trackedTarget);
+        } else {
+            trackedTarget[0] = hubYaw;
+            trackedTarget[1] = metersFromHubCenter;
+        }
+        Vision.hubTracker.addObservation(timestamp, trackedTarget[0], trackedTarget[1]);
+        observationTimeLog.log(timestamp);
+        observationYawLog.log(trackedTarget[0]);
+        observationDistanceLog.log(trackedTarget[1]);
+    }
+
+    /**
+     * @return Where to aim and how far to shoot so that cargo shot while
+     *     moving lands in the hub, updated every loop. Has no solution
+     *     until the hub has been found.
+     */
+    public MovingShotSolver getShotSolver () {
+        return shotSolver;
+    }
+
+    /**
+     * Find the virtual target for shooting while moving, from where the
+     * hub is relative to the robot and how fast the robot is moving
+     */
+    private void updateShotSolver () {
+        double heading = robotPose[2];
+        double hubDX;
+        double hubDY;
+        if (Vision.hubTracker.hasTrack(Timer.getFPGATimestamp())) {
+            double direction = heading - Math.toRadians(Vision.hubTracker.getYaw());
+            hubDX = Vision.hubTracker.getDistance() * Math.cos(direction);
+            hubDY = Vision.hubTracker.getDistance() * Math.sin(direction);
+        } else if (hubEstimator.hasEstimate()) {
+            hubDX = hubEstimator.getX() - robotPose[0];
+            hubDY = hubEstimator.getY() - robotPose[1];
+        } else {
+            shotSolver.clear();
+            return;
+        }
+
+        // The modules' measured velocity, rotated onto the field
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        double vx = measuredVelocity[0] * cos - measuredVelocity[1] * sin;
+        double vy = measuredVelocity[0] * sin + measuredVelocity[1] * cos;
+
+        shotSolver.solve(hubDX, hubDY, vx, vy);
+    }
+
+    /**
+     * Work out how the robot moved between two poses, relative to the first one
+     *
+     * @param to The x and y in meters and the heading in radians
+     * @param motion Filled with the distance moved forward and left in meters, and the radians turned counterclockwise
+     */
+    private static void calculateRobotMotion (double fromX, double fromY, double fromTheta, double[] to, double[] motion) {
+        double fieldDX = to[0] - fromX;
+        double fieldDY = to[1] - fromY;
+        double cos = Math.cos(fromTheta);
+        double sin = Math.sin(fromTheta);
+        motion[0] = fieldDX * cos + fieldDY * sin;
+        motion[1] = -fieldDX * sin + fieldDY * cos;
+        motion[2] = MathUtil.angleModulus(to[2] - fromTheta);
     }
 
     @Override
     public void periodic() {
-        //Update the odometry using module states and chassis rotation
-        currentRobotPose = swerveOdometry.update(
-            IMU.getRobotYaw(),
-            frontLeftModule.getState(),
-            frontRightModule.getState(),
-            backLeftModule.getState(),
-            backRightModule.getState()
-        );
-
-        frontLeftModule.outputToDashboard();
-        frontRightModule.outputToDashboard();
-        backLeftModule.outputToDashboard();
-        backRightModule.outputToDashboard();
-
-        field.setRobotPose(currentRobotPose);
-
-        SmartDashboard.putNumber("Robot heading", IMU.getRobotYaw().getDegrees());
-        SmartDashboard.putNumber("Meters to target", Vision.getMetersFromTarget());
+        periodicSection.start();
+
+        // Read every module once. Everything else this loop uses these readings.
+        // The odometry thread reads the modules on its own.
+        for (int i = 0; i < modules.length; i++) {
+            modules[i].updateInputs();
+            measuredModuleSpeeds[i] = modules[i].getSpeedMetersPerSecond();
+            measuredModuleAngles[i] = modules[i].getAngleDegrees();
+        }
+        swerveKinematics.toRobotDisplacement(measuredModuleSpeeds, measuredModuleAngles, measuredVelocity);
+        measuredOmega = measuredVelocity[2];
+        getRobotPose(robotPose);
+
+        double now = Timer.getFPGATimestamp();
+        updateVision(now);
+        metersToTarget = Vision.getMetersFromTarget(now);
+        metersToTargetLog.log(metersToTarget);
+        updateShotSolver();
+        updateField();
+
+        periodicSection.stop();
+    }
+
+    /**
+     * Show the poses on the dashboard's field. Field2d allocates on every
+     * update, so it's only updated every few loops, at every telemetry level.
+     */
+    private void updateField () {
+        if (++fieldLoops < FIELD_DIVISOR) {
+            return;
+        }
+        fieldLoops = 0;
+
+        field.setRobotPose(robotPose[0], robotPose[1], new Rotation2d(robotPose[2]));
+        getEstimatedPose(estimatedPose);
+        visionEstimateObject.setPose(estimatedPose[0], estimatedPose[1], new Rotation2d(estimatedPose[2]));
+        if (hubEstimator.hasEstimate()) {
+            hubEstimateObject.setPose(hubEstimator.getX(), hubEstimator.getY(), NO_ROTATION);
+        }
     }
 }
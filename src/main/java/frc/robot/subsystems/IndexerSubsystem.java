@@ -1,66 +1,65 @@
 package frc.robot.subsystems;
 
-import com.ctre.phoenix.motorcontrol.ControlMode;
-import com.ctre.phoenix.motorcontrol.NeutralMode;
-import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
-
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Log;
 import frc.robot.UnitConversions;
-import frc.robot.util.TalonStatusFrames;
+import frc.robot.subsystems.io.IndexerIO;
+import friarLib2.logging.DataLogger;
 import friarLib2.math.RateOfChangeCalculator;
+import friarLib2.profiling.LoopProfiler;
+import friarLib2.telemetry.Telemetry;
+import friarLib2.telemetry.TelemetryLevel;
 
 import static frc.robot.Constants.Indexer.*;
 
 public class IndexerSubsystem extends SubsystemBase {
 
-    private final WPI_TalonSRX conveyorMotor;
-    private final WPI_TalonSRX gateMotor;
+    private final IndexerIO io;
+    private final IndexerIO.Inputs inputs = new IndexerIO.Inputs();
 
     private final RateOfChangeCalculator gateWheelCurrentRoC = new RateOfChangeCalculator();
 
-    public IndexerSubsystem() {
-        conveyorMotor = new WPI_TalonSRX(CONVEYOR_MOTOR_ID);
-        conveyorMotor.configFactoryDefault();
-        conveyorMotor.setNeutralMode(NeutralMode.Brake);
+    private final LoopProfiler.Section periodicSection = LoopProfiler.addSection("IndexerSubsystem.periodic");
 
-        gateMotor = new WPI_TalonSRX(GATE_WHEEL_MOTOR_ID);
-        gateMotor.configFactoryDefault();
-        GATE_WHEEL_PID.configureMotorPID(gateMotor);
-        gateMotor.setNeutralMode(NeutralMode.Brake);
+    private final DataLogger.Channel gateWheelCurrentLog = Log.logger.addChannel("Gate wheel current");
 
-        conveyorMotor.setInverted(true);
-        gateMotor.setInverted(true);
+    public IndexerSubsystem(IndexerIO io) {
+        this.io = io;
+        io.updateInputs(inputs);
 
-        TalonStatusFrames.configDumbFrames(conveyorMotor);
+        Telemetry.addNumber("Gate wheel current", TelemetryLevel.practice, 1, this::getGateWheelSupplyCurrent);
+        Telemetry.addNumber("Gate wheel current RoC", TelemetryLevel.practice, 1, gateWheelCurrentRoC::getRoC);
+        Telemetry.addBoolean("Indexer Has Cargo", TelemetryLevel.competition, 5, this::hasCargo);
+        Telemetry.addNumber("Gate wheel closed loop error", TelemetryLevel.debug, 5, () -> UnitConversions.Indexer.gateWheelDegreesToEncoderTicks(inputs.gateWheelErrorDegrees));
+        Telemetry.addNumber("Gate wheel closed loop error degrees", TelemetryLevel.debug, 5, () -> inputs.gateWheelErrorDegrees);
     }
 
     /**
      * @return If the indexer has a cargo indexed
      */
     public boolean hasCargo() {
-        return gateMotor.getControlMode() == ControlMode.Position;
+        return inputs.gateWheelHoldingPosition;
     }
 
     /**
      * Start the conveyor at defult speed
      */
     public void startConveyor() {
-        conveyorMotor.set(ControlMode.PercentOutput, CONVEYOR_POWER);
+        io.setConveyor(CONVEYOR_POWER);
     }
 
     /**
      * Turn off the conveyor
      */
     public void stopConveyor() {
-        conveyorMotor.stopMotor();
+        io.stopConveyor();
     }
 
     /**
      * Start the gate wheel at the default speed for indexing a cargo
      */
     public void startGateWheelForIndexing() {
-        gateMotor.setVoltage(GATE_WHEEL_INDEXING_VOLTS);
+        io.setGateWheelVoltage(GATE_WHEEL_INDEXING_VOLTS);
     }
 
     /**
@@ -71,18 +70,18 @@ public class IndexerSubsystem extends SubsystemBase {
     }
 
     public void setGateWheel(double percentOutput) {
-        gateMotor.set(ControlMode.PercentOutput, percentOutput);
+        io.setGateWheel(percentOutput);
     }
 
     /**
      * Turn off the gate wheel
      */
     public void stopGateWheel() {
-        gateMotor.stopMotor();
+        io.stopGateWheel();
     }
 
     public double getGateWheelPosition() {
-        return UnitConversions.Indexer.gateWheelEncoderTicksToDegrees(gateMotor.getSelectedSensorPosition());
+        return inputs.gateWheelPositionDegrees;
     }
 
     /**
@@ -91,15 +90,14 @@ public class IndexerSubsystem extends SubsystemBase {
      * @param degrees The distance to move the wheel
      */
     public void rotateGateWheelByXDegrees(double degrees) {
-        gateMotor.setSelectedSensorPosition(0);
-        gateMotor.set(ControlMode.Position, UnitConversions.Indexer.gateWheelDegreesToEncoderTicks(degrees));
+        io.rotateGateWheelByXDegrees(degrees);
     }
 
     /**
      * @return The current being drawn by the gate wheel
      */
     public double getGateWheelSupplyCurrent() {
-        return gateMotor.getSupplyCurrent();
+        return inputs.gateWheelSupplyCurrent;
     }
 
     public double getGateWheelSupplyCurrentRoC() {
@@ -108,14 +106,16 @@ public class IndexerSubsystem extends SubsystemBase {
 
     @Override
     public void periodic() {
-        SmartDashboard.putNumber("Gate wheel current", getGateWheelSupplyCurrent());
+        periodicSection.start();
+
+        io.updateInputs(inputs);
+
+        double gateWheelCurrent = getGateWheelSupplyCurrent();
+        gateWheelCurrentLog.log(gateWheelCurrent);
 
-        gateWheelCurrentRoC.update(getGateWheelSupplyCurrent());
+        gateWheelCurrentRoC.update(gateWheelCurrent);
 
-        SmartDashboard.putNumber("Gate wheel current RoC", gateWheelCurrentRoC.getRoC());
-        SmartDashboard.putBoolean("Indexer Has Cargo", hasCargo());
-        SmartDashboard.putNumber("Gate wheel closed loop error", gateMotor.getClosedLoopError());
-        SmartDashboard.putNumber("Gate wheel closed loop error degrees", UnitConversions.Indexer.gateWheelEncoderTicksToDegrees(gateMotor.getClosedLoopError()));
+        periodicSection.stop();
     }
 
     @Override
@@ -1,15 +1,10 @@
 package frc.robot.subsystems;
 
-import com.ctre.phoenix.motorcontrol.ControlMode;
-import com.ctre.phoenix.motorcontrol.NeutralMode;
-import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
-
-import edu.wpi.first.wpilibj.Solenoid;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import frc.robot.Constants;
 import frc.robot.Pneumatics;
-import frc.robot.util.TalonStatusFrames;
+import frc.robot.subsystems.io.IntakeIO;
+import friarLib2.telemetry.Telemetry;
+import friarLib2.telemetry.TelemetryLevel;
 
 import static frc.robot.Constants.Intake.*;
 
@@ -22,36 +17,13 @@ import static frc.robot.Constants.Intake.*;
  */
 public class IntakeSubsystem extends SubsystemBase {
 
-    private final Solenoid leftIntakeSolenoid;
-    private final Solenoid rightIntakeSolenoid;
-
-    private final WPI_TalonSRX leftIntakeMotor;
-    private final WPI_TalonSRX rightIntakeMotor;
+    private final IntakeIO io;
     
-    public IntakeSubsystem() {
-        leftIntakeSolenoid = new Solenoid(
-            Constants.PCM_CAN_ID,
-            Constants.PCM_TYPE,
-            LEFT_INTAKE_SOLENOID_ID
-        );
-
-        rightIntakeSolenoid = new Solenoid(
-            Constants.PCM_CAN_ID,
-            Constants.PCM_TYPE,
-            RIGHT_INTAKE_SOLENOID_ID
-        );
-
-        leftIntakeMotor = new WPI_TalonSRX(LEFT_INTAKE_MOTOR_ID);
-        rightIntakeMotor = new WPI_TalonSRX(RIGHT_INTAKE_MOTOR_ID);
-
-        leftIntakeMotor.setNeutralMode(NeutralMode.Brake);
-        rightIntakeMotor.setNeutralMode(NeutralMode.Brake);
-
-        leftIntakeMotor.setInverted(true);
-        rightIntakeMotor.setInverted(false);
-
-        TalonStatusFrames.configDumbFrames(leftIntakeMotor);
-        TalonStatusFrames.configDumbFrames(rightIntakeMotor);
+    public IntakeSubsystem(IntakeIO io) {
+        this.io = io;
+
+        Telemetry.addNumber("Air Storage Pressure", TelemetryLevel.competition, 25, Pneumatics::getStoragePSI);
+        Telemetry.addBoolean("Compressor State", TelemetryLevel.practice, 25, Pneumatics::getCompressorState);
     }
 
     /**
@@ -63,11 +35,11 @@ public class IntakeSubsystem extends SubsystemBase {
      */
     public void setIntake (Side side, boolean deployed, boolean activateRollers) {
         if (side == Side.leftIntake || side == Side.bothIntakes) {
-            leftIntakeSolenoid.set(deployed);
+            io.setLeftIntakeDeployed(deployed);
             setLeftIntakeRoller(activateRollers);
         }
         if (side == Side.rightIntake || side == Side.bothIntakes) {
-            rightIntakeSolenoid.set(deployed);
+            io.setRightIntakeDeployed(deployed);
             setRightIntakeRoller(activateRollers);
         }
     }
@@ -119,7 +91,7 @@ public class IntakeSubsystem extends SubsystemBase {
      * Turn on or off the left intake's roller
      */
     public void setLeftIntakeRoller (double power) {
-        leftIntakeMotor.set(ControlMode.PercentOutput, power);
+        io.setLeftIntakeRoller(power);
     }
 
     public void setLeftIntakeRoller (boolean on) {
@@ -130,7 +102,7 @@ public class IntakeSubsystem extends SubsystemBase {
      * Turn on or off the right intake's roller
      */
     public void setRightIntakeRoller (double power) {
-        rightIntakeMotor.set(ControlMode.PercentOutput, power);
+        io.setRightIntakeRoller(power);
     }
 
     public void setRightIntakeRoller (boolean on) {
@@ -145,10 +117,4 @@ public class IntakeSubsystem extends SubsystemBase {
         rightIntake,
         bothIntakes
     }
-
-    @Override
-    public void periodic() {
-        SmartDashboard.putNumber("Air Storage Pressure", Pneumatics.getStoragePSI());
-        SmartDashboard.putBoolean("Compressor State", Pneumatics.getCompressorState());
-    }
 }
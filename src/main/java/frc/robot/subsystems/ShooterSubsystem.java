@@ -1,21 +1,21 @@
 package frc.robot.subsystems;
 
-import com.ctre.phoenix.motorcontrol.ControlMode;
-import com.ctre.phoenix.motorcontrol.NeutralMode;
-import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
+import java.util.function.IntToDoubleFunction;
 
-import edu.wpi.first.math.filter.LinearFilter;
-import edu.wpi.first.wpilibj.Solenoid;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import frc.robot.Constants;
-import frc.robot.UnitConversions;
+import frc.robot.Log;
+import frc.robot.subsystems.io.ShooterIO;
 import frc.robot.util.FiringSolution;
-import frc.robot.util.TalonStatusFrames;
-import friarLib2.math.RateOfChangeCalculator;
+import frc.robot.util.ShootingMap;
+import frc.robot.util.ShotDetector;
+import friarLib2.logging.DataLogger;
+import friarLib2.math.FlywheelController;
+import friarLib2.profiling.LoopProfiler;
+import friarLib2.telemetry.Telemetry;
+import friarLib2.telemetry.TelemetryLevel;
 
 import static frc.robot.Constants.Shooter.*;
-import static frc.robot.UnitConversions.Shooter.*;
 
 /**
  * Represents the robot's shooter
@@ -24,43 +24,63 @@ import static frc.robot.UnitConversions.Shooter.*;
  * The mechanism contains a single flywheel with a fixed hood and a
  * pneumatically actuated "deflector" that redirects the shot to a
  * more horizontal trajectory
+ *
+ * <p>
+ * The flywheel's velocity loop runs here, with a model-based
+ * {@link FlywheelController}, and the motors are driven with voltage.
+ *
+ * <p>
+ * A {@link ShotDetector} watches the flywheel for each cargo leaving, so
+ * shot timing can be read from telemetry and the log.
  */
 public class ShooterSubsystem extends SubsystemBase {
 
-    // Flywheel motors
-    private final WPI_TalonFX flywheelLeader;
-    private final WPI_TalonFX flywheelFollower;
-
-    private final Solenoid deflectorSolenoid;
-
-    private final RateOfChangeCalculator flywheelROC = new RateOfChangeCalculator();
-    private final LinearFilter ROCFilter = LinearFilter.movingAverage(7);
-    private double smoothedROC = 0;
-
-    public ShooterSubsystem() {
-        // Configure the flywheel motors
-        flywheelLeader = new WPI_TalonFX(LEADER_MOTOR_ID);
-        flywheelLeader.configFactoryDefault();
-        flywheelLeader.setNeutralMode(NeutralMode.Coast);
-        FLYWHEEL_MOTOR_PID.configureMotorPID(flywheelLeader);
-        flywheelLeader.config_IntegralZone(0, UnitConversions.Shooter.flywheelRPMToEncoderTicksPer100ms(FLYWHEEL_IZONE));
-
-        flywheelFollower = new WPI_TalonFX(FOLLOWER_MOTOR_ID);
-        flywheelFollower.configFactoryDefault();
-        flywheelFollower.setNeutralMode(NeutralMode.Coast);
-        FLYWHEEL_MOTOR_PID.configureMotorPID(flywheelFollower);
-        flywheelLeader.config_IntegralZone(0, UnitConversions.Shooter.flywheelRPMToEncoderTicksPer100ms(FLYWHEEL_IZONE));
-        flywheelFollower.follow(flywheelLeader);
-        TalonStatusFrames.configFollowerFrames(flywheelFollower);
-
-        flywheelLeader.setInverted(true);
-        flywheelFollower.setInverted(false);
-
-        deflectorSolenoid = new Solenoid(
-            Constants.PCM_CAN_ID,
-            Constants.PCM_TYPE,
-            HOOD_SOLENOID_ID
-        );
+    private final ShooterIO io;
+    private final ShooterIO.Inputs inputs = new ShooterIO.Inputs();
+
+    private final FlywheelController flywheelController = new FlywheelController(
+        FLYWHEEL_KS, FLYWHEEL_KV, FLYWHEEL_KA,
+        FLYWHEEL_MODEL_STD_DEV, FLYWHEEL_VOLTAGE_ERROR_STD_DEV, FLYWHEEL_MEASUREMENT_STD_DEV,
+        FLYWHEEL_LQR_TOLERANCE, FLYWHEEL_MAX_VOLTAGE,
+        FLYWHEEL_MEASUREMENT_DELAY, FLYWHEEL_CONTROL_PERIOD);
+
+    private double timeUntilReady = Double.POSITIVE_INFINITY;
+
+    private final ShotDetector shotDetector = new ShotDetector(
+        SHOT_DETECTION_RPM_DROP, SHOT_DETECTION_CURRENT, SHOT_RECOVERY_TOLERANCE, SHOT_HISTORY_SIZE);
+
+    private final LoopProfiler.Section periodicSection = LoopProfiler.addSection("ShooterSubsystem.periodic");
+
+    private final DataLogger.Channel flywheelRPMLog = Log.logger.addChannel("Flywheel RPM");
+    private final DataLogger.Channel flywheelVoltsLog = Log.logger.addChannel("Flywheel volts");
+    private final DataLogger.Channel flywheelCurrentLog = Log.logger.addChannel("Flywheel amps");
+    private final DataLogger.Channel shotCountLog = Log.logger.addChannel("Shot count");
+    private final DataLogger.Channel shotReleaseRPMLog = Log.logger.addChannel("Shot release RPM");
+    private final DataLogger.Channel shotGapLog = Log.logger.addChannel("Shot gap");
+    private final DataLogger.Channel shotFirstBallLog = Log.logger.addChannel("Shot first ball time");
+    private final DataLogger.Channel shotRecoveryLog = Log.logger.addChannel("Shot recovery time");
+
+    public ShooterSubsystem(ShooterIO io) {
+        this.io = io;
+        io.updateInputs(inputs);
+        flywheelController.reset(inputs.flywheelRPM);
+
+        Telemetry.addNumber("Flywheel Speed", TelemetryLevel.competition, 2, this::getFlywheelRPM);
+        Telemetry.addNumber("Flywheel Ready In ms", TelemetryLevel.practice, 1, () -> Math.min(timeUntilReady, FLYWHEEL_READY_HORIZON) * 1000);
+        Telemetry.addNumber("Flywheel Setpoint", TelemetryLevel.practice, 5, flywheelController::getReference);
+        Telemetry.addNumber("Flywheel Error", TelemetryLevel.practice, 1, flywheelController::getError);
+        Telemetry.addNumber("Flywheel Volts", TelemetryLevel.practice, 2, () -> inputs.flywheelAppliedVolts);
+        Telemetry.addBoolean("Flywheel Up To Speed", TelemetryLevel.competition, 1, this::isFlywheelUpToSpeed);
+        Telemetry.addNumber("Flywheel Amps", TelemetryLevel.practice, 2, () -> inputs.flywheelStatorCurrent);
+
+        Telemetry.addNumber("Shots", TelemetryLevel.competition, 5, shotDetector::getShotCount);
+        Telemetry.addNumber("Shots This Sequence", TelemetryLevel.practice, 5, shotDetector::getSequenceShotCount);
+        Telemetry.addNumber("First Ball ms", TelemetryLevel.practice, 5, () -> shotDetector.getFirstShotDelay() * 1000);
+        Telemetry.addNumber("Shot Gap ms", TelemetryLevel.practice, 5, () -> lastShot(shotDetector::getGap) * 1000);
+        Telemetry.addNumber("Shot Recovery ms", TelemetryLevel.practice, 5, () -> lastShot(shotDetector::getRecoveryTime) * 1000);
+        Telemetry.addNumber("Shot Release RPM", TelemetryLevel.practice, 5, () -> lastShot(shotDetector::getReleaseRPM));
+        Telemetry.addNumber("Average Shot Gap ms", TelemetryLevel.practice, 25, () -> shotDetector.getAverageGap() * 1000);
+        Telemetry.addNumber("Average Shot Recovery ms", TelemetryLevel.practice, 25, () -> shotDetector.getAverageRecoveryTime() * 1000);
     }
 
     /**
@@ -69,14 +89,14 @@ public class ShooterSubsystem extends SubsystemBase {
      * @param RPM Velocity in rotations per minute
      */
     public void setFlywheelSpeed (double RPM) {
-        flywheelLeader.set(ControlMode.Velocity, flywheelRPMToEncoderTicksPer100ms(RPM));
+        flywheelController.setReference(RPM);
     }
 
     /**
      * Stop the flywheel
      */
     public void stopFlywheel () {
-        flywheelLeader.stopMotor();
+        flywheelController.setReference(0);
     }
 
     /**
@@ -85,20 +105,62 @@ public class ShooterSubsystem extends SubsystemBase {
      * @return
      */
     public double getFlywheelRPM () {
-        return flywheelEncoderTicksPer100msToRPM(flywheelLeader.getSelectedSensorVelocity());
+        return inputs.flywheelRPM;
     }
 
     /**
      * @return True if the flywheel is on and at its target velocity
      */
     public boolean isFlywheelUpToSpeed () {
-        boolean isRunning = getFlywheelRPM() >= 50  && flywheelLeader.getMotorOutputPercent() >= 0.05;
+        return isFlywheelReadyWithin(0);
+    }
 
-        boolean isUpToSpeed = Math.abs(flywheelEncoderTicksPer100msToRPM(flywheelLeader.getClosedLoopError())) <= FLYWHEEL_SPEED_TOLERANCE;
+    /**
+     * Check if the flywheel will be at its target velocity soon, e.g. to
+     * start feeding a cargo that takes a while to reach it
+     *
+     * @param seconds How soon
+     * @return True if the flywheel is on and the model predicts it will
+     *     be within tolerance of its target velocity within the time
+     */
+    public boolean isFlywheelReadyWithin (double seconds) {
+        boolean isRunning = getFlywheelRPM() >= 50 && flywheelController.getReference() > 0;
+        return isRunning && timeUntilReady <= seconds;
+    }
 
-        boolean isSpeedStable = Math.abs(smoothedROC) <= FLYWHEEL_ROC_TOLERANCE;
+    /**
+     * @return How long until the flywheel is within tolerance of its
+     *     target velocity, as predicted by its model, in seconds. 0 if it
+     *     already is, infinity if it's off or no prediction can be made.
+     */
+    public double getTimeUntilReady () {
+        return timeUntilReady;
+    }
 
-        return isRunning && isUpToSpeed && isSpeedStable;
+    /**
+     * Start timing a sequence of shots, from now to the first cargo and
+     * between cargo
+     */
+    public void startShotSequence () {
+        shotDetector.startSequence(Timer.getFPGATimestamp());
+    }
+
+    /**
+     * Stop timing the current sequence of shots
+     */
+    public void endShotSequence () {
+        shotDetector.endSequence();
+    }
+
+    /**
+     * @return The shots detected from the flywheel's speed and current, with their timing
+     */
+    public ShotDetector getShotDetector () {
+        return shotDetector;
+    }
+
+    private double lastShot (IntToDoubleFunction metric) {
+        return shotDetector.getStoredShotCount() == 0 ? Double.NaN : metric.applyAsDouble(0);
     }
 
     /**
@@ -107,7 +169,7 @@ public class ShooterSubsystem extends SubsystemBase {
      * @param deployed If the deflector should be deployed or retracted
      */
     public void setDeflector (boolean deployed) {
-        deflectorSolenoid.set(!deployed);
+        io.setDeflector(deployed);
     }
 
     public void goToFiringSolution (FiringSolution solution) {
@@ -115,15 +177,51 @@ public class ShooterSubsystem extends SubsystemBase {
         setDeflector(solution.getDeflector());
     }
 
+    /**
+     * Set the flywheel speed and deflector for a shot from the given distance
+     *
+     * @param shootingMap The calibrated shots
+     * @param metersFromTarget The distance to the hub's vision tape, or to
+     *     the virtual target's when shooting while moving
+     */
+    public void goToShootingMap (ShootingMap shootingMap, double metersFromTarget) {
+        setFlywheelSpeed(shootingMap.getFlywheelRPM(metersFromTarget));
+        setDeflector(shootingMap.getDeflector(metersFromTarget));
+    }
+
     @Override
     public void periodic() {
-        flywheelROC.update(getFlywheelRPM());
-        smoothedROC = ROCFilter.calculate(flywheelROC.getRoC());
-
-        SmartDashboard.putNumber("Flywheel Speed", getFlywheelRPM());
-        SmartDashboard.putNumber("Flywheel Speed RoC", smoothedROC);
-        SmartDashboard.putNumber("Flywheel Setpoint", flywheelEncoderTicksPer100msToRPM(flywheelLeader.getClosedLoopTarget()));
-        SmartDashboard.putNumber("Flywheel Error", flywheelEncoderTicksPer100msToRPM(flywheelLeader.getClosedLoopError()));
-        SmartDashboard.putBoolean("Flywheel Up To Speed", isFlywheelUpToSpeed());
+        periodicSection.start();
+
+        io.updateInputs(inputs);
+
+        double flywheelRPM = getFlywheelRPM();
+        flywheelRPMLog.log(flywheelRPM);
+
+        double volts = flywheelController.calculate(flywheelRPM);
+        timeUntilReady = flywheelController.predictTimeToReference(FLYWHEEL_SPEED_TOLERANCE, FLYWHEEL_READY_HORIZON);
+        if (flywheelController.getReference() == 0) {
+            io.stopFlywheel();
+        } else {
+            io.setFlywheelVoltage(volts);
+        }
+        flywheelVoltsLog.log(volts);
+        flywheelCurrentLog.log(inputs.flywheelStatorCurrent);
+
+        shotDetector.update(Timer.getFPGATimestamp(), flywheelRPM, inputs.flywheelStatorCurrent, flywheelController.getReference());
+        if (shotDetector.wasShotDetected()) {
+            shotCountLog.log(shotDetector.getShotCount());
+            shotReleaseRPMLog.log(shotDetector.getReleaseRPM(0));
+            if (shotDetector.getSequenceShotCount() == 1) {
+                shotFirstBallLog.log(shotDetector.getFirstShotDelay());
+            } else if (!Double.isNaN(shotDetector.getGap(0))) {
+                shotGapLog.log(shotDetector.getGap(0));
+            }
+        }
+        if (shotDetector.wasRecoveryDetected()) {
+            shotRecoveryLog.log(shotDetector.getRecoveryTime(0));
+        }
+
+        periodicSection.stop();
     }
 }
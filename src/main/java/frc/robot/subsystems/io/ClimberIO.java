@@ -0,0 +1,24 @@
+package frc.robot.subsystems.io;
+
+/**
+ * The hardware interface for the climber
+ */
+public interface ClimberIO {
+
+    /**
+     * Everything read from the climber in a single loop
+     */
+    class Inputs {
+        public double climberDegrees; // Relative to the robot frame
+        public boolean pistonExtended;
+    }
+
+    /**
+     * Read the sensors into the inputs. Called once per loop.
+     */
+    default void updateInputs (Inputs inputs) {}
+
+    default void setPiston (boolean extended) {}
+
+    default void setClimberPower (double percent) {}
+}
@@ -0,0 +1,66 @@
+package frc.robot.subsystems.io;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
+
+import edu.wpi.first.wpilibj.Solenoid;
+import frc.robot.Constants;
+import frc.robot.UnitConversions;
+
+import static frc.robot.Constants.Climber.*;
+
+/**
+ * The climber's hardware: two Falcon 500s on the arm and a solenoid to
+ * extend it
+ */
+public class ClimberIOFalcon implements ClimberIO {
+
+    private final Solenoid solenoid;
+
+    private final WPI_TalonFX leaderMotor;
+    private final WPI_TalonFX followerMotor;
+
+    public ClimberIOFalcon () {
+        leaderMotor = new WPI_TalonFX(LEADER_MOTOR_ID);
+        followerMotor = new WPI_TalonFX(FOLLOWER_MOTOR_ID);
+
+        leaderMotor.configFactoryDefault();
+        leaderMotor.setNeutralMode(NeutralMode.Brake);
+
+        followerMotor.configFactoryDefault();
+        followerMotor.setNeutralMode(NeutralMode.Brake);
+        followerMotor.follow(leaderMotor);
+        //TalonStatusFrames.configFollowerFrames(followerMotor);
+
+        leaderMotor.setInverted(false);
+        followerMotor.setInverted(true);
+
+        //TalonStatusFrames.configDumbFrames(leaderMotor);
+        //TalonStatusFrames.configDumbFrames(followerMotor);
+
+        leaderMotor.setSelectedSensorPosition(UnitConversions.Climber.climberDegreesToEncoderTicks(CLIMBER_STARTING_ANGLE));
+
+        solenoid = new Solenoid(
+            Constants.PCM_CAN_ID,
+            Constants.PCM_TYPE,
+            CLIMBER_SOLENOID_ID
+        );
+    }
+
+    @Override
+    public void updateInputs (Inputs inputs) {
+        inputs.climberDegrees = UnitConversions.Climber.climberEncoderTicksToDegrees(leaderMotor.getSelectedSensorPosition());
+        inputs.pistonExtended = solenoid.get();
+    }
+
+    @Override
+    public void setPiston (boolean extended) {
+        solenoid.set(extended);
+    }
+
+    @Override
+    public void setClimberPower (double percent) {
+        leaderMotor.set(ControlMode.PercentOutput, percent);
+    }
+}
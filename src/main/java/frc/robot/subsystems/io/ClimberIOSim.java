@@ -0,0 +1,37 @@
+package frc.robot.subsystems.io;
+
+import edu.wpi.first.wpilibj.Timer;
+
+import static frc.robot.Constants.Climber.*;
+
+/**
+ * A simulated climber. The arm turns in proportion to its output.
+ */
+public class ClimberIOSim implements ClimberIO {
+    private static final double FREE_SPEED = 6380 * 6 * CLIMBER_GEAR_RATIO; // Degrees/second at full output
+
+    private double climberDegrees = CLIMBER_STARTING_ANGLE;
+    private double power = 0;
+    private boolean pistonExtended = false;
+    private double lastTimestamp = Timer.getFPGATimestamp();
+
+    @Override
+    public void updateInputs (Inputs inputs) {
+        double timestamp = Timer.getFPGATimestamp();
+        climberDegrees += power * FREE_SPEED * (timestamp - lastTimestamp);
+        lastTimestamp = timestamp;
+
+        inputs.climberDegrees = climberDegrees;
+        inputs.pistonExtended = pistonExtended;
+    }
+
+    @Override
+    public void setPiston (boolean extended) {
+        pistonExtended = extended;
+    }
+
+    @Override
+    public void setClimberPower (double percent) {
+        power = percent;
+    }
+}
@@ -0,0 +1,39 @@
+package frc.robot.subsystems.io;
+
+/**
+ * The hardware interface for the robot's IMU
+ */
+public interface GyroIO {
+
+    /**
+     * Everything read from the IMU in a single loop
+     */
+    class Inputs {
+        public double yawDegrees;
+        public double pitchDegrees;
+        public double rollDegrees;
+    }
+
+    /**
+     * Read the sensors into the inputs. Called once per loop by
+     * {@link frc.robot.IMU}, while the odometry thread may be calling
+     * {@link #readYawDegrees()}, so implementations must be safe to call
+     * from both threads.
+     */
+    default void updateInputs (Inputs inputs) {}
+
+    /**
+     * Read just the yaw, for the odometry thread. Must be safe to call
+     * alongside {@link #updateInputs} on another thread.
+     *
+     * @return The yaw in degrees, counterclockwise positive
+     */
+    default double readYawDegrees () {
+        return 0;
+    }
+
+    /**
+     * Set the current yaw to the specified value
+     */
+    default void setYaw (double yawDegrees) {}
+}
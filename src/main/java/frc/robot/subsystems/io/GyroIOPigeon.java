@@ -0,0 +1,46 @@
+package frc.robot.subsystems.io;
+
+import com.ctre.phoenix.sensors.PigeonIMU;
+import com.ctre.phoenix.sensors.PigeonIMU_StatusFrame;
+import frc.robot.Constants;
+
+/**
+ * A Pigeon IMU on the CAN bus
+ *
+ * <p>
+ * Read from both the main loop and the odometry thread. The odometry
+ * thread only reads the fused heading, and the array the main loop reads
+ * into is guarded by the lock. The Phoenix calls themselves are thread safe.
+ */
+public class GyroIOPigeon implements GyroIO {
+    // We're using a Pigeon 1.0 because we have a bunch floating around from previous robots
+    private final PigeonIMU imu;
+
+    private final double[] yawPitchRoll = new double[3];
+
+    public GyroIOPigeon (int canID) {
+        imu = new PigeonIMU(canID);
+
+        // The fused heading is read by the odometry thread
+        imu.setStatusFramePeriod(PigeonIMU_StatusFrame.CondStatus_6_SensorFusion, Constants.Drive.ODOMETRY_STATUS_FRAME_PERIOD);
+    }
+
+    @Override
+    public synchronized void updateInputs (Inputs inputs) {
+        imu.getYawPitchRoll(yawPitchRoll);
+        inputs.yawDegrees = imu.getFusedHeading();
+        inputs.pitchDegrees = yawPitchRoll[1];
+        inputs.rollDegrees = yawPitchRoll[2];
+    }
+
+    @Override
+    public double readYawDegrees () {
+        return imu.getFusedHeading();
+    }
+
+    @Override
+    public void setYaw (double yawDegrees) {
+        imu.setYaw(yawDegrees);
+        imu.setFusedHeading(yawDegrees);
+    }
+}
@@ -0,0 +1,51 @@
+package frc.robot.subsystems.io;
+
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * A simulated IMU that integrates the drivetrain's rotational speed
+ *
+ * <p>
+ * The IMU is read from both the main loop and the odometry thread, so
+ * every method is synchronized.
+ */
+public class GyroIOSim implements GyroIO {
+
+    private DoubleSupplier yawRateSupplier = () -> 0;
+    private double yawDegrees = 0;
+    private double lastTimestamp = Timer.getFPGATimestamp();
+
+    /**
+     * @param supplier The robot's rotational speed in degrees per second,
+     *     counterclockwise positive
+     */
+    public void setYawRateSupplier (DoubleSupplier supplier) {
+        yawRateSupplier = supplier;
+    }
+
+    @Override
+    public synchronized void updateInputs (Inputs inputs) {
+        inputs.yawDegrees = integrateYaw();
+        inputs.pitchDegrees = 0;
+        inputs.rollDegrees = 0;
+    }
+
+    @Override
+    public synchronized double readYawDegrees () {
+        return integrateYaw();
+    }
+
+    private double integrateYaw () {
+        double timestamp = Timer.getFPGATimestamp();
+        yawDegrees += yawRateSupplier.getAsDouble() * (timestamp - lastTimestamp);
+        lastTimestamp = timestamp;
+        return yawDegrees;
+    }
+
+    @Override
+    public synchronized void setYaw (double yawDegrees) {
+        this.yawDegrees = yawDegrees;
+    }
+}
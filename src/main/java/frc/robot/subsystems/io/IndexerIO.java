@@ -0,0 +1,38 @@
+package frc.robot.subsystems.io;
+
+/**
+ * The hardware interface for the indexer
+ */
+public interface IndexerIO {
+
+    /**
+     * Everything read from the indexer in a single loop
+     */
+    class Inputs {
+        public double gateWheelPositionDegrees;
+        public double gateWheelErrorDegrees; // From the motor controller's closed loop
+        public double gateWheelSupplyCurrent; // Amps
+        public boolean gateWheelHoldingPosition; // If the gate wheel is running its position loop
+    }
+
+    /**
+     * Read the sensors into the inputs. Called once per loop.
+     */
+    default void updateInputs (Inputs inputs) {}
+
+    default void setConveyor (double percentOutput) {}
+
+    default void stopConveyor () {}
+
+    default void setGateWheel (double percentOutput) {}
+
+    default void setGateWheelVoltage (double volts) {}
+
+    default void stopGateWheel () {}
+
+    /**
+     * Zero the gate wheel's encoder and run its position loop to the
+     * specified angle
+     */
+    default void rotateGateWheelByXDegrees (double degrees) {}
+}
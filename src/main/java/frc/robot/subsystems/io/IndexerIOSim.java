@@ -0,0 +1,60 @@
+package frc.robot.subsystems.io;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * A simulated indexer. The gate wheel turns in proportion to its output
+ * and its position loop is modeled as a first order lag.
+ */
+public class IndexerIOSim implements IndexerIO {
+    private static final double GATE_WHEEL_FREE_SPEED = 1500; // Degrees/second at full output
+    private static final double POSITION_TIME_CONSTANT = 0.1; // Seconds
+    private static final double FREE_CURRENT = 1.5; // Amps drawn while spinning with no load
+
+    private double positionDegrees = 0;
+    private double outputPercent = 0;
+    private boolean holdingPosition = false;
+    private double positionSetpoint = 0;
+    private double lastTimestamp = Timer.getFPGATimestamp();
+
+    @Override
+    public void updateInputs (Inputs inputs) {
+        double timestamp = Timer.getFPGATimestamp();
+        double dt = timestamp - lastTimestamp;
+        lastTimestamp = timestamp;
+
+        if (holdingPosition) {
+            positionDegrees += (positionSetpoint - positionDegrees) * Math.min(dt / POSITION_TIME_CONSTANT, 1);
+        } else {
+            positionDegrees += outputPercent * GATE_WHEEL_FREE_SPEED * dt;
+        }
+
+        inputs.gateWheelPositionDegrees = positionDegrees;
+        inputs.gateWheelErrorDegrees = holdingPosition ? positionSetpoint - positionDegrees : 0;
+        inputs.gateWheelSupplyCurrent = holdingPosition || outputPercent == 0 ? 0 : FREE_CURRENT;
+        inputs.gateWheelHoldingPosition = holdingPosition;
+    }
+
+    @Override
+    public void setGateWheel (double percentOutput) {
+        outputPercent = percentOutput;
+        holdingPosition = false;
+    }
+
+    @Override
+    public void setGateWheelVoltage (double volts) {
+        setGateWheel(volts / 12);
+    }
+
+    @Override
+    public void stopGateWheel () {
+        setGateWheel(0);
+    }
+
+    @Override
+    public void rotateGateWheelByXDegrees (double degrees) {
+        positionDegrees = 0;
+        positionSetpoint = degrees;
+        holdingPosition = true;
+    }
+}
@@ -0,0 +1,75 @@
+package frc.robot.subsystems.io;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
+
+import frc.robot.UnitConversions;
+import frc.robot.util.TalonStatusFrames;
+
+import static frc.robot.Constants.Indexer.*;
+
+/**
+ * The indexer's hardware: a Talon SRX on the conveyor and a Talon SRX
+ * with an encoder on the gate wheel
+ */
+public class IndexerIOTalonSRX implements IndexerIO {
+
+    private final WPI_TalonSRX conveyorMotor;
+    private final WPI_TalonSRX gateMotor;
+
+    public IndexerIOTalonSRX () {
+        conveyorMotor = new WPI_TalonSRX(CONVEYOR_MOTOR_ID);
+        conveyorMotor.configFactoryDefault();
+        conveyorMotor.setNeutralMode(NeutralMode.Brake);
+
+        gateMotor = new WPI_TalonSRX(GATE_WHEEL_MOTOR_ID);
+        gateMotor.configFactoryDefault();
+        GATE_WHEEL_PID.configureMotorPID(gateMotor);
+        gateMotor.setNeutralMode(NeutralMode.Brake);
+
+        conveyorMotor.setInverted(true);
+        gateMotor.setInverted(true);
+
+        TalonStatusFrames.configDumbFrames(conveyorMotor);
+    }
+
+    @Override
+    public void updateInputs (Inputs inputs) {
+        inputs.gateWheelPositionDegrees = UnitConversions.Indexer.gateWheelEncoderTicksToDegrees(gateMotor.getSelectedSensorPosition());
+        inputs.gateWheelErrorDegrees = UnitConversions.Indexer.gateWheelEncoderTicksToDegrees(gateMotor.getClosedLoopError());
+        inputs.gateWheelSupplyCurrent = gateMotor.getSupplyCurrent();
+        inputs.gateWheelHoldingPosition = gateMotor.getControlMode() == ControlMode.Position;
+    }
+
+    @Override
+    public void setConveyor (double percentOutput) {
+        conveyorMotor.set(ControlMode.PercentOutput, percentOutput);
+    }
+
+    @Override
+    public void stopConveyor () {
+        conveyorMotor.stopMotor();
+    }
+
+    @Override
+    public void setGateWheel (double percentOutput) {
+        gateMotor.set(ControlMode.PercentOutput, percentOutput);
+    }
+
+    @Override
+    public void setGateWheelVoltage (double volts) {
+        gateMotor.setVoltage(volts);
+    }
+
+    @Override
+    public void stopGateWheel () {
+        gateMotor.stopMotor();
+    }
+
+    @Override
+    public void rotateGateWheelByXDegrees (double degrees) {
+        gateMotor.setSelectedSensorPosition(0);
+        gateMotor.set(ControlMode.Position, UnitConversions.Indexer.gateWheelDegreesToEncoderTicks(degrees));
+    }
+}
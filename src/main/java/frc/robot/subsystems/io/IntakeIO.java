@@ -0,0 +1,17 @@
+package frc.robot.subsystems.io;
+
+/**
+ * The hardware interface for the intakes. The intakes have no sensors,
+ * so there are no inputs, and the default (simulated) implementation
+ * does nothing.
+ */
+public interface IntakeIO {
+
+    default void setLeftIntakeDeployed (boolean deployed) {}
+
+    default void setRightIntakeDeployed (boolean deployed) {}
+
+    default void setLeftIntakeRoller (double power) {}
+
+    default void setRightIntakeRoller (double power) {}
+}
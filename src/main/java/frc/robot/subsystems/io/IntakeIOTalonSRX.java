@@ -0,0 +1,70 @@
+package frc.robot.subsystems.io;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
+
+import edu.wpi.first.wpilibj.Solenoid;
+import frc.robot.Constants;
+import frc.robot.util.TalonStatusFrames;
+
+import static frc.robot.Constants.Intake.*;
+
+/**
+ * The intakes' hardware: each intake has a solenoid connected to two
+ * pistons and Talon SRX connected to a BAG motor
+ */
+public class IntakeIOTalonSRX implements IntakeIO {
+
+    private final Solenoid leftIntakeSolenoid;
+    private final Solenoid rightIntakeSolenoid;
+
+    private final WPI_TalonSRX leftIntakeMotor;
+    private final WPI_TalonSRX rightIntakeMotor;
+
+    public IntakeIOTalonSRX () {
+        leftIntakeSolenoid = new Solenoid(
+            Constants.PCM_CAN_ID,
+            Constants.PCM_TYPE,
+            LEFT_INTAKE_SOLENOID_ID
+        );
+
+        rightIntakeSolenoid = new Solenoid(
+            Constants.PCM_CAN_ID,
+            Constants.PCM_TYPE,
+            RIGHT_INTAKE_SOLENOID_ID
+        );
+
+        leftIntakeMotor = new WPI_TalonSRX(LEFT_INTAKE_MOTOR_ID);
+        rightIntakeMotor = new WPI_TalonSRX(RIGHT_INTAKE_MOTOR_ID);
+
+        leftIntakeMotor.setNeutralMode(NeutralMode.Brake);
+        rightIntakeMotor.setNeutralMode(NeutralMode.Brake);
+
+        leftIntakeMotor.setInverted(true);
+        rightIntakeMotor.setInverted(false);
+
+        TalonStatusFrames.configDumbFrames(leftIntakeMotor);
+        TalonStatusFrames.configDumbFrames(rightIntakeMotor);
+    }
+
+    @Override
+    public void setLeftIntakeDeployed (boolean deployed) {
+        leftIntakeSolenoid.set(deployed);
+    }
+
+    @Override
+    public void setRightIntakeDeployed (boolean deployed) {
+        rightIntakeSolenoid.set(deployed);
+    }
+
+    @Override
+    public void setLeftIntakeRoller (double power) {
+        leftIntakeMotor.set(ControlMode.PercentOutput, power);
+    }
+
+    @Override
+    public void setRightIntakeRoller (double power) {
+        rightIntakeMotor.set(ControlMode.PercentOutput, power);
+    }
+}
@@ -0,0 +1,33 @@
+package frc.robot.subsystems.io;
+
+/**
+ * The hardware interface for the shooter
+ */
+public interface ShooterIO {
+
+    /**
+     * Everything read from the shooter in a single loop
+     */
+    class Inputs {
+        public double flywheelRPM;
+        public double flywheelAppliedVolts;
+        public double flywheelStatorCurrent; // Amps, the leader's
+    }
+
+    /**
+     * Read the sensors into the inputs. Called once per loop.
+     */
+    default void updateInputs (Inputs inputs) {}
+
+    /**
+     * Drive the flywheel open loop. The velocity loop runs on the RIO.
+     */
+    default void setFlywheelVoltage (double volts) {}
+
+    /**
+     * Let the flywheel coast
+     */
+    default void stopFlywheel () {}
+
+    default void setDeflector (boolean deployed) {}
+}
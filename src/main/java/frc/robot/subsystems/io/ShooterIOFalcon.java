@@ -0,0 +1,82 @@
+package frc.robot.subsystems.io;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+import com.ctre.phoenix.motorcontrol.VelocityMeasPeriod;
+import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
+
+import edu.wpi.first.wpilibj.Solenoid;
+import frc.robot.Constants;
+import frc.robot.util.TalonStatusFrames;
+
+import static frc.robot.Constants.Shooter.*;
+import static frc.robot.UnitConversions.Shooter.*;
+
+/**
+ * The shooter's hardware: two Falcon 500s on the flywheel and a solenoid
+ * for the deflector
+ *
+ * <p>
+ * The flywheel is driven with voltage compensated open loop output, and
+ * its velocity loop runs in {@link friarLib2.math.FlywheelController}.
+ * The Falcon's velocity measurement is shortened from its default 100 ms
+ * window, so the controller isn't working from a stale speed.
+ */
+public class ShooterIOFalcon implements ShooterIO {
+
+    // Flywheel motors
+    private final WPI_TalonFX flywheelLeader;
+    private final WPI_TalonFX flywheelFollower;
+
+    private final Solenoid deflectorSolenoid;
+
+    public ShooterIOFalcon () {
+        // Configure the flywheel motors
+        flywheelLeader = new WPI_TalonFX(LEADER_MOTOR_ID);
+        flywheelLeader.configFactoryDefault();
+        flywheelLeader.setNeutralMode(NeutralMode.Coast);
+        flywheelLeader.configVoltageCompSaturation(FLYWHEEL_MAX_VOLTAGE);
+        flywheelLeader.enableVoltageCompensation(true);
+        flywheelLeader.configVelocityMeasurementPeriod(VelocityMeasPeriod.Period_10Ms);
+        flywheelLeader.configVelocityMeasurementWindow(8);
+
+        flywheelFollower = new WPI_TalonFX(FOLLOWER_MOTOR_ID);
+        flywheelFollower.configFactoryDefault();
+        flywheelFollower.setNeutralMode(NeutralMode.Coast);
+        flywheelFollower.configVoltageCompSaturation(FLYWHEEL_MAX_VOLTAGE);
+        flywheelFollower.enableVoltageCompensation(true);
+        flywheelFollower.follow(flywheelLeader);
+        TalonStatusFrames.configFollowerFrames(flywheelFollower);
+
+        flywheelLeader.setInverted(true);
+        flywheelFollower.setInverted(false);
+
+        deflectorSolenoid = new Solenoid(
+            Constants.PCM_CAN_ID,
+            Constants.PCM_TYPE,
+            HOOD_SOLENOID_ID
+        );
+    }
+
+    @Override
+    public void updateInputs (Inputs inputs) {
+        inputs.flywheelRPM = flywheelEncoderTicksPer100msToRPM(flywheelLeader.getSelectedSensorVelocity());
+        inputs.flywheelAppliedVolts = flywheelLeader.getMotorOutputVoltage();
+        inputs.flywheelStatorCurrent = flywheelLeader.getStatorCurrent();
+    }
+
+    @Override
+    public void setFlywheelVoltage (double volts) {
+        flywheelLeader.set(ControlMode.PercentOutput, volts / FLYWHEEL_MAX_VOLTAGE);
+    }
+
+    @Override
+    public void stopFlywheel () {
+        flywheelLeader.stopMotor();
+    }
+
+    @Override
+    public void setDeflector (boolean deployed) {
+        deflectorSolenoid.set(!deployed);
+    }
+}
@@ -0,0 +1,120 @@
+package frc.robot.subsystems.io;
+
+import edu.wpi.first.wpilibj.Timer;
+
+import static frc.robot.Constants.Shooter.*;
+
+/**
+ * A simulated shooter. The flywheel follows the same voltage model the
+ * controller uses (volts = kS + kV * RPM + kA * RPM/second), integrated
+ * in small steps, and coasts down through friction when stopped. The
+ * motor current is the voltage left over after the back EMF across the
+ * winding resistance.
+ *
+ * <p>
+ * The physics can be stepped directly with {@link #simulate(double)}, so
+ * desktop tools can run it without the robot's clock.
+ */
+public class ShooterIOSim implements ShooterIO {
+    private static final double STEP = 0.001; // Seconds
+    private static final double MOTOR_RESISTANCE = 0.046; // Ohms, a Falcon 500's winding (12 V / 257 A stall)
+    private static final double COAST_DRAG = 0.15; // Fraction of kV the bearings and air still drag with when the motors are coasting
+
+    private final double kS;
+    private final double kV;
+    private final double kA;
+
+    private double flywheelRPM = 0;
+    private double volts = 0;
+    private boolean running = false;
+    private double lastTimestamp = Double.NaN;
+
+    /**
+     * A flywheel that matches the model in {@link frc.robot.Constants.Shooter}
+     */
+    public ShooterIOSim () {
+        this(FLYWHEEL_KS, FLYWHEEL_KV, FLYWHEEL_KA);
+    }
+
+    /**
+     * A flywheel with its own characterization, e.g. to check how the
+     * controller copes when its model is off
+     */
+    public ShooterIOSim (double kS, double kV, double kA) {
+        this.kS = kS;
+        this.kV = kV;
+        this.kA = kA;
+    }
+
+    @Override
+    public void updateInputs (Inputs inputs) {
+        double timestamp = Timer.getFPGATimestamp();
+        if (!Double.isNaN(lastTimestamp)) {
+            simulate(timestamp - lastTimestamp);
+        }
+        lastTimestamp = timestamp;
+
+        inputs.flywheelRPM = flywheelRPM;
+        inputs.flywheelAppliedVolts = running ? volts : 0;
+        inputs.flywheelStatorCurrent = getStatorCurrent();
+    }
+
+    /**
+     * Move the flywheel forward in time
+     *
+     * @param dt In seconds
+     */
+    public void simulate (double dt) {
+        while (dt > 1e-9) {
+            double step = Math.min(dt, STEP);
+            double acceleration;
+            if (running) {
+                double friction = flywheelRPM == 0 ? Math.copySign(Math.min(kS, Math.abs(volts)), volts) : Math.copySign(kS, flywheelRPM);
+                acceleration = (volts - friction - kV * flywheelRPM) / kA;
+            } else {
+                // Coasting: friction and drag, without the motors' back EMF
+                double drag = Math.copySign(kS, flywheelRPM) + COAST_DRAG * kV * flywheelRPM;
+                acceleration = -drag / kA;
+                if (Math.abs(acceleration * step) > Math.abs(flywheelRPM)) {
+                    acceleration = -flywheelRPM / step;
+                }
+            }
+            flywheelRPM += acceleration * step;
+            dt -= step;
+        }
+    }
+
+    /**
+     * Take a ball's worth of speed out of the flywheel
+     *
+     * @param rpm How much the ball slows the flywheel
+     */
+    public void shootBall (double rpm) {
+        flywheelRPM -= Math.copySign(Math.min(rpm, Math.abs(flywheelRPM)), flywheelRPM);
+    }
+
+    public double getFlywheelRPM () {
+        return flywheelRPM;
+    }
+
+    /**
+     * @return The current through one motor, in amps
+     */
+    public double getStatorCurrent () {
+        if (!running) {
+            return 0;
+        }
+        return (volts - kV * flywheelRPM) / MOTOR_RESISTANCE;
+    }
+
+    @Override
+    public void setFlywheelVoltage (double volts) {
+        this.volts = volts;
+        running = true;
+    }
+
+    @Override
+    public void stopFlywheel () {
+        running = false;
+    }
+}
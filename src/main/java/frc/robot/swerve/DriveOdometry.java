@@ -0,0 +1,229 @@
+package frc.robot.swerve;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import friarLib2.math.SwerveKinematics;
+
+/**
+ * Dead-reckoning odometry for the drivetrain.
+ *
+ * <p>
+ * Shared by {@link OdometryThread}, {@link frc.robot.tools.LogReplay}
+ * and {@link frc.robot.tools.OdometryBenchmark}, so changes made here can
+ * be tried on logged matches before they go on the robot. Every update
+ * takes an explicit timestamp instead of reading the clock, which keeps
+ * replay deterministic.
+ *
+ * <p>
+ * There are two ways of working out how far the robot moved:
+ * <ul>
+ *   <li>{@link Mode#velocity}: multiply each module's measured velocity by
+ *   the time since the last update. This is what WPILib's
+ *   SwerveDriveOdometry does. The Talon filters its velocity measurement
+ *   over 100 ms, so it lags behind the wheel, and any jitter in the update
+ *   timing becomes position error.</li>
+ *   <li>{@link Mode#positionDelta}: use how far each drive encoder moved
+ *   since the last update. The encoder position is exact, so neither the
+ *   filtering nor the timing matter.</li>
+ * </ul>
+ * Either way, the heading comes from the IMU.
+ *
+ * <p>
+ * The pose is kept as primitives, so updating in position delta mode
+ * doesn't allocate anything. {@link #getPose()} creates a Pose2d for
+ * code that wants one. Velocity mode goes through WPILib's odometry,
+ * which allocates on every update.
+ */
+public class DriveOdometry {
+
+    public enum Mode {
+        velocity,
+        positionDelta
+    }
+
+    private final Mode mode;
+
+    // Velocity mode
+    private final SwerveDriveOdometry odometry;
+    private final SwerveModuleState[] moduleStates;
+
+    // Position delta mode
+    private final SwerveKinematics kinematics;
+    private final double[] lastDistances;
+    private final double[] distanceDeltas;
+    private final double[] displacement = new double[3];
+    private boolean hasLastDistances = false;
+    private double gyroOffsetDegrees;
+
+    // The pose, in either mode
+    private double x = 0;
+    private double y = 0;
+    private double headingRadians = 0;
+
+    /**
+     * @param mode How to work out how far the robot moved
+     * @param moduleLocations The location of each module relative to the center of the robot
+     * @param startingYaw The IMU's current reading
+     */
+    public DriveOdometry (Mode mode, Translation2d[] moduleLocations, Rotation2d startingYaw) {
+        this.mode = mode;
+
+        odometry = new SwerveDriveOdometry(new SwerveDriveKinematics(moduleLocations), startingYaw);
+        moduleStates = new SwerveModuleState[moduleLocations.length];
+        for (int i = 0; i < moduleStates.length; i++) {
+            moduleStates[i] = new SwerveModuleState();
+        }
+
+        kinematics = new SwerveKinematics(moduleLocations);
+        lastDistances = new double[moduleLocations.length];
+        distanceDeltas = new double[moduleLocations.length];
+        gyroOffsetDegrees = -startingYaw.getDegrees();
+    }
+
+    public Mode getMode () {
+        return mode;
+    }
+
+    /**
+     * Update the pose with new sensor readings
+     *
+     * @param timestamp The time the readings were taken in seconds
+     * @param yawDegrees The IMU's reading
+     * @param speeds How fast each module is driving in meters/second, used in velocity mode
+     * @param distances How far each module has rolled in meters, used in position delta mode
+     * @param anglesDegrees The angle of each module
+     */
+    public void update (double timestamp, double yawDegrees, double[] speeds, double[] distances, double[] anglesDegrees) {
+        if (mode == Mode.velocity) {
+            for (int i = 0; i < moduleStates.length; i++) {
+                moduleStates[i].speedMetersPerSecond = speeds[i];
+                moduleStates[i].angle = Rotation2d.fromDegrees(anglesDegrees[i]);
+            }
+            Pose2d pose = odometry.updateWithTime(timestamp, Rotation2d.fromDegrees(yawDegrees), moduleStates);
+            x = pose.getX();
+            y = pose.getY();
+            headingRadians = pose.getRotation().getRadians();
+            return;
+        }
+
+        double newHeading = Math.toRadians(yawDegrees + gyroOffsetDegrees);
+
+        // The encoders keep counting through resets, so only the first
+        // update ever has nothing to compare against
+        if (!hasLastDistances) {
+            System.arraycopy(distances, 0, lastDistances, 0, distances.length);
+            hasLastDistances = true;
+            headingRadians = newHeading;
+            return;
+        }
+
+        for (int i = 0; i < distances.length; i++) {
+            distanceDeltas[i] = distances[i] - lastDistances[i];
+            lastDistances[i] = distances[i];
+        }
+        kinematics.toRobotDisplacement(distanceDeltas, anglesDegrees, displacement);
+
+        // Integrate along an arc, like Pose2d.exp(), but with the IMU's
+        // heading change instead of the modules'
+        double dx = displacement[0];
+        double dy = displacement[1];
+        double dTheta = MathUtil.angleModulus(newHeading - headingRadians);
+        double s;
+        double c;
+        if (Math.abs(dTheta) < 1e-9) {
+            s = 1 - dTheta * dTheta / 6;
+            c = dTheta / 2;
+        } else {
+            s = Math.sin(dTheta) / dTheta;
+            c = (1 - Math.cos(dTheta)) / dTheta;
+        }
+        double forward = dx * s - dy * c;
+        double left = dx * c + dy * s;
+
+        double cos = Math.cos(headingRadians);
+        double sin = Math.sin(headingRadians);
+        x += forward * cos - left * sin;
+        y += forward * sin + left * cos;
+        headingRadians = newHeading;
+    }
+
+    /**
+     * Set the pose. The IMU should be tared to the new pose's rotation at the same time.
+     */
+    public void reset (Pose2d newPose) {
+        // WPILib wants the gyro's reading at the reset, which is the new
+        // rotation once the IMU is tared. Passing zero, as this used to,
+        // counted the new rotation twice in every later velocity-mode heading.
+        odometry.resetPosition(newPose, newPose.getRotation());
+
+        x = newPose.getX();
+        y = newPose.getY();
+        headingRadians = newPose.getRotation().getRadians();
+        gyroOffsetDegrees = 0;
+    }
+
+    /**
+     * Pick up from a known pose instead of integrating these readings, so
+     * later updates carry on exactly as they did when the pose was logged.
+     * For replaying a log that starts partway through.
+     *
+     * @param timestamp The time the readings were taken in seconds
+     * @param yawDegrees The IMU's reading
+     * @param distances How far each module has rolled in meters
+     * @param x The pose after these readings, in meters
+     * @param y In meters
+     * @param headingRadians The heading after these readings
+     */
+    public void resync (double timestamp, double yawDegrees, double[] distances, double x, double y, double headingRadians) {
+        this.x = x;
+        this.y = y;
+        this.headingRadians = headingRadians;
+
+        if (mode == Mode.velocity) {
+            // Stand still for a zero length update, so the next one measures its time from here
+            odometry.resetPosition(new Pose2d(x, y, new Rotation2d(headingRadians)), Rotation2d.fromDegrees(yawDegrees));
+            for (SwerveModuleState state : moduleStates) {
+                state.speedMetersPerSecond = 0;
+            }
+            odometry.updateWithTime(timestamp, Rotation2d.fromDegrees(yawDegrees), moduleStates);
+            return;
+        }
+
+        System.arraycopy(distances, 0, lastDistances, 0, distances.length);
+        hasLastDistances = true;
+        gyroOffsetDegrees = Math.toDegrees(headingRadians) - yawDegrees;
+    }
+
+    /**
+     * @return The pose as of the last update, as a new Pose2d
+     */
+    public Pose2d getPose () {
+        return new Pose2d(x, y, new Rotation2d(headingRadians));
+    }
+
+    /**
+     * @return In meters
+     */
+    public double getX () {
+        return x;
+    }
+
+    /**
+     * @return In meters
+     */
+    public double getY () {
+        return y;
+    }
+
+    /**
+     * @return Counterclockwise from the field's x axis
+     */
+    public double getHeadingRadians () {
+        return headingRadians;
+    }
+}
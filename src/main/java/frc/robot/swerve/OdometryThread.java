@@ -0,0 +1,221 @@
+package frc.robot.swerve;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants;
+import frc.robot.IMU;
+import frc.robot.Log;
+import friarLib2.logging.DataLogger;
+import friarLib2.math.PoseHistory;
+
+/**
+ * Runs the drivetrain odometry on its own thread, much faster than the
+ * 50 Hz main loop, so the pose doesn't fall behind when the robot is
+ * moving quickly.
+ *
+ * <p>
+ * Every tick reads the drive and steering Falcons and the IMU into inputs
+ * owned by this thread, then integrates them with {@link DriveOdometry},
+ * in the mode set by {@link frc.robot.Constants.Drive#ODOMETRY_MODE}.
+ * This thread is the only one that touches the odometry.
+ *
+ * <p>
+ * Every pose goes into a {@link PoseHistory}, so code working with
+ * measurements from the past can find out where the robot was at the
+ * time. The history's newest pose is also the published pose: it is
+ * stored as primitives behind the history's seqlock, so a tick doesn't
+ * allocate anything, and {@link #getPose(double[])} can be called from any
+ * thread without locking or allocating.
+ *
+ * <p>
+ * Resets are handed to the thread and applied at the start of its next
+ * tick. Until then, {@link #getPose(double[])} returns the pose being reset to.
+ */
+public class OdometryThread {
+
+    private final Notifier notifier;
+
+    private final SwerveModuleIO[] moduleIOs;
+    private final SwerveModuleIO.Inputs[] moduleInputs;
+    private final double[] moduleSpeeds;
+    private final double[] moduleDistances;
+    private final double[] moduleAngles;
+    private final DriveOdometry odometry;
+
+    private volatile double poseTimestamp = 0;
+    private volatile long updateCount = 0;
+    private final AtomicReference<Pose2d> pendingReset = new AtomicReference<>();
+    private final PoseHistory history = new PoseHistory((int) Math.ceil(Constants.Drive.POSE_HISTORY_LENGTH / Constants.Drive.ODOMETRY_PERIOD));
+
+    // Everything LogReplay needs to rerun the odometry, logged from this thread
+    private final DataLogger.Channel startingYawLog = Log.odometryLogger.addChannel("Odometry starting yaw");
+    private final DataLogger.Channel timestampLog = Log.odometryLogger.addChannel("Odometry timestamp");
+    private final DataLogger.Channel yawLog = Log.odometryLogger.addChannel("IMU yaw");
+    private final DataLogger.Channel poseXLog = Log.odometryLogger.addChannel("Robot pose x");
+    private final DataLogger.Channel poseYLog = Log.odometryLogger.addChannel("Robot pose y");
+    private final DataLogger.Channel poseThetaLog = Log.odometryLogger.addChannel("Robot pose theta");
+    private final DataLogger.Channel resetXLog = Log.odometryLogger.addChannel("Odometry reset x");
+    private final DataLogger.Channel resetYLog = Log.odometryLogger.addChannel("Odometry reset y");
+    private final DataLogger.Channel resetThetaLog = Log.odometryLogger.addChannel("Odometry reset theta");
+    private final DataLogger.Channel syncLog = Log.odometryLogger.addChannel("Odometry sync");
+    private final DataLogger.Channel[] moduleSpeedLogs;
+    private final DataLogger.Channel[] moduleAngleLogs;
+    private final DataLogger.Channel[] moduleDistanceLogs;
+
+    /**
+     * @param moduleIOs The hardware for each module, in the same order as
+     *     {@link frc.robot.Constants.Drive#MODULE_TRANSLATIONS}
+     */
+    public OdometryThread (SwerveModuleIO... moduleIOs) {
+        this.moduleIOs = moduleIOs;
+        moduleInputs = new SwerveModuleIO.Inputs[moduleIOs.length];
+        moduleSpeeds = new double[moduleIOs.length];
+        moduleDistances = new double[moduleIOs.length];
+        moduleAngles = new double[moduleIOs.length];
+        moduleSpeedLogs = new DataLogger.Channel[moduleIOs.length];
+        moduleAngleLogs = new DataLogger.Channel[moduleIOs.length];
+        moduleDistanceLogs = new DataLogger.Channel[moduleIOs.length];
+        for (int i = 0; i < moduleIOs.length; i++) {
+            moduleInputs[i] = new SwerveModuleIO.Inputs();
+            moduleSpeedLogs[i] = Log.odometryLogger.addChannel(Constants.Drive.MODULE_NAMES[i] + " module speed");
+            moduleAngleLogs[i] = Log.odometryLogger.addChannel(Constants.Drive.MODULE_NAMES[i] + " module angle");
+            moduleDistanceLogs[i] = Log.odometryLogger.addChannel(Constants.Drive.MODULE_NAMES[i] + " module distance");
+        }
+
+        Rotation2d startingYaw = Rotation2d.fromDegrees(IMU.readYawDegrees());
+        odometry = new DriveOdometry(Constants.Drive.ODOMETRY_MODE, Constants.Drive.MODULE_TRANSLATIONS, startingYaw);
+        startingYawLog.log(startingYaw.getDegrees());
+
+        notifier = new Notifier(this::update);
+        notifier.setName("Odometry");
+    }
+
+    /**
+     * Start updating the odometry every {@link frc.robot.Constants.Drive#ODOMETRY_PERIOD} seconds
+     */
+    public void start () {
+        notifier.startPeriodic(Constants.Drive.ODOMETRY_PERIOD);
+    }
+
+    public void stop () {
+        notifier.stop();
+    }
+
+    /**
+     * Read the sensors and integrate them into the pose. Only ever runs on the odometry thread.
+     */
+    private void update () {
+        // Replay starts again from this tick's logged pose in a new file or after a pause
+        if (Log.odometryLogger.beginLoop()) {
+            syncLog.log(1);
+        }
+
+        Pose2d reset = pendingReset.get();
+        if (reset != null) {
+            odometry.reset(reset);
+            history.clear(); // The old poses don't line up with the new ones
+            history.add(Timer.getFPGATimestamp(), odometry.getX(), odometry.getY(), odometry.getHeadingRadians());
+            pendingReset.compareAndSet(reset, null); // Don't lose a reset requested while this one was applied
+
+            resetXLog.log(reset.getX());
+            resetYLog.log(reset.getY());
+            resetThetaLog.log(reset.getRotation().getDegrees());
+        }
+
+        for (int i = 0; i < moduleIOs.length; i++) {
+            moduleIOs[i].updateInputs(moduleInputs[i]);
+            moduleSpeeds[i] = moduleInputs[i].driveVelocityMetersPerSecond;
+            moduleDistances[i] = moduleInputs[i].drivePositionMeters;
+            moduleAngles[i] = moduleInputs[i].steeringDegreesFalcon;
+        }
+        double yawDegrees = IMU.readYawDegrees();
+        double timestamp = Timer.getFPGATimestamp();
+
+        odometry.update(timestamp, yawDegrees, moduleSpeeds, moduleDistances, moduleAngles);
+        double x = odometry.getX();
+        double y = odometry.getY();
+        double theta = odometry.getHeadingRadians();
+
+        // Publish the pose before anything else reads the clock or the disk
+        history.add(timestamp, x, y, theta);
+        poseTimestamp = timestamp;
+        updateCount++;
+
+        timestampLog.log(timestamp);
+        yawLog.log(yawDegrees);
+        for (int i = 0; i < moduleIOs.length; i++) {
+            moduleSpeedLogs[i].log(moduleSpeeds[i]);
+            moduleDistanceLogs[i].log(moduleDistances[i]);
+            moduleAngleLogs[i].log(moduleAngles[i]);
+        }
+        poseXLog.log(x);
+        poseYLog.log(y);
+        poseThetaLog.log(Math.toDegrees(theta));
+    }
+
+    /**
+     * Set the pose. The IMU should be tared to the new pose's rotation at the same time.
+     *
+     * <p>
+     * Safe to call from any thread. The odometry thread applies the reset
+     * at the start of its next tick.
+     */
+    public void reset (Pose2d newPose) {
+        pendingReset.set(newPose);
+    }
+
+    /**
+     * Get the latest pose. Safe to call from any thread, never blocks and
+     * doesn't allocate anything.
+     *
+     * @param pose Filled with the x and y in meters and the heading in radians
+     */
+    public void getPose (double[] pose) {
+        Pose2d reset = pendingReset.get();
+        if (reset != null) {
+            pose[0] = reset.getX();
+            pose[1] = reset.getY();
+            pose[2] = reset.getRotation().getRadians();
+        } else if (!history.getLatestPose(pose)) {
+            // Nothing has been measured yet
+            pose[0] = 0;
+            pose[1] = 0;
+            pose[2] = 0;
+        }
+    }
+
+    /**
+     * The same as {@link #getPose(double[])}, but creates a Pose2d
+     */
+    public Pose2d getPose () {
+        double[] pose = new double[3];
+        getPose(pose);
+        return new Pose2d(pose[0], pose[1], new Rotation2d(pose[2]));
+    }
+
+    /**
+     * The poses from the last {@link frc.robot.Constants.Drive#POSE_HISTORY_LENGTH}
+     * seconds, since the last reset. Safe to read from any thread.
+     */
+    public PoseHistory getHistory () {
+        return history;
+    }
+
+    /**
+     * @return The FPGA time in seconds that the latest pose was measured at
+     */
+    public double getPoseTimestamp () {
+        return poseTimestamp;
+    }
+
+    /**
+     * @return How many times the odometry has been updated, to check that the thread is keeping up
+     */
+    public long getUpdateCount () {
+        return updateCount;
+    }
+}
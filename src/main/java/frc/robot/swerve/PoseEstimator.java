@@ -0,0 +1,140 @@
+package frc.robot.swerve;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import frc.robot.Constants;
+import frc.robot.util.Targeting;
+import friarLib2.math.PoseHistory;
+
+/**
+ * Corrects the odometry's drift with vision fixes on the hub, taking into
+ * account how old each camera frame is.
+ *
+ * <p>
+ * A camera frame shows where the robot was when it was captured, not
+ * where it is now. Each fix is compared against the odometry pose from
+ * the {@link PoseHistory} at the frame's capture time, and part of the
+ * difference is added to a field offset. The offset is applied on top of
+ * the current odometry pose, which is the same as rewinding to the
+ * capture time, correcting the pose there and replaying the odometry
+ * forward, since the odometry's movement since then is unchanged.
+ *
+ * <p>
+ * Only the position is corrected. The heading comes from the IMU, which
+ * is far more accurate than anything a single hub fix can tell us. That
+ * also means the heading must be field relative (the odometry has been
+ * reset to a field pose, or the robot was turned on facing away from the
+ * blue driver station) for the fixes to make sense.
+ *
+ * <p>
+ * Runs on the main thread, reading the history the odometry thread writes.
+ */
+public class PoseEstimator {
+
+    private final PoseHistory history;
+
+    private final double[] pastPose = new double[3];
+    private final double[] visionPosition = new double[2];
+
+    private double offsetX = 0;
+    private double offsetY = 0;
+    private boolean hasFix = false;
+    private double resetTimestamp = Double.NEGATIVE_INFINITY;
+
+    private int acceptedCount = 0;
+    private int rejectedCount = 0;
+
+    /**
+     * @param history The odometry's pose history
+     */
+    public PoseEstimator (PoseHistory history) {
+        this.history = history;
+    }
+
+    /**
+     * Correct the estimate with a sighting of the hub
+     *
+     * <p>
+     * Until the first fix (or reset), the estimate jumps straight to
+     * the fix. After that, fixes too far from the estimate are ignored.
+     *
+     * @param timestamp The FPGA time in seconds the frame was captured at
+     * @param metersFromTarget The distance to the vision tape
+     * @param targetYaw The angle between the camera's crosshair and the target in degrees, right is positive
+     * @return If the fix was used
+     */
+    public boolean addVisionMeasurement (double timestamp, double metersFromTarget, double targetYaw) {
+        // Frames from before a reset, or older than the history, can't be lined up with the odometry
+        if (timestamp <= resetTimestamp || !(timestamp >= history.getOldestTimestamp()) || !history.getPose(timestamp, pastPose)) {
+            rejectedCount++;
+            return false;
+        }
+
+        Targeting.calculateRobotPosition(metersFromTarget, targetYaw, pastPose[2], visionPosition);
+        double errorX = visionPosition[0] - (pastPose[0] + offsetX);
+        double errorY = visionPosition[1] - (pastPose[1] + offsetY);
+
+        if (!hasFix) {
+            offsetX += errorX;
+            offsetY += errorY;
+            hasFix = true;
+        } else if (Math.hypot(errorX, errorY) <= Constants.Drive.MAX_VISION_CORRECTION) {
+            offsetX += errorX * Constants.Drive.VISION_CORRECTION_GAIN;
+            offsetY += errorY * Constants.Drive.VISION_CORRECTION_GAIN;
+        } else {
+            rejectedCount++;
+            return false;
+        }
+
+        acceptedCount++;
+        return true;
+    }
+
+    /**
+     * Throw away the correction because the odometry was just reset to a
+     * known field pose
+     *
+     * @param timestamp The FPGA time in seconds of the reset. Frames
+     *     captured before then are ignored.
+     */
+    public void reset (double timestamp) {
+        offsetX = 0;
+        offsetY = 0;
+        hasFix = true;
+        resetTimestamp = timestamp;
+    }
+
+    /**
+     * @param odometryPose The current odometry pose
+     * @return The odometry pose with the vision correction applied
+     */
+    public Pose2d getEstimatedPose (Pose2d odometryPose) {
+        return new Pose2d(odometryPose.getX() + offsetX, odometryPose.getY() + offsetY, odometryPose.getRotation());
+    }
+
+    /**
+     * The same as {@link #getEstimatedPose(Pose2d)}, but corrects the pose
+     * in place instead of creating one
+     *
+     * @param pose The odometry's x and y in meters and heading in radians, corrected in place
+     */
+    public void correct (double[] pose) {
+        pose[0] += offsetX;
+        pose[1] += offsetY;
+    }
+
+    public double getOffsetX () {
+        return offsetX;
+    }
+
+    public double getOffsetY () {
+        return offsetY;
+    }
+
+    public int getAcceptedCount () {
+        return acceptedCount;
+    }
+
+    public int getRejectedCount () {
+        return rejectedCount;
+    }
+}
@@ -1,17 +1,13 @@
 package frc.robot.swerve;
 
-import com.ctre.phoenix.motorcontrol.ControlMode;
-import com.ctre.phoenix.motorcontrol.NeutralMode;
 import com.ctre.phoenix.motorcontrol.SupplyCurrentLimitConfiguration;
-import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
-import com.ctre.phoenix.sensors.AbsoluteSensorRange;
-import com.ctre.phoenix.sensors.CANCoder;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.math.util.Units;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import friarLib2.hardware.SwerveModule;
 import friarLib2.math.CTREModuleState;
+import friarLib2.telemetry.Telemetry;
+import friarLib2.telemetry.TelemetryLevel;
 import friarLib2.utility.PIDParameters;
 
 /**
@@ -30,13 +26,9 @@ import friarLib2.utility.PIDParameters;
  * the belts have slipped and can alert the operators accordingly.
  * 
  * <p>
- * To zero the module, we use the CANCoder's absolute positioning to set
- * the Falcon encoder's value. The CANCoder's absolute reading when the 
- * module is facing zero degrees is stored in the encoder's "custom slot" at
- * index zero. Since that slot only stores a 32 bit integer, the actual value
- * we store there is the magnet offest multiplied by 100. Such multiplication
- * allows us to gain two decimal places of precision (which is plenty for this
- * task) from that integer slot.
+ * The hardware is accessed through a {@link SwerveModuleIO}, which is
+ * read once per loop by {@link #updateInputs()}. Everything else works
+ * off of that snapshot.
  */
 public class SwerveModule3309 implements SwerveModule {
     /********** Constants **********/
@@ -59,77 +51,31 @@ public class SwerveModule3309 implements SwerveModule {
 
     /********** Member Variables **********/
     public String name; // Used for displaying values on SmartDashboard
-    private final WPI_TalonFX driveMotor;
-    private final WPI_TalonFX steeringMotor;
-    private final CANCoder steeringEncoder;
-
-    /** 
-     * How many degrees the steering axis must be at (relative to its zeroed
-     * position) to be facing forward on the robot. Modules on different
-     * corners of a drivetrain will have different offsets
-     */
-    private final double steeringOffset;
+    private final SwerveModuleIO io;
+    private final SwerveModuleIO.Inputs inputs = new SwerveModuleIO.Inputs();
 
     private double lastAngle = 0.0;
 
     /**
      * Construct a new swerve module
      * 
-     * @param steeringOffset How many degrees the steering axis must be at 
-     *     (relative to its zeroed position) to be facing forward on the robot.
-     *     Modules on different corners of a drivetrain will have different 
-     *     offsets
-     * @param driveMotorID CAN ID for the module's drive motor
-     * @param steeringMotorID CAN ID for the module's steering motor
-     * @param encoderID CAN ID for the module's CANCoder
+     * @param io The module's hardware
      * @param name The module's name (used when outputting to SmartDashboard)
      */
-    public SwerveModule3309 (double steeringOffset, int driveMotorID, int steeringMotorID, int encoderID, String name) {
+    public SwerveModule3309 (SwerveModuleIO io, String name) {
         this.name = name;
-        driveMotor = new WPI_TalonFX(driveMotorID);
-        steeringMotor = new WPI_TalonFX(steeringMotorID);
-        configMotors();
-
-        this.steeringOffset = steeringOffset;
+        this.io = io;
+        updateInputs();
 
-        // Initialize the encoder
-        // DO NOT configure the factory defaults. Doing so will reset the manually tuned
-        // magnet offsets stored in the encoder's "custom slot"
-        steeringEncoder = new CANCoder(encoderID);
-        steeringEncoder.configAbsoluteSensorRange(AbsoluteSensorRange.Unsigned_0_to_360);
-        steeringEncoder.configMagnetOffset(0);
-
-        zeroSteering();
+        registerTelemetry();
     }
 
     /**
-     * Constructs a new swerve module
-     * 
-     * @param steeringOffset How many degrees the steering axis must be at 
-     *     (relative to its zeroed position) to be facing forward on the robot.
-     *     Modules on different corners of a drivetrain will have different 
-     *     offsets
-     * @param IDs The collection of CAN ID's for the module
-     * @param name The module's name (used when outputting to SmartDashboard)
+     * Read the module's sensors. Called once per loop.
      */
-    public SwerveModule3309 (double steeringOffset, SwerveCANIDs IDs, String name) {
-        this(steeringOffset, IDs.driveMotorID, IDs.steeringMotorID, IDs.CANCoderID, name);
-    }
-
-    /**
-     * Sets the motor PID values to those which will make the robot move the way we want.
-     */
-    public void configMotors () {
-        driveMotor.configFactoryDefault();
-        DRIVE_PID_GAINS.configureMotorPID(driveMotor);
-        driveMotor.config_IntegralZone(0, 500);
-        driveMotor.setNeutralMode(NeutralMode.Brake);
-        driveMotor.configSupplyCurrentLimit(DRIVE_MOTOR_CURRENT_LIMIT);
-
-        steeringMotor.configFactoryDefault();
-        STEERING_PID_GAINS.configureMotorPID(steeringMotor);
-        steeringMotor.config_IntegralZone(0, 500);
-        steeringMotor.setNeutralMode(NeutralMode.Brake);
+    @Override
+    public void updateInputs () {
+        io.updateInputs(inputs);
     }
 
     /**
@@ -138,14 +84,23 @@ public class SwerveModule3309 implements SwerveModule {
      * @param state The new target state for the module
      */
     public void setState (SwerveModuleState state) {
-        
-        state = CTREModuleState.optimize(state, getState().angle);
+        state = CTREModuleState.optimize(state, Rotation2d.fromDegrees(inputs.steeringDegreesFalcon));
+
+        setOptimizedState(state.speedMetersPerSecond, state.angle.getDegrees());
+    }
 
-        double velocity = Conversions.mpsToEncoderTicksPer100ms(state.speedMetersPerSecond);
-        driveMotor.set(ControlMode.Velocity, velocity);
+    /**
+     * Set the state of the module without creating any objects
+     *
+     * @param speedMetersPerSecond The target speed of the wheel
+     * @param angleDegrees The target angle of the module, already optimized
+     */
+    @Override
+    public void setOptimizedState (double speedMetersPerSecond, double angleDegrees) {
+        io.setDriveVelocity(speedMetersPerSecond);
 
-        double angle = (Math.abs(state.speedMetersPerSecond) <= (ABSOLUTE_MAX_DRIVE_SPEED * 0.01)) ? lastAngle : state.angle.getDegrees(); // Prevent rotating module if speed is less than 1%. Prevents Jittering.
-        steeringMotor.set(ControlMode.Position, Conversions.degreesToEncoderTicksFalcon(angle)); 
+        double angle = (Math.abs(speedMetersPerSecond) <= (ABSOLUTE_MAX_DRIVE_SPEED * 0.01)) ? lastAngle : angleDegrees; // Prevent rotating module if speed is less than 1%. Prevents Jittering.
+        io.setSteeringAngle(angle);
         lastAngle = angle;
     }
 
@@ -156,19 +111,29 @@ public class SwerveModule3309 implements SwerveModule {
      */
     public SwerveModuleState getState () {
         return new SwerveModuleState(
-            Conversions.encoderTicksPer100msToMps(driveMotor.getSelectedSensorVelocity()), 
-            Rotation2d.fromDegrees(getSteeringDegreesFromFalcon())
+            inputs.driveVelocityMetersPerSecond, 
+            Rotation2d.fromDegrees(inputs.steeringDegreesFalcon)
         );
     }
 
+    @Override
+    public double getSpeedMetersPerSecond () {
+        return inputs.driveVelocityMetersPerSecond;
+    }
+
+    @Override
+    public double getAngleDegrees () {
+        return inputs.steeringDegreesFalcon;
+    }
+
     /**
      * @return If the belts for the steering axis have slipped
      */
     @Override
     public boolean steeringHasSlipped () {
         return Math.abs(
-            getSteeringDegreesFromFalcon() -
-            getSteeringDegreesFromEncoder()
+            inputs.steeringDegreesFalcon -
+            inputs.steeringDegreesEncoder
             ) >= SLIP_THRESHOLD;
     }
 
@@ -178,60 +143,20 @@ public class SwerveModule3309 implements SwerveModule {
      */
     @Override
     public void zeroSteering () {
-        double encoderOffset = getMagnetOffsetFromCANCoderSlot() + steeringOffset;
-
-        double absolutePosition = steeringEncoder.getAbsolutePosition() - encoderOffset;
-        double absolutePositionFalcon = Conversions.degreesToEncoderTicksFalcon(absolutePosition);
-        double absolutePositionEncoder = Conversions.degreesToEncoderTicksCANCoder(absolutePosition);
-        steeringMotor.setSelectedSensorPosition(absolutePositionFalcon);
-        steeringEncoder.setPosition(absolutePositionEncoder);
+        io.zeroSteering();
     }
 
     /**
-     * Gets the value stored in the CANCoder's custom paramter slot zero,
-     * divided by 100.
-     * 
-     * <p>
-     * That slot, if configured correctly, should contain the absolute encoder
-     * reading when the swerve module's steering axis is at zero degrees, 
-     * multiplied by 100.
-     * 
-     * <p>
-     * To configure it correctly, open OutlineViewer and, under the 
-     * "SmartDahsboard" table, there should be a numeric field called 
-     * "{module name} CANCoder absolute value". With the robot disabled, move
-     * the steering axis of the module to be at the zero degrees position, then
-     * note the dashboard value at that position. Finally, use Phoenix Tuner to
-     * set the "Custom Param 0" field on the appropriate encoder (under the 
-     * "Config" tab) to that dashboard value multiplied by 100.
+     * Register the module's dashboard values. The keys are built once
+     * here instead of every loop.
      */
-    private double getMagnetOffsetFromCANCoderSlot () {
-        //TODO: Do we need this 2 second timeout?
-        return steeringEncoder.configGetCustomParam(0, 2000) / 100.0;
-    }
-
-    /**
-     * @return The position of the steering axis according to the Falcon's encoder
-     */
-    private double getSteeringDegreesFromFalcon () {
-        return Conversions.encoderTicksToDegreesFalcon(steeringMotor.getSelectedSensorPosition());
-    }
-
-    /**
-     * @return The position of the steering axis according to the CANCoder
-     */
-    private double getSteeringDegreesFromEncoder () {
-        return Conversions.encoderTicksToDegreesCANCoder(steeringEncoder.getPosition());
-    }
-
-    @Override
-    public void outputToDashboard () {
-        SmartDashboard.putNumber(name + " CANCoder absolute value", steeringEncoder.getAbsolutePosition());
-        SmartDashboard.putNumber(name + " CANCoder raw value", steeringEncoder.getPosition());
-        SmartDashboard.putNumber(name + " CANCoder degrees", getSteeringDegreesFromEncoder());
-        SmartDashboard.putNumber(name + " Falcon degrees", getSteeringDegreesFromFalcon());
-        SmartDashboard.putNumber(name + " Falcon raw value", steeringMotor.getSelectedSensorPosition());
-        SmartDashboard.putBoolean(name + " has slipped", steeringHasSlipped());
+    private void registerTelemetry () {
+        Telemetry.addNumber(name + " CANCoder absolute value", TelemetryLevel.debug, 10, () -> inputs.encoderAbsoluteDegrees);
+        Telemetry.addNumber(name + " CANCoder raw value", TelemetryLevel.debug, 10, () -> Conversions.degreesToEncoderTicksCANCoder(inputs.steeringDegreesEncoder));
+        Telemetry.addNumber(name + " CANCoder degrees", TelemetryLevel.debug, 5, () -> inputs.steeringDegreesEncoder);
+        Telemetry.addNumber(name + " Falcon degrees", TelemetryLevel.debug, 5, () -> inputs.steeringDegreesFalcon);
+        Telemetry.addNumber(name + " Falcon raw value", TelemetryLevel.debug, 10, () -> Conversions.degreesToEncoderTicksFalcon(inputs.steeringDegreesFalcon));
+        Telemetry.addBoolean(name + " has slipped", TelemetryLevel.competition, 25, this::steeringHasSlipped);
     }
 
     /**
@@ -247,6 +172,15 @@ public class SwerveModule3309 implements SwerveModule {
             return encoderTicksPer100ms / mpsToEncoderTicksPer100ms(1);
         }
 
+        public static double metersToEncoderTicks (double meters) {
+            double wheelDiameterMeters = Units.inchesToMeters(WHEEL_DIAMETER_INCHES);
+            return meters * (1.0/(wheelDiameterMeters * Math.PI)) * DRIVE_GEAR_RATIO * (2048.0/1.0);
+        }
+
+        public static double encoderTicksToMeters (double encoderTicks) {
+            return encoderTicks / metersToEncoderTicks(1);
+        }
+
         public static double degreesToEncoderTicksFalcon (double degrees) {
             return degrees * (2048.0 / 360.0) * STEERING_GEAR_RATIO_FALCON;
         }
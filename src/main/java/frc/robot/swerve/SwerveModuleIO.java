@@ -0,0 +1,42 @@
+package frc.robot.swerve;
+
+/**
+ * The hardware interface for a single swerve module
+ */
+public interface SwerveModuleIO {
+
+    /**
+     * Everything read from the module in a single loop
+     */
+    class Inputs {
+        public double driveVelocityMetersPerSecond;
+        public double drivePositionMeters; // How far the wheel has rolled since the robot turned on
+        public double steeringDegreesFalcon; // From the steering motor's integrated encoder
+        public double steeringDegreesEncoder; // From the CANCoder
+        public double encoderAbsoluteDegrees; // The CANCoder's raw absolute position, used to tune the magnet offset
+    }
+
+    /**
+     * Read the sensors into the inputs. Called once per loop by the
+     * module, and also by the odometry thread with its own inputs, so
+     * implementations must be safe to call from both threads.
+     */
+    default void updateInputs (Inputs inputs) {}
+
+    /**
+     * Run the drive motor's velocity loop
+     */
+    default void setDriveVelocity (double metersPerSecond) {}
+
+    /**
+     * Run the steering motor's position loop
+     *
+     * @param degrees Relative to the module's zero, not wrapped
+     */
+    default void setSteeringAngle (double degrees) {}
+
+    /**
+     * Use the absolute encoder to reset the steering motor's encoder
+     */
+    default void zeroSteering () {}
+}
@@ -0,0 +1,137 @@
+package frc.robot.swerve;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
+import com.ctre.phoenix.sensors.AbsoluteSensorRange;
+import com.ctre.phoenix.sensors.CANCoder;
+import frc.robot.Constants;
+import frc.robot.util.TalonStatusFrames;
+
+import static frc.robot.swerve.SwerveModule3309.*;
+
+/**
+ * The hardware for the 2022 swerve module: a Falcon 500 for driving, a
+ * Falcon 500 for steering and a CANCoder on the steering axis.
+ *
+ * <p>
+ * To zero the module, we use the CANCoder's absolute positioning to set
+ * the Falcon encoder's value. The CANCoder's absolute reading when the
+ * module is facing zero degrees is stored in the encoder's "custom slot" at
+ * index zero. Since that slot only stores a 32 bit integer, the actual value
+ * we store there is the magnet offest multiplied by 100. Such multiplication
+ * allows us to gain two decimal places of precision (which is plenty for this
+ * task) from that integer slot.
+ */
+public class SwerveModuleIOFalcon implements SwerveModuleIO {
+
+    private final WPI_TalonFX driveMotor;
+    private final WPI_TalonFX steeringMotor;
+    private final CANCoder steeringEncoder;
+
+    /**
+     * How many degrees the steering axis must be at (relative to its zeroed
+     * position) to be facing forward on the robot. Modules on different
+     * corners of a drivetrain will have different offsets
+     */
+    private final double steeringOffset;
+
+    /**
+     * @param steeringOffset How many degrees the steering axis must be at
+     *     (relative to its zeroed position) to be facing forward on the robot.
+     *     Modules on different corners of a drivetrain will have different
+     *     offsets
+     * @param IDs The collection of CAN ID's for the module
+     */
+    public SwerveModuleIOFalcon (double steeringOffset, SwerveCANIDs IDs) {
+        driveMotor = new WPI_TalonFX(IDs.driveMotorID);
+        steeringMotor = new WPI_TalonFX(IDs.steeringMotorID);
+        configMotors();
+
+        this.steeringOffset = steeringOffset;
+
+        // Initialize the encoder
+        // DO NOT configure the factory defaults. Doing so will reset the manually tuned
+        // magnet offsets stored in the encoder's "custom slot"
+        steeringEncoder = new CANCoder(IDs.CANCoderID);
+        steeringEncoder.configAbsoluteSensorRange(AbsoluteSensorRange.Unsigned_0_to_360);
+        steeringEncoder.configMagnetOffset(0);
+
+        zeroSteering();
+    }
+
+    /**
+     * Sets the motor PID values to those which will make the robot move the way we want.
+     */
+    private void configMotors () {
+        driveMotor.configFactoryDefault();
+        DRIVE_PID_GAINS.configureMotorPID(driveMotor);
+        driveMotor.config_IntegralZone(0, 500);
+        driveMotor.setNeutralMode(NeutralMode.Brake);
+        driveMotor.configSupplyCurrentLimit(DRIVE_MOTOR_CURRENT_LIMIT);
+        TalonStatusFrames.configOdometryFrames(driveMotor, Constants.Drive.ODOMETRY_STATUS_FRAME_PERIOD);
+
+        steeringMotor.configFactoryDefault();
+        STEERING_PID_GAINS.configureMotorPID(steeringMotor);
+        steeringMotor.config_IntegralZone(0, 500);
+        steeringMotor.setNeutralMode(NeutralMode.Brake);
+        TalonStatusFrames.configOdometryFrames(steeringMotor, Constants.Drive.ODOMETRY_STATUS_FRAME_PERIOD);
+    }
+
+    @Override
+    public void updateInputs (Inputs inputs) {
+        inputs.driveVelocityMetersPerSecond = Conversions.encoderTicksPer100msToMps(driveMotor.getSelectedSensorVelocity());
+        inputs.drivePositionMeters = Conversions.encoderTicksToMeters(driveMotor.getSelectedSensorPosition());
+        inputs.steeringDegreesFalcon = Conversions.encoderTicksToDegreesFalcon(steeringMotor.getSelectedSensorPosition());
+        inputs.steeringDegreesEncoder = Conversions.encoderTicksToDegreesCANCoder(steeringEncoder.getPosition());
+        inputs.encoderAbsoluteDegrees = steeringEncoder.getAbsolutePosition();
+    }
+
+    @Override
+    public void setDriveVelocity (double metersPerSecond) {
+        driveMotor.set(ControlMode.Velocity, Conversions.mpsToEncoderTicksPer100ms(metersPerSecond));
+    }
+
+    @Override
+    public void setSteeringAngle (double degrees) {
+        steeringMotor.set(ControlMode.Position, Conversions.degreesToEncoderTicksFalcon(degrees));
+    }
+
+    /**
+     * Use the CANCoder (whoose belt will not slip under normal circumstances)
+     * to reset the steering Falcon's intgrated encoder.
+     */
+    @Override
+    public void zeroSteering () {
+        double encoderOffset = getMagnetOffsetFromCANCoderSlot() + steeringOffset;
+
+        double absolutePosition = steeringEncoder.getAbsolutePosition() - encoderOffset;
+        double absolutePositionFalcon = Conversions.degreesToEncoderTicksFalcon(absolutePosition);
+        double absolutePositionEncoder = Conversions.degreesToEncoderTicksCANCoder(absolutePosition);
+        steeringMotor.setSelectedSensorPosition(absolutePositionFalcon);
+        steeringEncoder.setPosition(absolutePositionEncoder);
+    }
+
+    /**
+     * Gets the value stored in the CANCoder's custom paramter slot zero,
+     * divided by 100.
+     *
+     * <p>
+     * That slot, if configured correctly, should contain the absolute encoder
+     * reading when the swerve module's steering axis is at zero degrees,
+     * multiplied by 100.
+     *
+     * <p>
+     * To configure it correctly, open OutlineViewer and, under the
+     * "SmartDahsboard" table, there should be a numeric field called
+     * "{module name} CANCoder absolute value". With the robot disabled, move
+     * the steering axis of the module to be at the zero degrees position, then
+     * note the dashboard value at that position. Finally, use Phoenix Tuner to
+     * set the "Custom Param 0" field on the appropriate encoder (under the
+     * "Config" tab) to that dashboard value multiplied by 100.
+     */
+    private double getMagnetOffsetFromCANCoderSlot () {
+        //TODO: Do we need this 2 second timeout?
+        return steeringEncoder.configGetCustomParam(0, 2000) / 100.0;
+    }
+}
@@ -0,0 +1,51 @@
+package frc.robot.swerve;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * A simulated swerve module. The drive and steering loops are modeled as
+ * first order lags, and the steering belt never slips.
+ *
+ * <p>
+ * The model is advanced whenever the module is read, which happens from
+ * both the main loop and the odometry thread, so every method is synchronized.
+ */
+public class SwerveModuleIOSim implements SwerveModuleIO {
+    private static final double DRIVE_TIME_CONSTANT = 0.1; // Seconds
+    private static final double STEERING_TIME_CONSTANT = 0.03; // Seconds
+
+    private double driveVelocity = 0;
+    private double driveVelocitySetpoint = 0;
+    private double drivePosition = 0;
+    private double steeringDegrees = 0;
+    private double steeringSetpoint = 0;
+    private double lastTimestamp = Timer.getFPGATimestamp();
+
+    @Override
+    public synchronized void updateInputs (Inputs inputs) {
+        double timestamp = Timer.getFPGATimestamp();
+        double dt = timestamp - lastTimestamp;
+        lastTimestamp = timestamp;
+
+        double lastDriveVelocity = driveVelocity;
+        driveVelocity += (driveVelocitySetpoint - driveVelocity) * Math.min(dt / DRIVE_TIME_CONSTANT, 1);
+        drivePosition += (lastDriveVelocity + driveVelocity) / 2 * dt;
+        steeringDegrees += (steeringSetpoint - steeringDegrees) * Math.min(dt / STEERING_TIME_CONSTANT, 1);
+
+        inputs.driveVelocityMetersPerSecond = driveVelocity;
+        inputs.drivePositionMeters = drivePosition;
+        inputs.steeringDegreesFalcon = steeringDegrees;
+        inputs.steeringDegreesEncoder = steeringDegrees;
+        inputs.encoderAbsoluteDegrees = ((steeringDegrees % 360) + 360) % 360;
+    }
+
+    @Override
+    public synchronized void setDriveVelocity (double metersPerSecond) {
+        driveVelocitySetpoint = metersPerSecond;
+    }
+
+    @Override
+    public synchronized void setSteeringAngle (double degrees) {
+        steeringSetpoint = degrees;
+    }
+}
@@ -0,0 +1,520 @@
+package frc.robot.tools;
+
+import java.util.Random;
+
+import frc.robot.Constants;
+import frc.robot.subsystems.io.ShooterIOSim;
+import frc.robot.util.ShotDetector;
+import friarLib2.math.FlywheelController;
+
+import static frc.robot.Constants.Shooter.*;
+
+/**
+ * Compares the old Talon velocity PID against {@link FlywheelController}
+ * on the simulated flywheel: how long it takes to spin up, how far it
+ * overshoots, and how long it takes to recover after each ball.
+ *
+ * <p>
+ * Each controller spins the flywheel up from a stop, then shoots a few
+ * balls, each of which takes a chunk of speed out of the flywheel. The
+ * sensors are modeled the way each controller sees them. The Talon's
+ * loop runs every millisecond on its default velocity measurement, a 100
+ * ms difference averaged over 64 samples. The RIO's loop runs every 20
+ * ms on the shortened 10 ms, 8 sample measurement, which only arrives
+ * with the feedback status frame, plus some noise.
+ *
+ * <p>
+ * Every case is run with a flywheel that matches the model in
+ * {@link frc.robot.Constants.Shooter}, and with one that is heavier and
+ * draggier than the model thinks, to see how each copes with a bad
+ * characterization.
+ *
+ * <p>
+ * A second comparison feeds a full magazine through the state space
+ * controller, gating the gate wheel the old way (speed error plus a
+ * moving average of the rate of change) and with the model's prediction
+ * of when the flywheel will be ready, started early by the gate wheel's
+ * transport delay. It reports the time to the first shot, the time
+ * between shots, and how far off the flywheel was as each ball left.
+ * The {@link ShotDetector} watches each run too, so its shot count and
+ * gaps can be checked against the balls that were actually fed.
+ *
+ * <p>
+ * A third comparison checks what {@link frc.robot.commands.shoot.PreSpinFlywheel}
+ * buys. It spins the flywheel up with the reference ramped at the
+ * pre-spin rate and with a step to full speed, reporting the peak stator
+ * current of each. Then it times how long a Shoot command waits for the
+ * flywheel to be ready, by the same prediction it gates the gate wheel
+ * with, when the flywheel was pre-spun to a nearby speed and when it
+ * starts from a stop.
+ *
+ * <p>
+ * Run with {@code ./gradlew benchmarkFlywheel}
+ */
+public class FlywheelBenchmark {
+
+    private static final double SIM_PERIOD = 0.001; // Seconds, also the Talon's closed loop period
+    private static final double MAIN_LOOP_PERIOD = FLYWHEEL_CONTROL_PERIOD;
+    private static final double FEEDBACK_FRAME_PERIOD = 0.02; // Talon status frame 2's default
+    private static final double MEASUREMENT_NOISE = 5; // RPM, standard deviation
+
+    private static final double[] SETPOINTS = {2000, 2800, 3450}; // RPM
+    private static final double FIRST_SHOT_TIME = 2; // Seconds after starting
+    private static final double SHOT_INTERVAL = 0.6; // Seconds
+    private static final int SHOTS = 3;
+    private static final double SHOT_DROP = 250; // RPM each ball takes out of the flywheel
+    private static final double TOLERANCE = 30; // RPM, counts as up to speed
+    private static final double RUN_TIME = FIRST_SHOT_TIME + SHOTS * SHOT_INTERVAL;
+
+    // The old Talon velocity loop, in the Talon's units: output out of 1023 per tick/100ms of error
+    private static final double TALON_KP = 0.2;
+    private static final double TALON_KI = 0.001;
+    private static final double TALON_KD = 2;
+    private static final double TALON_IZONE = 700; // RPM
+    private static final double TICKS_PER_100MS_PER_RPM = 2048 / (MAIN_FLYWHEEL_GEAR_RATIO * 600);
+
+    // Feeding a magazine
+    private static final int MAGAZINE = 5;
+    private static final double TRANSPORT_DELAY = Constants.Indexer.GATE_WHEEL_TRANSPORT_DELAY;
+    private static final int ROC_AVERAGE_SAMPLES = 7; // The old gate's moving average
+    private static final double ROC_TOLERANCE = 400; // RPM/second, the old gate's limit
+    private static final double FEED_TIMEOUT = 10; // Seconds
+    private static final double DETECTION_TIME = 0.2; // Seconds to keep running after the last ball, for the ShotDetector to see it
+
+    // Pre-spinning
+    private static final double PRE_SPIN_SETPOINT = 2800; // RPM
+    private static final double[] PRE_SPIN_STARTS = {0, PRE_SPIN_SETPOINT * PRE_SPIN_IDLE_FRACTION, 2750}; // RPM the flywheel was pre-spun to
+    private static final double PRE_SPIN_SETTLE_TIME = 3; // Seconds at the pre-spin speed before shooting
+    private static final double SPIN_UP_TIME = 4; // Seconds
+
+    private interface Controller {
+        /**
+         * @param t The time in seconds since starting
+         * @return The voltage to apply for the next sim step
+         */
+        double update (double t, Sensor sensor);
+    }
+
+    /**
+     * The flywheel's speed as the Falcon measures it: the change in
+     * position over a period, averaged over a window of samples taken
+     * every millisecond
+     */
+    private static class Sensor {
+        private final double[] positions; // Rotations, a ring buffer of the last period's positions
+        private final double[] samples; // RPM, a ring buffer of the last window's measurements
+        private final int periodSteps;
+        private double position = 0;
+        private double sampleSum = 0;
+        private int step = 0;
+
+        Sensor (double period, int window) {
+            periodSteps = (int) Math.round(period / SIM_PERIOD);
+            positions = new double[periodSteps];
+            samples = new double[window];
+        }
+
+        void update (double rpm) {
+            position += rpm / 60 * SIM_PERIOD;
+            int slot = step % periodSteps;
+            double measured = (position - positions[slot]) / (periodSteps * SIM_PERIOD) * 60;
+            positions[slot] = position;
+
+            int sampleSlot = step % samples.length;
+            sampleSum += measured - samples[sampleSlot];
+            samples[sampleSlot] = measured;
+            step++;
+        }
+
+        double getRPM () {
+            return step == 0 ? 0 : sampleSum / Math.min(step, samples.length);
+        }
+    }
+
+    private static class TalonPID implements Controller {
+        private final double setpoint;
+        private double integral = 0;
+        private double lastError = 0;
+
+        TalonPID (double setpoint) {
+            this.setpoint = setpoint;
+        }
+
+        @Override
+        public double update (double t, Sensor sensor) {
+            double error = (setpoint - sensor.getRPM()) * TICKS_PER_100MS_PER_RPM;
+            if (Math.abs(error) < TALON_IZONE * TICKS_PER_100MS_PER_RPM) {
+                integral += error;
+            } else {
+                integral = 0;
+            }
+            double output = TALON_KP * error + TALON_KI * integral + TALON_KD * (error - lastError);
+            lastError = error;
+            return Math.max(-1, Math.min(1, output / 1023)) * FLYWHEEL_MAX_VOLTAGE;
+        }
+    }
+
+    private static class StateSpace implements Controller {
+        private final FlywheelController controller = new FlywheelController(
+            FLYWHEEL_KS, FLYWHEEL_KV, FLYWHEEL_KA,
+            FLYWHEEL_MODEL_STD_DEV, FLYWHEEL_VOLTAGE_ERROR_STD_DEV, FLYWHEEL_MEASUREMENT_STD_DEV,
+            FLYWHEEL_LQR_TOLERANCE, FLYWHEEL_MAX_VOLTAGE,
+            FLYWHEEL_MEASUREMENT_DELAY, FLYWHEEL_CONTROL_PERIOD);
+        private final Random random = new Random(3309);
+        private double nextFrameTime = 0.007; // Not lined up with the main loop
+        private double nextLoopTime = 0;
+        private double frameRPM = 0;
+        private double volts = 0;
+
+        StateSpace (double setpoint) {
+            controller.setReference(setpoint);
+        }
+
+        @Override
+        public double update (double t, Sensor sensor) {
+            if (t >= nextFrameTime) {
+                frameRPM = sensor.getRPM() + random.nextGaussian() * MEASUREMENT_NOISE;
+                nextFrameTime += FEEDBACK_FRAME_PERIOD;
+            }
+            if (t >= nextLoopTime) {
+                volts = controller.calculate(frameRPM);
+                nextLoopTime += MAIN_LOOP_PERIOD;
+            }
+            return volts;
+        }
+    }
+
+    /**
+     * What happened in one run
+     */
+    private static class Result {
+        double spinUpTime = Double.NaN; // Seconds until it stays within tolerance
+        double overshoot = 0; // RPM
+        double recoveryTime = 0; // Seconds, average over the shots
+        double worstRecoveryTime = 0;
+        double steadyStateError = 0; // RPM, averaged just before the first shot
+    }
+
+    public static void main (String[] args) {
+        ShooterIOSim[] flywheels = {
+            new ShooterIOSim(FLYWHEEL_KS, FLYWHEEL_KV, FLYWHEEL_KA),
+            new ShooterIOSim(FLYWHEEL_KS * 1.3, FLYWHEEL_KV * 1.1, FLYWHEEL_KA * 1.25)
+        };
+        String[] flywheelNames = {"Matches model", "Off model"};
+
+        System.out.printf("%-14s %-8s %-12s %10s %10s %12s %12s %10s%n", "Flywheel", "RPM", "Controller", "Spin up", "Overshoot", "Recovery", "Worst rec.", "SS error");
+        for (int f = 0; f < flywheels.length; f++) {
+            for (double setpoint : SETPOINTS) {
+                printResult(flywheelNames[f], setpoint, "Talon PID", run(flywheels[f], new Sensor(0.1, 64), new TalonPID(setpoint), setpoint));
+                printResult(flywheelNames[f], setpoint, "State space", run(flywheels[f], new Sensor(0.01, 8), new StateSpace(setpoint), setpoint));
+            }
+        }
+        System.out.println("Recovery is from each ball leaving until the flywheel is back within " + TOLERANCE + " RPM for good");
+        System.out.println();
+
+        System.out.printf("%-14s %-8s %-12s %12s %14s %14s %10s %14s%n", "Flywheel", "RPM", "Gate", "First shot", "Shot to shot", "Worst error", "Detected", "Detected gap");
+        for (int f = 0; f < flywheels.length; f++) {
+            for (double setpoint : SETPOINTS) {
+                printFeedResult(flywheelNames[f], setpoint, "RoC average", feed(flywheels[f], setpoint, false));
+                printFeedResult(flywheelNames[f], setpoint, "Predicted", feed(flywheels[f], setpoint, true));
+            }
+        }
+        System.out.println("Worst error is the furthest the flywheel was from the setpoint as a ball left");
+        System.out.println("Detected is what the ShotDetector counted from the measured speed and the motor current");
+        System.out.println();
+
+        System.out.printf("%-14s %-12s %12s %12s%n", "Flywheel", "Spin up", "Peak current", "Up to speed");
+        for (int f = 0; f < flywheels.length; f++) {
+            printSpinUpResult(flywheelNames[f], "Step", spinUp(flywheels[f], false));
+            printSpinUpResult(flywheelNames[f], "Ramped", spinUp(flywheels[f], true));
+        }
+        System.out.println("Spinning up to " + PRE_SPIN_SETPOINT + " RPM from a stop, up to speed is within " + TOLERANCE + " RPM for good");
+        System.out.println();
+
+        System.out.printf("%-14s %-14s %12s%n", "Flywheel", "Pre-spun to", "Ready after");
+        for (int f = 0; f < flywheels.length; f++) {
+            for (double start : PRE_SPIN_STARTS) {
+                System.out.printf("%-14s %-14.0f %10.3f s%n", flywheelNames[f], start, timeToReady(flywheels[f], start));
+            }
+        }
+        System.out.println("Ready is when a Shoot command for " + PRE_SPIN_SETPOINT + " RPM would start the gate wheel");
+        System.exit(0);
+    }
+
+    private static void printResult (String flywheel, double setpoint, String controller, Result result) {
+        System.out.printf("%-14s %-8.0f %-12s %8.3f s %6.0f RPM %10.3f s %10.3f s %6.1f RPM%n",
+            flywheel, setpoint, controller, result.spinUpTime, result.overshoot, result.recoveryTime, result.worstRecoveryTime, result.steadyStateError);
+    }
+
+    private static Result run (ShooterIOSim flywheel, Sensor sensor, Controller controller, double setpoint) {
+        Result result = new Result();
+
+        // Coast to a stop from the last run
+        flywheel.stopFlywheel();
+        flywheel.simulate(60);
+
+        int steps = (int) Math.round(RUN_TIME / SIM_PERIOD);
+        double lastOutOfTolerance = 0;
+        int shotsTaken = 0;
+        double lastShotTime = Double.NaN;
+        double errorSum = 0;
+        int errorCount = 0;
+        for (int step = 0; step < steps; step++) {
+            double t = step * SIM_PERIOD;
+
+            if (shotsTaken < SHOTS && t >= FIRST_SHOT_TIME + shotsTaken * SHOT_INTERVAL) {
+                // Everything since the last event settled at the last time it was out of tolerance
+                recordSettling(result, shotsTaken, lastShotTime, lastOutOfTolerance);
+                flywheel.shootBall(SHOT_DROP);
+                lastShotTime = t;
+                shotsTaken++;
+            }
+
+            flywheel.setFlywheelVoltage(controller.update(t, sensor));
+            flywheel.simulate(SIM_PERIOD);
+            double rpm = flywheel.getFlywheelRPM();
+            sensor.update(rpm);
+
+            if (Math.abs(rpm - setpoint) > TOLERANCE) {
+                lastOutOfTolerance = t;
+            }
+            if (shotsTaken == 0) {
+                result.overshoot = Math.max(result.overshoot, rpm - setpoint);
+                if (t >= FIRST_SHOT_TIME - 0.25) {
+                    errorSum += Math.abs(rpm - setpoint);
+                    errorCount++;
+                }
+            }
+        }
+        recordSettling(result, shotsTaken, lastShotTime, lastOutOfTolerance);
+        result.recoveryTime /= SHOTS;
+        result.steadyStateError = errorSum / errorCount;
+        return result;
+    }
+
+    private static void recordSettling (Result result, int shotsTaken, double lastShotTime, double lastOutOfTolerance) {
+        if (shotsTaken == 0) {
+            result.spinUpTime = lastOutOfTolerance;
+        } else {
+            double recovery = lastOutOfTolerance - lastShotTime;
+            result.recoveryTime += recovery;
+            result.worstRecoveryTime = Math.max(result.worstRecoveryTime, recovery);
+        }
+    }
+
+    /**
+     * How feeding a magazine went
+     */
+    private static class FeedResult {
+        double firstShotTime = Double.NaN; // Seconds after starting
+        double shotToShot = Double.NaN; // Seconds, average
+        double worstError = 0; // RPM
+        int detectedShots = 0; // By the ShotDetector
+        double detectedShotToShot = Double.NaN; // Seconds, average
+    }
+
+    private static void printFeedResult (String flywheel, double setpoint, String gate, FeedResult result) {
+        System.out.printf("%-14s %-8.0f %-12s %10.3f s %12.3f s %10.0f RPM %10d %12.3f s%n", flywheel, setpoint, gate,
+            result.firstShotTime, result.shotToShot, result.worstError, result.detectedShots, result.detectedShotToShot);
+    }
+
+    /**
+     * Spin up and feed a magazine, running the gate wheel only when the gate says so
+     *
+     * @param predictive Use the model's prediction, started early by the transport delay,
+     *     instead of the speed error and rate of change
+     */
+    private static FeedResult feed (ShooterIOSim flywheel, double setpoint, boolean predictive) {
+        FeedResult result = new FeedResult();
+        flywheel.stopFlywheel();
+        flywheel.simulate(60);
+
+        FlywheelController controller = new FlywheelController(
+            FLYWHEEL_KS, FLYWHEEL_KV, FLYWHEEL_KA,
+            FLYWHEEL_MODEL_STD_DEV, FLYWHEEL_VOLTAGE_ERROR_STD_DEV, FLYWHEEL_MEASUREMENT_STD_DEV,
+            FLYWHEEL_LQR_TOLERANCE, FLYWHEEL_MAX_VOLTAGE,
+            FLYWHEEL_MEASUREMENT_DELAY, FLYWHEEL_CONTROL_PERIOD);
+        controller.setReference(setpoint);
+        Sensor sensor = new Sensor(0.01, 8);
+        Random random = new Random(3309);
+        ShotDetector detector = new ShotDetector(SHOT_DETECTION_RPM_DROP, SHOT_DETECTION_CURRENT, SHOT_RECOVERY_TOLERANCE, SHOT_HISTORY_SIZE);
+        detector.startSequence(0);
+
+        double[] rates = new double[ROC_AVERAGE_SAMPLES];
+        double lastFrameRPM = 0;
+        double frameRPM = 0;
+        double nextFrameTime = 0.007;
+        double nextLoopTime = 0;
+        double volts = 0;
+        boolean gateRunning = false;
+        double feedProgress = 0; // Seconds the current ball has been moving towards the flywheel
+        int shots = 0;
+        int loops = 0;
+        double stopTime = FEED_TIMEOUT;
+
+        int steps = (int) Math.round(FEED_TIMEOUT / SIM_PERIOD);
+        for (int step = 0; step < steps; step++) {
+            double t = step * SIM_PERIOD;
+            if (t >= stopTime) {
+                break;
+            }
+            if (t >= nextFrameTime) {
+                frameRPM = sensor.getRPM() + random.nextGaussian() * MEASUREMENT_NOISE;
+                nextFrameTime += FEEDBACK_FRAME_PERIOD;
+            }
+            if (t >= nextLoopTime) {
+                volts = controller.calculate(frameRPM);
+                detector.update(t, frameRPM, flywheel.getStatorCurrent(), setpoint);
+                rates[loops % rates.length] = (frameRPM - lastFrameRPM) / MAIN_LOOP_PERIOD;
+                lastFrameRPM = frameRPM;
+                loops++;
+
+                if (predictive) {
+                    gateRunning = controller.predictTimeToReference(FLYWHEEL_SPEED_TOLERANCE, FLYWHEEL_READY_HORIZON) <= TRANSPORT_DELAY;
+                } else {
+                    double averageRate = 0;
+                    for (double rate : rates) {
+                        averageRate += rate / rates.length;
+                    }
+                    gateRunning = Math.abs(controller.getError()) <= FLYWHEEL_SPEED_TOLERANCE && Math.abs(averageRate) <= ROC_TOLERANCE;
+                }
+                nextLoopTime += MAIN_LOOP_PERIOD;
+            }
+
+            if (gateRunning && shots < MAGAZINE) {
+                feedProgress += SIM_PERIOD;
+                if (feedProgress >= TRANSPORT_DELAY) {
+                    result.worstError = Math.max(result.worstError, Math.abs(flywheel.getFlywheelRPM() - setpoint));
+                    flywheel.shootBall(SHOT_DROP);
+                    if (shots == 0) {
+                        result.firstShotTime = t;
+                    } else if (shots == MAGAZINE - 1) {
+                        result.shotToShot = (t - result.firstShotTime) / (MAGAZINE - 1);
+                        stopTime = t + DETECTION_TIME;
+                    }
+                    shots++;
+                    feedProgress = 0;
+                }
+            }
+
+            flywheel.setFlywheelVoltage(volts);
+            flywheel.simulate(SIM_PERIOD);
+            sensor.update(flywheel.getFlywheelRPM());
+        }
+        result.detectedShots = detector.getSequenceShotCount();
+        result.detectedShotToShot = detector.getAverageGap();
+        return result;
+    }
+
+    /**
+     * The state space controller on the simulated flywheel, with the
+     * sensor and noise it sees on the robot, stepped together
+     */
+    private static class ControlledFlywheel {
+        final ShooterIOSim flywheel;
+        final FlywheelController controller = new FlywheelController(
+            FLYWHEEL_KS, FLYWHEEL_KV, FLYWHEEL_KA,
+            FLYWHEEL_MODEL_STD_DEV, FLYWHEEL_VOLTAGE_ERROR_STD_DEV, FLYWHEEL_MEASUREMENT_STD_DEV,
+            FLYWHEEL_LQR_TOLERANCE, FLYWHEEL_MAX_VOLTAGE,
+            FLYWHEEL_MEASUREMENT_DELAY, FLYWHEEL_CONTROL_PERIOD);
+        final Sensor sensor = new Sensor(0.01, 8);
+        final Random random = new Random(3309);
+        double t = 0;
+        double frameRPM = 0;
+        double nextFrameTime = 0.007;
+        double nextLoopTime = 0;
+        double volts = 0;
+        boolean loopRan = false; // Whether the main loop ran on the last step
+
+        ControlledFlywheel (ShooterIOSim flywheel) {
+            this.flywheel = flywheel;
+            flywheel.stopFlywheel();
+            flywheel.simulate(60);
+        }
+
+        void step () {
+            loopRan = false;
+            if (t >= nextFrameTime) {
+                frameRPM = sensor.getRPM() + random.nextGaussian() * MEASUREMENT_NOISE;
+                nextFrameTime += FEEDBACK_FRAME_PERIOD;
+            }
+            if (t >= nextLoopTime) {
+                volts = controller.calculate(frameRPM);
+                nextLoopTime += MAIN_LOOP_PERIOD;
+                loopRan = true;
+            }
+            flywheel.setFlywheelVoltage(volts);
+            flywheel.simulate(SIM_PERIOD);
+            sensor.update(flywheel.getFlywheelRPM());
+            t += SIM_PERIOD;
+        }
+    }
+
+    /**
+     * How spinning up went
+     */
+    private static class SpinUpResult {
+        double peakCurrent = 0; // Amps, stator
+        double spinUpTime = Double.NaN; // Seconds until it stays within tolerance
+    }
+
+    private static void printSpinUpResult (String flywheel, String spinUp, SpinUpResult result) {
+        System.out.printf("%-14s %-12s %10.0f A %10.3f s%n", flywheel, spinUp, result.peakCurrent, result.spinUpTime);
+    }
+
+    /**
+     * Spin up from a stop
+     *
+     * @param ramped Ramp the reference at the pre-spin rate, the way
+     *     PreSpinFlywheel does, instead of stepping it to full speed
+     */
+    private static SpinUpResult spinUp (ShooterIOSim flywheel, boolean ramped) {
+        SpinUpResult result = new SpinUpResult();
+        ControlledFlywheel controlled = new ControlledFlywheel(flywheel);
+        double rampStep = PRE_SPIN_RAMP_RATE * MAIN_LOOP_PERIOD;
+        double lastOutOfTolerance = 0;
+
+        while (controlled.t < SPIN_UP_TIME) {
+            // Set next loop's reference, the way a command's execute runs before the subsystem's periodic
+            if (controlled.t >= controlled.nextLoopTime) {
+                double reference = controlled.controller.getReference();
+                controlled.controller.setReference(ramped ? Math.min(PRE_SPIN_SETPOINT, reference + rampStep) : PRE_SPIN_SETPOINT);
+            }
+            controlled.step();
+            result.peakCurrent = Math.max(result.peakCurrent, Math.abs(flywheel.getStatorCurrent()));
+            if (Math.abs(flywheel.getFlywheelRPM() - PRE_SPIN_SETPOINT) > TOLERANCE) {
+                lastOutOfTolerance = controlled.t;
+            }
+        }
+        result.spinUpTime = lastOutOfTolerance;
+        return result;
+    }
+
+    /**
+     * Pre-spin the flywheel, then time a Shoot command's wait for it
+     *
+     * @param preSpinRPM The speed the flywheel was held at before the
+     *     shot, or 0 to start from a stop
+     * @return Seconds from the shot being asked for until the gate wheel
+     *     would start
+     */
+    private static double timeToReady (ShooterIOSim flywheel, double preSpinRPM) {
+        ControlledFlywheel controlled = new ControlledFlywheel(flywheel);
+        if (preSpinRPM > 0) {
+            controlled.controller.setReference(preSpinRPM);
+            while (controlled.t < PRE_SPIN_SETTLE_TIME) {
+                controlled.step();
+            }
+        }
+
+        double shotTime = controlled.t;
+        controlled.controller.setReference(PRE_SPIN_SETPOINT);
+        while (controlled.t < shotTime + FEED_TIMEOUT) {
+            controlled.step();
+            if (controlled.loopRan && controlled.controller.predictTimeToReference(FLYWHEEL_SPEED_TOLERANCE, FLYWHEEL_READY_HORIZON) <= TRANSPORT_DELAY) {
+                return controlled.t - SIM_PERIOD - shotTime;
+            }
+        }
+        return Double.NaN;
+    }
+}
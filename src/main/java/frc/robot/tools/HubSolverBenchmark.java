@@ -0,0 +1,167 @@
+package frc.robot.tools;
+
+import java.util.Random;
+
+import frc.robot.util.Targeting;
+import friarLib2.vision.HubCircleSolver;
+
+/**
+ * Compares finding the hub from the single closest strip of tape against
+ * fitting the whole ring with {@link HubCircleSolver}, on synthetic
+ * camera frames where the exact answer is known, and times the solver.
+ *
+ * <p>
+ * Each frame puts the robot somewhere around the hub, facing roughly at
+ * it. Every strip that faces the camera and is in its field of view gets
+ * a yaw and pitch with some pixel noise, and sometimes a reflection is
+ * added as an extra strip that isn't on the ring.
+ *
+ * <p>
+ * Run with {@code ./gradlew benchmarkHubSolver}
+ */
+public class HubSolverBenchmark {
+
+    private static final int FRAMES = 20000;
+    private static final int STRIPS = Targeting.HUB_VISION_TAPE_STRIPS;
+    private static final double MAX_VISIBLE_ANGLE = Math.toRadians(70); // Strips turned further from the camera than this are too thin to see
+    private static final double HORIZONTAL_FOV = Targeting.CAMERA_HORIZONTAL_FOV;
+    private static final double VERTICAL_FOV = Targeting.CAMERA_VERTICAL_FOV;
+    private static final double ANGLE_NOISE = 0.15; // Degrees, standard deviation
+    private static final double REFLECTION_CHANCE = 0.05;
+    private static final double[][] DISTANCE_BINS = {{1.5, 3}, {3, 4.5}, {4.5, 6}}; // Meters to the hub's center
+
+    private static final double RADIUS = Targeting.HUB_VISION_TAPE_RADIUS;
+
+    public static void main (String[] args) {
+        Random random = new Random(3309);
+        HubCircleSolver solver = new HubCircleSolver(Targeting.HEIGHT_OF_CAMERA, Targeting.ANGLE_OF_CAMERA, Targeting.HEIGHT_OF_TARGET, RADIUS, STRIPS + 1);
+        double[] yaws = new double[STRIPS + 1];
+        double[] pitches = new double[STRIPS + 1];
+
+        System.out.printf("%-14s %-16s %8s %16s %16s%n", "Distance", "Method", "Frames", "Distance error", "Yaw error");
+        for (double[] bin : DISTANCE_BINS) {
+            double[] singleStrip = new double[2]; // Sums of squared distance and yaw errors
+            double[] circleFit = new double[2];
+            int frames = 0;
+            while (frames < FRAMES) {
+                double centerDistance = bin[0] + random.nextDouble() * (bin[1] - bin[0]);
+                double centerYaw = (random.nextDouble() - 0.5) * 40; // Degrees
+                int count = makeFrame(centerDistance, centerYaw, random, yaws, pitches);
+                if (count == 0) {
+                    continue;
+                }
+                frames++;
+
+                // The closest strip is the biggest, so it's the one the camera reports as best
+                int best = 0;
+                for (int i = 1; i < count; i++) {
+                    if (pitches[i] < pitches[best]) {
+                        best = i;
+                    }
+                }
+                double stripDistance = Targeting.calculateMetersFromTarget(pitches[best]) + RADIUS;
+                addError(singleStrip, stripDistance - centerDistance, yaws[best] - centerYaw);
+
+                solver.solve(yaws, pitches, count);
+                addError(circleFit, solver.getCenterDistance() - centerDistance, solver.getYaw() - centerYaw);
+            }
+
+            String name = String.format("%.1f-%.1f m", bin[0], bin[1]);
+            System.out.printf("%-14s %-16s %8d %14.4f m %14.3f deg%n", name, "Closest strip", frames, Math.sqrt(singleStrip[0] / frames), Math.sqrt(singleStrip[1] / frames));
+            System.out.printf("%-14s %-16s %8d %14.4f m %14.3f deg%n", name, "Circle fit", frames, Math.sqrt(circleFit[0] / frames), Math.sqrt(circleFit[1] / frames));
+        }
+        System.out.println("Errors are root mean square");
+
+        timeSolver(solver, random, yaws, pitches);
+        System.exit(0);
+    }
+
+    private static void addError (double[] sums, double distanceError, double yawError) {
+        sums[0] += distanceError * distanceError;
+        sums[1] += yawError * yawError;
+    }
+
+    /**
+     * Work out what the camera would see of the hub
+     *
+     * @param centerDistance From the camera to the center of the ring, in meters
+     * @param centerYaw The angle to the center of the ring in degrees, right is positive
+     * @return How many strips were seen
+     */
+    private static int makeFrame (double centerDistance, double centerYaw, Random random, double[] yaws, double[] pitches) {
+        double centerForward = centerDistance * Math.cos(Math.toRadians(-centerYaw));
+        double centerLeft = centerDistance * Math.sin(Math.toRadians(-centerYaw));
+        double ringRotation = random.nextDouble() * 2 * Math.PI / STRIPS;
+
+        int count = 0;
+        for (int i = 0; i < STRIPS; i++) {
+            double angle = ringRotation + i * 2 * Math.PI / STRIPS;
+            double forward = centerForward + RADIUS * Math.cos(angle);
+            double left = centerLeft + RADIUS * Math.sin(angle);
+
+            // The strip faces out from the ring's center
+            double towardsCamera = Math.atan2(-left, -forward);
+            if (Math.abs(Math.IEEEremainder(towardsCamera - angle, 2 * Math.PI)) > MAX_VISIBLE_ANGLE) {
+                continue;
+            }
+            count = addStrip(forward, left, random, yaws, pitches, count);
+        }
+
+        if (count > 0 && random.nextDouble() < REFLECTION_CHANCE) {
+            // A reflection off something in front of the hub, at the height of the tape
+            double reflection = centerDistance - RADIUS - 0.3 - random.nextDouble();
+            double direction = Math.toRadians(-centerYaw + (random.nextDouble() - 0.5) * 20);
+            if (reflection > 0.5) {
+                count = addStrip(reflection * Math.cos(direction), reflection * Math.sin(direction), random, yaws, pitches, count);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Add a strip at the height of the tape to the frame, if the camera can see it
+     */
+    private static int addStrip (double forward, double left, Random random, double[] yaws, double[] pitches, int count) {
+        double up = Targeting.HEIGHT_OF_TARGET - Targeting.HEIGHT_OF_CAMERA;
+        double cameraPitch = Math.toRadians(Targeting.ANGLE_OF_CAMERA);
+
+        // Into the camera's frame
+        double cameraForward = forward * Math.cos(cameraPitch) + up * Math.sin(cameraPitch);
+        double cameraUp = -forward * Math.sin(cameraPitch) + up * Math.cos(cameraPitch);
+        double yaw = -Math.toDegrees(Math.atan(left / cameraForward));
+        double pitch = Math.toDegrees(Math.atan(cameraUp / cameraForward));
+        if (cameraForward <= 0 || Math.abs(yaw) > HORIZONTAL_FOV / 2 || Math.abs(pitch) > VERTICAL_FOV / 2) {
+            return count;
+        }
+
+        yaws[count] = yaw + random.nextGaussian() * ANGLE_NOISE;
+        pitches[count] = pitch + random.nextGaussian() * ANGLE_NOISE;
+        return count + 1;
+    }
+
+    /**
+     * Time the solver on a typical frame, after letting the JIT warm up
+     */
+    private static void timeSolver (HubCircleSolver solver, Random random, double[] yaws, double[] pitches) {
+        int count = 0;
+        while (count == 0) {
+            count = makeFrame(3.5, 5, random, yaws, pitches);
+        }
+
+        double checksum = 0;
+        for (int i = 0; i < 200000; i++) {
+            solver.solve(yaws, pitches, count);
+            checksum += solver.getCenterDistance();
+        }
+
+        int runs = 1000000;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            solver.solve(yaws, pitches, count);
+            checksum += solver.getCenterDistance();
+        }
+        double microseconds = (System.nanoTime() - start) / 1e3 / runs;
+
+        System.out.printf("Circle fit with %d strips: %.2f us per frame (checksum %.1f)%n", count, microseconds, checksum);
+    }
+}
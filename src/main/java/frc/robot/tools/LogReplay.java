@@ -0,0 +1,366 @@
+package frc.robot.tools;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.Constants;
+import frc.robot.swerve.DriveOdometry;
+import frc.robot.util.HubProcessor;
+import frc.robot.util.Targeting;
+import friarLib2.logging.LogReader;
+import friarLib2.vision.TargetTracker;
+import friarLib2.vision.VisionMeasurement;
+
+/**
+ * Reruns the drivetrain odometry, vision aiming and distance
+ * calculations on recorded match logs and compares the results against
+ * what the robot logged.
+ *
+ * <p>
+ * The logged sensor readings are fed back through {@link DriveOdometry},
+ * {@link HubProcessor}, the hub's {@link TargetTracker} and
+ * {@link Targeting} in the same order they happened on the robot,
+ * as fast as the desktop can go. With unchanged code every output should
+ * match the log. After changing the odometry or aiming math, the reported
+ * differences show how the change would have behaved in real matches.
+ *
+ * <p>
+ * The odometry runs on its own thread and is logged to a separate
+ * {@code _odometry.bin} file next to the main log, so pass both files
+ * (or the directory holding them). Long logs are split into parts, and
+ * the odometry log is paused while the robot is disabled. The odometry
+ * picks up again from the logged pose at the start of each part and
+ * after each pause. The hub tracker can't, so it is only replayed from
+ * the first part of a log.
+ *
+ * <p>
+ * Run with {@code ./gradlew replayLogs --args="<log files or directories>"}
+ */
+public class LogReplay {
+
+    private static final double POSITION_TOLERANCE = 1e-6; // Meters
+    private static final double ANGLE_TOLERANCE = 1e-6; // Degrees
+    private static final double AIM_TOLERANCE = 1e-9;
+
+    public static void main (String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: LogReplay <log files or directories>...");
+            System.exit(2);
+        }
+
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            Path path = Paths.get(arg);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> children = Files.list(path)) {
+                    files.addAll(children.filter(file -> file.toString().endsWith(".bin")).sorted().collect(Collectors.toList()));
+                }
+            } else {
+                files.add(path);
+            }
+        }
+
+        double totalLoggedSeconds = 0;
+        long totalStart = System.nanoTime();
+        boolean allMatched = true;
+
+        for (Path file : files) {
+            long start = System.nanoTime();
+            Map<String, LogReader.Channel> log = LogReader.read(file);
+
+            System.out.println(file.getFileName() + ":");
+            boolean matched = replayOdometry(log);
+            Constants.Drive.VISION_AIM_PID.reset();
+            matched &= replayPairs(log, "Aim target yaw", "Aim rotational speed", "Aim", AIM_TOLERANCE, Targeting::calculateAimSpeed);
+            matched &= replayHubFit(log);
+            matched &= replayHubTracker(log);
+            allMatched &= matched;
+
+            double loggedSeconds = loggedDuration(log);
+            double replaySeconds = (System.nanoTime() - start) / 1e9;
+            totalLoggedSeconds += loggedSeconds;
+            System.out.printf("  %.1f s of data replayed in %.3f s (%.0fx real time)%n", loggedSeconds, replaySeconds, loggedSeconds / replaySeconds);
+        }
+
+        double totalReplaySeconds = (System.nanoTime() - totalStart) / 1e9;
+        System.out.printf("%d logs, %.1f s of data replayed in %.3f s%n", files.size(), totalLoggedSeconds, totalReplaySeconds);
+        System.out.println(allMatched ? "All outputs match the logs" : "Some outputs differ from the logs");
+        System.exit(allMatched ? 0 : 1);
+    }
+
+    /**
+     * Feed the logged IMU and module readings through the odometry,
+     * applying every logged reset at the point it happened
+     *
+     * @return If every pose matched the logged pose
+     */
+    private static boolean replayOdometry (Map<String, LogReader.Channel> log) {
+        LogReader.Channel timestamps = log.get("Odometry timestamp");
+        LogReader.Channel yaws = log.get("IMU yaw");
+        LogReader.Channel poseX = log.get("Robot pose x");
+        LogReader.Channel poseY = log.get("Robot pose y");
+        LogReader.Channel poseTheta = log.get("Robot pose theta");
+        LogReader.Channel startingYaw = log.get("Odometry starting yaw");
+        LogReader.Channel[] speeds = new LogReader.Channel[Constants.Drive.MODULE_NAMES.length];
+        LogReader.Channel[] distances = new LogReader.Channel[Constants.Drive.MODULE_NAMES.length];
+        LogReader.Channel[] angles = new LogReader.Channel[Constants.Drive.MODULE_NAMES.length];
+        for (int i = 0; i < Constants.Drive.MODULE_NAMES.length; i++) {
+            speeds[i] = log.get(Constants.Drive.MODULE_NAMES[i] + " module speed");
+            distances[i] = log.get(Constants.Drive.MODULE_NAMES[i] + " module distance");
+            angles[i] = log.get(Constants.Drive.MODULE_NAMES[i] + " module angle");
+        }
+
+        if (timestamps == null || yaws == null || poseX == null || poseY == null || poseTheta == null) {
+            System.out.println("  Odometry: not in log");
+            return true;
+        }
+
+        // The last loop may have been cut off partway through logging
+        int count = Collections.min(List.of(timestamps.size(), yaws.size(), poseX.size(), poseY.size(), poseTheta.size()));
+        for (int i = 0; i < Constants.Drive.MODULE_NAMES.length; i++) {
+            if (speeds[i] == null || distances[i] == null || angles[i] == null) {
+                System.out.println("  Odometry: " + Constants.Drive.MODULE_NAMES[i] + " module not in log");
+                return true;
+            }
+            count = Math.min(count, Math.min(speeds[i].size(), Math.min(distances[i].size(), angles[i].size())));
+        }
+
+        LogReader.Channel resetX = log.get("Odometry reset x");
+        LogReader.Channel resetY = log.get("Odometry reset y");
+        LogReader.Channel resetTheta = log.get("Odometry reset theta");
+        int resetCount = resetTheta == null ? 0 : Math.min(resetX.size(), Math.min(resetY.size(), resetTheta.size()));
+        int nextReset = 0;
+
+        // Ticks logged before a sync can only be replayed from the start of the first part
+        LogReader.Channel syncs = log.get("Odometry sync");
+        int syncCount = syncs == null ? 0 : syncs.size();
+        int nextSync = 0;
+        boolean started = startingYaw != null && startingYaw.size() > 0;
+
+        Rotation2d startingRotation = started ? Rotation2d.fromDegrees(startingYaw.getValue(0)) : new Rotation2d();
+        DriveOdometry odometry = new DriveOdometry(Constants.Drive.ODOMETRY_MODE, Constants.Drive.MODULE_TRANSLATIONS, startingRotation);
+        double[] moduleSpeeds = new double[Constants.Drive.MODULE_NAMES.length];
+        double[] moduleDistances = new double[Constants.Drive.MODULE_NAMES.length];
+        double[] moduleAngles = new double[Constants.Drive.MODULE_NAMES.length];
+
+        double maxPositionError = 0;
+        double maxAngleError = 0;
+        int firstMismatch = -1;
+        int replayed = 0;
+
+        for (int i = 0; i < count; i++) {
+            // The odometry thread logs a reset or sync just before the update it was applied to
+            while (nextReset < resetCount && resetTheta.getTimestamp(nextReset) < timestamps.getTimestamp(i)) {
+                odometry.reset(new Pose2d(resetX.getValue(nextReset), resetY.getValue(nextReset), Rotation2d.fromDegrees(resetTheta.getValue(nextReset))));
+                nextReset++;
+            }
+            boolean sync = false;
+            while (nextSync < syncCount && syncs.getTimestamp(nextSync) < timestamps.getTimestamp(i)) {
+                sync = true;
+                nextSync++;
+            }
+
+            for (int j = 0; j < moduleSpeeds.length; j++) {
+                moduleSpeeds[j] = speeds[j].getValue(i);
+                moduleDistances[j] = distances[j].getValue(i);
+                moduleAngles[j] = angles[j].getValue(i);
+            }
+            if (sync) {
+                odometry.resync(timestamps.getValue(i), yaws.getValue(i), moduleDistances, poseX.getValue(i), poseY.getValue(i), Math.toRadians(poseTheta.getValue(i)));
+                started = true;
+                continue;
+            }
+            if (!started) {
+                continue;
+            }
+            odometry.update(timestamps.getValue(i), yaws.getValue(i), moduleSpeeds, moduleDistances, moduleAngles);
+            replayed++;
+            Pose2d pose = odometry.getPose();
+
+            double positionError = Math.hypot(pose.getX() - poseX.getValue(i), pose.getY() - poseY.getValue(i));
+            double angleError = Math.abs(pose.getRotation().minus(Rotation2d.fromDegrees(poseTheta.getValue(i))).getDegrees());
+            maxPositionError = Math.max(maxPositionError, positionError);
+            maxAngleError = Math.max(maxAngleError, angleError);
+            if (firstMismatch < 0 && (positionError > POSITION_TOLERANCE || angleError > ANGLE_TOLERANCE)) {
+                firstMismatch = i;
+            }
+        }
+
+        System.out.printf("  Odometry (%s): %d updates, %d resets, %d syncs, max position error %.6f m, max heading error %.6f deg%n", odometry.getMode(), replayed, nextReset, nextSync, maxPositionError, maxAngleError);
+        if (firstMismatch >= 0) {
+            System.out.printf("    First differs at t = %.3f s%n", timestamps.getValue(firstMismatch));
+        }
+        return firstMismatch < 0;
+    }
+
+    /**
+     * Fit the hub to every logged frame's strips again
+     *
+     * @return If every yaw and distance matched the logged ones
+     */
+    private static boolean replayHubFit (Map<String, LogReader.Channel> log) {
+        LogReader.Channel stripCounts = log.get("Hub visible strips");
+        LogReader.Channel stripYaws = log.get("Hub strip yaw");
+        LogReader.Channel stripPitches = log.get("Hub strip pitch");
+        LogReader.Channel bestYaws = log.get("Vision target yaw");
+        LogReader.Channel bestPitches = log.get("Vision target pitch");
+        LogReader.Channel hubYaws = log.get("Hub yaw");
+        LogReader.Channel hubDistances = log.get("Hub distance");
+        if (stripCounts == null || stripYaws == null || stripPitches == null || bestYaws == null || bestPitches == null || hubYaws == null || hubDistances == null) {
+            System.out.println("  Hub fit: not in log");
+            return true;
+        }
+
+        HubProcessor processor = new HubProcessor(Targeting.CAMERA_MOUNT_YAW);
+        double[] yaws = new double[HubProcessor.MAX_STRIPS];
+        double[] pitches = new double[HubProcessor.MAX_STRIPS];
+        int availableStrips = Math.min(stripYaws.size(), stripPitches.size());
+        int count = Collections.min(List.of(stripCounts.size(), bestYaws.size(), bestPitches.size(), hubYaws.size(), hubDistances.size()));
+
+        int nextStrip = 0;
+        int frames = 0;
+        int mismatches = 0;
+        double maxYawError = 0;
+        double maxDistanceError = 0;
+        for (int i = 0; i < count; i++) {
+            int strips = (int) stripCounts.getValue(i);
+            if (nextStrip + strips > availableStrips) {
+                break; // Cut off partway through logging the frame
+            }
+            for (int j = 0; j < strips; j++) {
+                yaws[j] = stripYaws.getValue(nextStrip);
+                pitches[j] = stripPitches.getValue(nextStrip);
+                nextStrip++;
+            }
+
+            VisionMeasurement measurement = processor.measure("replay", 0, yaws, pitches, strips, bestYaws.getValue(i), bestPitches.getValue(i));
+            double yawError = Math.abs(Math.IEEEremainder(measurement.getYaw() - hubYaws.getValue(i), 360));
+            double distanceError = Math.abs(measurement.getDistance() - hubDistances.getValue(i));
+            maxYawError = Math.max(maxYawError, yawError);
+            maxDistanceError = Math.max(maxDistanceError, distanceError);
+            if (yawError > ANGLE_TOLERANCE || distanceError > POSITION_TOLERANCE) {
+                mismatches++;
+            }
+            frames++;
+        }
+
+        System.out.printf("  Hub fit: %d frames, %d differ, max yaw error %.6f deg, max distance error %.6f m%n", frames, mismatches, maxYawError, maxDistanceError);
+        return mismatches == 0;
+    }
+
+    /**
+     * Run the hub tracker on the logged robot motion and observations
+     * again, loop by loop, and work out the distance to the target from it
+     *
+     * @return If every distance matched the logged "Meters to target"
+     */
+    private static boolean replayHubTracker (Map<String, LogReader.Channel> log) {
+        LogReader.Channel times = log.get("Hub tracker time");
+        LogReader.Channel motionX = log.get("Hub tracker motion x");
+        LogReader.Channel motionY = log.get("Hub tracker motion y");
+        LogReader.Channel motionTheta = log.get("Hub tracker motion theta");
+        LogReader.Channel observationCounts = log.get("Hub tracker observations");
+        LogReader.Channel observationTimes = log.get("Hub observation time");
+        LogReader.Channel observationYaws = log.get("Hub observation yaw");
+        LogReader.Channel observationDistances = log.get("Hub observation distance");
+        LogReader.Channel metersToTarget = log.get("Meters to target");
+        if (times == null || motionX == null || motionY == null || motionTheta == null || observationCounts == null
+                || observationTimes == null || observationYaws == null || observationDistances == null || metersToTarget == null) {
+            System.out.println("  Hub tracker: not in log");
+            return true;
+        }
+        LogReader.Channel parts = log.get("Log part");
+        if (parts != null && parts.size() > 0 && parts.getValue(0) > 1) {
+            System.out.println("  Hub tracker: skipped, the tracker's state from the earlier parts isn't logged");
+            return true;
+        }
+
+        TargetTracker tracker = Targeting.createHubTracker();
+        int availableObservations = Collections.min(List.of(observationTimes.size(), observationYaws.size(), observationDistances.size()));
+        int count = Collections.min(List.of(times.size(), motionX.size(), motionY.size(), motionTheta.size(), observationCounts.size(), metersToTarget.size()));
+
+        int nextObservation = 0;
+        int loops = 0;
+        int mismatches = 0;
+        double maxError = 0;
+        double distance = 0;
+        for (int i = 0; i < count; i++) {
+            int observations = (int) observationCounts.getValue(i);
+            if (nextObservation + observations > availableObservations) {
+                break; // Cut off partway through logging the loop
+            }
+
+            double now = times.getValue(i);
+            tracker.predict(now, motionX.getValue(i), motionY.getValue(i), motionTheta.getValue(i));
+            for (int j = 0; j < observations; j++) {
+                tracker.addObservation(observationTimes.getValue(nextObservation), observationYaws.getValue(nextObservation), observationDistances.getValue(nextObservation));
+                nextObservation++;
+            }
+            distance = Targeting.calculateMetersFromTarget(tracker, now, distance);
+
+            double error = Math.abs(distance - metersToTarget.getValue(i));
+            maxError = Math.max(maxError, error);
+            if (error > POSITION_TOLERANCE) {
+                mismatches++;
+            }
+            loops++;
+        }
+
+        System.out.printf("  Hub tracker: %d loops, %d observations, %d differ, max distance error %.6f m%n", loops, nextObservation, mismatches, maxError);
+        return mismatches == 0;
+    }
+
+    /**
+     * Rerun a calculation that logs its input and output as a pair
+     *
+     * @return If every output matched the logged output
+     */
+    private static boolean replayPairs (Map<String, LogReader.Channel> log, String inputName, String outputName, String label, double tolerance, DoubleUnaryOperator calculation) {
+        LogReader.Channel inputs = log.get(inputName);
+        LogReader.Channel outputs = log.get(outputName);
+        if (inputs == null || outputs == null) {
+            System.out.println("  " + label + ": not in log");
+            return true;
+        }
+
+        int count = Math.min(inputs.size(), outputs.size());
+        double maxError = 0;
+        int mismatches = 0;
+        for (int i = 0; i < count; i++) {
+            double error = Math.abs(calculation.applyAsDouble(inputs.getValue(i)) - outputs.getValue(i));
+            maxError = Math.max(maxError, error);
+            if (error > tolerance) {
+                mismatches++;
+            }
+        }
+
+        System.out.printf("  %s: %d samples, %d differ, max error %.6f%n", label, count, mismatches, maxError);
+        return mismatches == 0;
+    }
+
+    /**
+     * @return The time between the first and last sample in the log, in seconds
+     */
+    private static double loggedDuration (Map<String, LogReader.Channel> log) {
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (LogReader.Channel channel : log.values()) {
+            if (channel.size() > 0) {
+                first = Math.min(first, channel.getTimestamp(0));
+                last = Math.max(last, channel.getTimestamp(channel.size() - 1));
+            }
+        }
+        return first < last ? (last - first) / 1e6 : 0;
+    }
+}
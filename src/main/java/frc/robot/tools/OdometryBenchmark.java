@@ -0,0 +1,337 @@
+package frc.robot.tools;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.Constants;
+import frc.robot.swerve.DriveOdometry;
+import frc.robot.swerve.SwerveModule3309;
+import friarLib2.logging.LogReader;
+
+/**
+ * Compares how far the odometry drifts in each {@link DriveOdometry.Mode},
+ * at the old 50 Hz main loop rate and at the odometry thread's rate.
+ *
+ * <p>
+ * With no arguments, the robot is driven along a few simulated paths and
+ * the odometry is compared against the exact pose. The sensors are
+ * modeled the way the robot sees them: readings only change when a CAN
+ * status frame arrives, the Talon's velocity is measured over a 100 ms
+ * window, the drive encoders count whole ticks, and the loop timing
+ * jitters and sometimes overruns.
+ *
+ * <p>
+ * Given odometry logs, both modes are rerun on the recorded sensor
+ * readings. There is no exact pose to compare against, so it reports how
+ * far apart the two modes end up.
+ *
+ * <p>
+ * Run with {@code ./gradlew benchmarkOdometry} or
+ * {@code ./gradlew benchmarkOdometry --args="<odometry log files>"}
+ */
+public class OdometryBenchmark {
+
+    private static final double SIM_PERIOD = 0.0005; // Seconds
+    private static final double TALON_VELOCITY_WINDOW = 0.1; // Seconds, the Talon FX's default velocity measurement period
+    private static final double TICKS_PER_METER = SwerveModule3309.Conversions.metersToEncoderTicks(1);
+
+    private static final double MAIN_LOOP_PERIOD = 0.02;
+    private static final double MAIN_LOOP_JITTER = 0.001; // Standard deviation in seconds
+    private static final double MAIN_LOOP_OVERRUN_CHANCE = 0.02;
+    private static final double MAIN_LOOP_OVERRUN = 0.015; // Seconds
+    private static final double THREAD_JITTER = 0.0002;
+    private static final double DEFAULT_FEEDBACK_FRAME_PERIOD = 0.02; // Talon status frame 2's default
+    private static final double DEFAULT_GYRO_FRAME_PERIOD = 0.01; // Pigeon sensor fusion frame's default
+
+    /**
+     * The robot's field relative speeds at a point in time
+     */
+    private interface SpeedProfile {
+        void getSpeeds (double t, double[] speeds);
+    }
+
+    private static class SimulatedPath {
+        final String name;
+        final double duration;
+        final SpeedProfile profile;
+
+        SimulatedPath (String name, double duration, SpeedProfile profile) {
+            this.name = name;
+            this.duration = duration;
+            this.profile = profile;
+        }
+    }
+
+    /**
+     * How the odometry is run: the mode, how often it updates, and how
+     * often the sensors send their CAN frames
+     */
+    private static class Setup {
+        final String name;
+        final DriveOdometry.Mode mode;
+        final double period;
+        final double jitter;
+        final double overrunChance;
+        final double feedbackFramePeriod;
+        final double gyroFramePeriod;
+
+        Setup (String name, DriveOdometry.Mode mode, double period, double jitter, double overrunChance, double feedbackFramePeriod, double gyroFramePeriod) {
+            this.name = name;
+            this.mode = mode;
+            this.period = period;
+            this.jitter = jitter;
+            this.overrunChance = overrunChance;
+            this.feedbackFramePeriod = feedbackFramePeriod;
+            this.gyroFramePeriod = gyroFramePeriod;
+        }
+    }
+
+    private static final List<SimulatedPath> PATHS = List.of(
+        new SimulatedPath("Sprint to 7 m/s and stop", 3, (t, speeds) -> {
+            double speed = Math.min(Math.min(t * 8, 7), Math.max((3 - t) * 8, 0));
+            speeds[0] = speed;
+            speeds[1] = 0;
+            speeds[2] = 0;
+        }),
+        new SimulatedPath("Weave at 5 m/s", 4, (t, speeds) -> {
+            speeds[0] = 5;
+            speeds[1] = 3 * Math.sin(Math.PI * t);
+            speeds[2] = 0;
+        }),
+        new SimulatedPath("Circle while spinning", 4, (t, speeds) -> {
+            speeds[0] = 4 * Math.cos(t);
+            speeds[1] = 4 * Math.sin(t);
+            speeds[2] = 6;
+        }),
+        new SimulatedPath("Auto-like start and stop", 6, (t, speeds) -> {
+            double phase = t % 2;
+            double speed = phase < 1.5 ? 3 * Math.sin(Math.PI * phase / 1.5) : 0;
+            double direction = Math.PI / 3 * Math.floor(t / 2);
+            speeds[0] = speed * Math.cos(direction);
+            speeds[1] = speed * Math.sin(direction);
+            speeds[2] = phase < 1.5 ? 1.5 : 0;
+        })
+    );
+
+    private static final List<Setup> SETUPS = List.of(
+        new Setup("velocity, 50 Hz loop", DriveOdometry.Mode.velocity, MAIN_LOOP_PERIOD, MAIN_LOOP_JITTER, MAIN_LOOP_OVERRUN_CHANCE, DEFAULT_FEEDBACK_FRAME_PERIOD, DEFAULT_GYRO_FRAME_PERIOD),
+        new Setup("velocity, thread", DriveOdometry.Mode.velocity, Constants.Drive.ODOMETRY_PERIOD, THREAD_JITTER, 0, Constants.Drive.ODOMETRY_STATUS_FRAME_PERIOD / 1000.0, Constants.Drive.ODOMETRY_STATUS_FRAME_PERIOD / 1000.0),
+        new Setup("position delta, 50 Hz loop", DriveOdometry.Mode.positionDelta, MAIN_LOOP_PERIOD, MAIN_LOOP_JITTER, MAIN_LOOP_OVERRUN_CHANCE, DEFAULT_FEEDBACK_FRAME_PERIOD, DEFAULT_GYRO_FRAME_PERIOD),
+        new Setup("position delta, thread", DriveOdometry.Mode.positionDelta, Constants.Drive.ODOMETRY_PERIOD, THREAD_JITTER, 0, Constants.Drive.ODOMETRY_STATUS_FRAME_PERIOD / 1000.0, Constants.Drive.ODOMETRY_STATUS_FRAME_PERIOD / 1000.0)
+    );
+
+    public static void main (String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.printf("%-28s %-28s %12s %12s%n", "Path", "Odometry", "Final error", "Max error");
+            for (SimulatedPath path : PATHS) {
+                for (Setup setup : SETUPS) {
+                    double[] errors = simulate(path, setup, new Random(3309));
+                    System.out.printf("%-28s %-28s %10.4f m %10.4f m%n", path.name, setup.name, errors[0], errors[1]);
+                }
+            }
+        } else {
+            for (String arg : args) {
+                compareOnLog(LogReader.read(Paths.get(arg)), arg);
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Drive along a path and run the odometry on simulated sensor readings
+     *
+     * @return The distance between the odometry and the exact pose at the last update, and the largest distance at any update
+     */
+    private static double[] simulate (SimulatedPath path, Setup setup, Random random) {
+        Translation2d[] locations = Constants.Drive.MODULE_TRANSLATIONS;
+        int moduleCount = locations.length;
+        int windowSteps = (int) Math.round(TALON_VELOCITY_WINDOW / SIM_PERIOD);
+
+        // The exact state of the robot and modules
+        double x = 0;
+        double y = 0;
+        double heading = 0;
+        double[] fieldSpeeds = new double[3];
+        double[] distances = new double[moduleCount];
+        double[] angles = new double[moduleCount];
+        double[][] distanceHistory = new double[moduleCount][windowSteps + 1];
+
+        // What the odometry can see: the last value sent over CAN
+        double[] sentSpeeds = new double[moduleCount];
+        double[] sentDistances = new double[moduleCount];
+        double[] sentAngles = new double[moduleCount];
+        double sentYaw = 0;
+        double nextFeedbackFrame = random.nextDouble() * setup.feedbackFramePeriod;
+        double nextGyroFrame = random.nextDouble() * setup.gyroFramePeriod;
+        double nextUpdate = setup.period;
+
+        DriveOdometry odometry = new DriveOdometry(setup.mode, locations, new Rotation2d());
+        double error = 0;
+        double maxError = 0;
+        odometry.update(0, 0, sentSpeeds, sentDistances, sentAngles);
+
+        int steps = (int) Math.round(path.duration / SIM_PERIOD);
+        for (int step = 1; step <= steps; step++) {
+            double t = step * SIM_PERIOD;
+
+            path.profile.getSpeeds(t, fieldSpeeds);
+            double cos = Math.cos(heading);
+            double sin = Math.sin(heading);
+            double vx = fieldSpeeds[0] * cos + fieldSpeeds[1] * sin;
+            double vy = -fieldSpeeds[0] * sin + fieldSpeeds[1] * cos;
+            double omega = fieldSpeeds[2];
+
+            for (int i = 0; i < moduleCount; i++) {
+                double moduleVX = vx - omega * locations[i].getY();
+                double moduleVY = vy + omega * locations[i].getX();
+                double speed = Math.hypot(moduleVX, moduleVY);
+                if (speed > 1e-6) {
+                    angles[i] = Math.toDegrees(Math.atan2(moduleVY, moduleVX));
+                }
+                distances[i] += speed * SIM_PERIOD;
+                distanceHistory[i][step % (windowSteps + 1)] = distances[i];
+            }
+
+            x += fieldSpeeds[0] * SIM_PERIOD;
+            y += fieldSpeeds[1] * SIM_PERIOD;
+            heading += omega * SIM_PERIOD;
+
+            if (t >= nextFeedbackFrame) {
+                for (int i = 0; i < moduleCount; i++) {
+                    // Oldest entry in the history is one window ago (zero before the robot started)
+                    double windowStart = step >= windowSteps ? distanceHistory[i][(step + 1) % (windowSteps + 1)] : 0;
+                    sentSpeeds[i] = Math.floor((distances[i] - windowStart) * TICKS_PER_METER) / TICKS_PER_METER / TALON_VELOCITY_WINDOW;
+                    sentDistances[i] = Math.floor(distances[i] * TICKS_PER_METER) / TICKS_PER_METER;
+                    sentAngles[i] = angles[i];
+                }
+                nextFeedbackFrame += setup.feedbackFramePeriod;
+            }
+            if (t >= nextGyroFrame) {
+                sentYaw = Math.toDegrees(heading);
+                nextGyroFrame += setup.gyroFramePeriod;
+            }
+
+            if (t >= nextUpdate) {
+                odometry.update(t, sentYaw, sentSpeeds, sentDistances, sentAngles);
+                error = Math.hypot(odometry.getX() - x, odometry.getY() - y);
+                maxError = Math.max(maxError, error);
+
+                double delay = setup.period + random.nextGaussian() * setup.jitter;
+                if (random.nextDouble() < setup.overrunChance) {
+                    delay += MAIN_LOOP_OVERRUN;
+                }
+                nextUpdate = t + Math.max(delay, SIM_PERIOD);
+            }
+        }
+
+        return new double[] {error, maxError};
+    }
+
+    /**
+     * Run both odometry modes on the sensor readings from a real match
+     */
+    private static void compareOnLog (Map<String, LogReader.Channel> log, String name) {
+        String[] moduleNames = Constants.Drive.MODULE_NAMES;
+        LogReader.Channel timestamps = log.get("Odometry timestamp");
+        LogReader.Channel yaws = log.get("IMU yaw");
+        LogReader.Channel startingYaw = log.get("Odometry starting yaw");
+        LogReader.Channel poseX = log.get("Robot pose x");
+        LogReader.Channel poseY = log.get("Robot pose y");
+        LogReader.Channel poseTheta = log.get("Robot pose theta");
+        LogReader.Channel[] speeds = new LogReader.Channel[moduleNames.length];
+        LogReader.Channel[] distances = new LogReader.Channel[moduleNames.length];
+        LogReader.Channel[] angles = new LogReader.Channel[moduleNames.length];
+        for (int i = 0; i < moduleNames.length; i++) {
+            speeds[i] = log.get(moduleNames[i] + " module speed");
+            distances[i] = log.get(moduleNames[i] + " module distance");
+            angles[i] = log.get(moduleNames[i] + " module angle");
+        }
+
+        if (timestamps == null || yaws == null || poseX == null || poseY == null || poseTheta == null) {
+            System.out.println(name + ": no odometry in log");
+            return;
+        }
+        int count = Math.min(Math.min(timestamps.size(), yaws.size()), Math.min(poseX.size(), Math.min(poseY.size(), poseTheta.size())));
+        for (int i = 0; i < moduleNames.length; i++) {
+            if (speeds[i] == null || distances[i] == null || angles[i] == null) {
+                System.out.println(name + ": " + moduleNames[i] + " module not in log");
+                return;
+            }
+            count = Math.min(count, Math.min(speeds[i].size(), Math.min(distances[i].size(), angles[i].size())));
+        }
+
+        LogReader.Channel resetX = log.get("Odometry reset x");
+        LogReader.Channel resetY = log.get("Odometry reset y");
+        LogReader.Channel resetTheta = log.get("Odometry reset theta");
+        int resetCount = resetTheta == null ? 0 : Math.min(resetX.size(), Math.min(resetY.size(), resetTheta.size()));
+        int nextReset = 0;
+
+        // Both modes pick up from the logged pose in a new part of the log or after a pause
+        LogReader.Channel syncs = log.get("Odometry sync");
+        int syncCount = syncs == null ? 0 : syncs.size();
+        int nextSync = 0;
+        boolean started = startingYaw != null && startingYaw.size() > 0;
+
+        Rotation2d startingRotation = started ? Rotation2d.fromDegrees(startingYaw.getValue(0)) : new Rotation2d();
+        DriveOdometry velocityOdometry = new DriveOdometry(DriveOdometry.Mode.velocity, Constants.Drive.MODULE_TRANSLATIONS, startingRotation);
+        DriveOdometry deltaOdometry = new DriveOdometry(DriveOdometry.Mode.positionDelta, Constants.Drive.MODULE_TRANSLATIONS, startingRotation);
+        double[] moduleSpeeds = new double[moduleNames.length];
+        double[] moduleDistances = new double[moduleNames.length];
+        double[] moduleAngles = new double[moduleNames.length];
+
+        double maxDifference = 0;
+        double difference = 0;
+        double pathLength = 0;
+        Pose2d lastPose = null;
+        for (int i = 0; i < count; i++) {
+            while (nextReset < resetCount && resetTheta.getTimestamp(nextReset) < timestamps.getTimestamp(i)) {
+                Pose2d reset = new Pose2d(resetX.getValue(nextReset), resetY.getValue(nextReset), Rotation2d.fromDegrees(resetTheta.getValue(nextReset)));
+                velocityOdometry.reset(reset);
+                deltaOdometry.reset(reset);
+                lastPose = null;
+                nextReset++;
+            }
+            boolean sync = false;
+            while (nextSync < syncCount && syncs.getTimestamp(nextSync) < timestamps.getTimestamp(i)) {
+                sync = true;
+                nextSync++;
+            }
+
+            for (int j = 0; j < moduleNames.length; j++) {
+                moduleSpeeds[j] = speeds[j].getValue(i);
+                moduleDistances[j] = distances[j].getValue(i);
+                moduleAngles[j] = angles[j].getValue(i);
+            }
+            if (sync) {
+                double heading = Math.toRadians(poseTheta.getValue(i));
+                velocityOdometry.resync(timestamps.getValue(i), yaws.getValue(i), moduleDistances, poseX.getValue(i), poseY.getValue(i), heading);
+                deltaOdometry.resync(timestamps.getValue(i), yaws.getValue(i), moduleDistances, poseX.getValue(i), poseY.getValue(i), heading);
+                lastPose = null;
+                started = true;
+                continue;
+            }
+            if (!started) {
+                continue;
+            }
+            velocityOdometry.update(timestamps.getValue(i), yaws.getValue(i), moduleSpeeds, moduleDistances, moduleAngles);
+            deltaOdometry.update(timestamps.getValue(i), yaws.getValue(i), moduleSpeeds, moduleDistances, moduleAngles);
+            Pose2d velocityPose = velocityOdometry.getPose();
+            Pose2d deltaPose = deltaOdometry.getPose();
+
+            if (lastPose != null) {
+                pathLength += deltaPose.getTranslation().getDistance(lastPose.getTranslation());
+            }
+            lastPose = deltaPose;
+            difference = velocityPose.getTranslation().getDistance(deltaPose.getTranslation());
+            maxDifference = Math.max(maxDifference, difference);
+        }
+
+        System.out.printf("%s: %d updates, %.1f m driven, modes end %.4f m apart (max %.4f m)%n", name, count, pathLength, difference, maxDifference);
+    }
+}
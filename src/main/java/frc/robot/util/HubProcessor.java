@@ -0,0 +1,105 @@
+package frc.robot.util;
+
+import friarLib2.vision.HubCircleSolver;
+import friarLib2.vision.VisionCamera;
+import friarLib2.vision.VisionManager;
+import friarLib2.vision.VisionMeasurement;
+import friarLib2.vision.VisionTarget;
+
+/**
+ * Finds the hub in a camera's frames by fitting its ring of tape to
+ * every strip the camera sees, falling back on the best target's pitch
+ * if none of them can be fitted. Runs on a {@link VisionManager} worker
+ * thread, so each camera gets its own.
+ *
+ * <p>
+ * The measurement keeps the strips it was worked out from, so
+ * {@link frc.robot.tools.LogReplay} can run them through
+ * {@link #measure} again.
+ */
+public class HubProcessor implements VisionManager.FrameProcessor {
+
+    public static final int MAX_STRIPS = 16;
+
+    private final double mountYaw;
+    private final HubCircleSolver solver = new HubCircleSolver(
+        Targeting.HEIGHT_OF_CAMERA,
+        Targeting.ANGLE_OF_CAMERA,
+        Targeting.HEIGHT_OF_TARGET,
+        Targeting.HUB_VISION_TAPE_RADIUS,
+        MAX_STRIPS);
+    private final double[] stripYaws = new double[MAX_STRIPS];
+    private final double[] stripPitches = new double[MAX_STRIPS];
+
+    /**
+     * @param mountYaw Which way the camera faces on the robot in degrees, right is positive (180 for a rear camera)
+     */
+    public HubProcessor (double mountYaw) {
+        this.mountYaw = mountYaw;
+    }
+
+    @Override
+    public VisionMeasurement process (VisionCamera camera, String cameraName) {
+        VisionTarget[] targets = camera.getTargets();
+        int count = Math.min(targets.length, MAX_STRIPS);
+        for (int i = 0; i < count; i++) {
+            stripYaws[i] = targets[i].getX();
+            stripPitches[i] = getTargetPitch(targets[i]);
+        }
+
+        VisionTarget best = camera.getBestTarget();
+        return measure(cameraName, camera.getTimestamp(), stripYaws, stripPitches, count, best.getX(), getTargetPitch(best));
+    }
+
+    /**
+     * Work out where the hub is from the strips in one frame
+     *
+     * @param timestamp The FPGA time in seconds the frame was captured at
+     * @param yaws The yaw of each strip in degrees, right is positive
+     * @param pitches The pitch of each strip in degrees, up is positive
+     * @param count How many strips there are, up to {@link #MAX_STRIPS}
+     * @param bestTargetYaw The yaw of the frame's best target, used if the strips can't be fitted
+     * @param bestTargetPitch The pitch of the frame's best target
+     */
+    public VisionMeasurement measure (String cameraName, double timestamp, double[] yaws, double[] pitches, int count, double bestTargetYaw, double bestTargetPitch) {
+        double yaw;
+        double distance;
+        int stripCount;
+        double residual;
+        if (solver.solve(yaws, pitches, count)) {
+            yaw = solver.getYaw();
+            distance = solver.getTargetDistance();
+            stripCount = solver.getStripCount();
+            residual = solver.getRmsResidual();
+        } else {
+            // The solver's strip count and residual are left over from the last frame it fitted
+            yaw = bestTargetYaw;
+            distance = Targeting.calculateMetersFromTarget(bestTargetPitch);
+            stripCount = 1;
+            residual = 0;
+        }
+
+        return new VisionMeasurement(
+            cameraName,
+            timestamp,
+            Math.IEEEremainder(yaw + mountYaw, 360),
+            distance,
+            stripCount,
+            residual,
+            bestTargetYaw,
+            bestTargetPitch,
+            yaws,
+            pitches,
+            count);
+    }
+
+    /**
+     * Both PhotonVision and the limelight (ty) already report the pitch in
+     * degrees, so it doesn't need to be converted from pixels
+     *
+     * @return the angle in degrees between the camera's crosshair and the target, up is positive
+     */
+    public static double getTargetPitch (VisionTarget target) {
+        return target.getY();
+    }
+}
@@ -0,0 +1,154 @@
+package frc.robot.util;
+
+/**
+ * Works out where to aim, and how far to shoot, so that cargo shot from a
+ * moving robot still lands in the hub.
+ *
+ * <p>
+ * A cargo keeps the robot's velocity after it leaves the shooter, so it
+ * drifts by that velocity times its time of flight. Aiming at a virtual
+ * target, the hub moved back by that drift, cancels it out. The time of
+ * flight depends on how far away the virtual target is, which depends on
+ * the time of flight, so the solver iterates: it finds the time t where
+ * t = timeOfFlight(|hub - velocity * t|) with Newton's method, which
+ * settles in two or three iterations.
+ *
+ * <p>
+ * The time of flight is modelled as a straight line in the distance to
+ * the hub's center. Positions and velocities are field relative, with the
+ * robot at the origin. Nothing is allocated, and the results are read
+ * from the getters after each {@link #solve}.
+ */
+public class MovingShotSolver {
+
+    private static final int MAX_ITERATIONS = 5;
+    private static final double CONVERGED = 1e-4; // Seconds
+
+    private final double timeOfFlightBase;
+    private final double timeOfFlightPerMeter;
+
+    private boolean hasSolution = false;
+    private double virtualDX = 0;
+    private double virtualDY = 0;
+    private double timeOfFlight = 0;
+    private int iterations = 0;
+
+    /**
+     * @param timeOfFlightBase The time of flight in seconds, extrapolated back to the center of the hub
+     * @param timeOfFlightPerMeter How much longer the cargo flies per meter from the center of the hub, in seconds
+     */
+    public MovingShotSolver (double timeOfFlightBase, double timeOfFlightPerMeter) {
+        this.timeOfFlightBase = timeOfFlightBase;
+        this.timeOfFlightPerMeter = timeOfFlightPerMeter;
+    }
+
+    /**
+     * Find the virtual target
+     *
+     * @param hubDX The hub's field x minus the robot's, in meters
+     * @param hubDY The hub's field y minus the robot's, in meters
+     * @param vx The robot's field relative x velocity in meters/second
+     * @param vy The robot's field relative y velocity in meters/second
+     */
+    public void solve (double hubDX, double hubDY, double vx, double vy) {
+        double time = calculateTimeOfFlight(Math.hypot(hubDX, hubDY));
+        iterations = 0;
+        while (iterations < MAX_ITERATIONS) {
+            iterations++;
+            double dx = hubDX - vx * time;
+            double dy = hubDY - vy * time;
+            double distance = Math.hypot(dx, dy);
+
+            // f(t) = t - timeOfFlight(|hub - v t|) and its slope
+            double error = time - calculateTimeOfFlight(distance);
+            double slope = 1;
+            if (distance > 1e-9) {
+                slope += timeOfFlightPerMeter * (dx * vx + dy * vy) / distance;
+            }
+            double step = slope > 0.1 ? error / slope : error; // Fall back to a plain fixed point step if Newton's would blow up
+            time = Math.max(time - step, 0);
+            if (Math.abs(step) < CONVERGED) {
+                break;
+            }
+        }
+
+        timeOfFlight = time;
+        virtualDX = hubDX - vx * time;
+        virtualDY = hubDY - vy * time;
+        hasSolution = true;
+    }
+
+    /**
+     * Forget the last solution, e.g. when the hub hasn't been found
+     */
+    public void clear () {
+        hasSolution = false;
+    }
+
+    /**
+     * @param metersFromHubCenter The distance the cargo has to travel
+     * @return How long the cargo takes to get there, in seconds
+     */
+    public double calculateTimeOfFlight (double metersFromHubCenter) {
+        return Math.max(timeOfFlightBase + timeOfFlightPerMeter * metersFromHubCenter, 0);
+    }
+
+    /**
+     * @return If {@link #solve} has been called since the last {@link #clear}
+     */
+    public boolean hasSolution () {
+        return hasSolution;
+    }
+
+    /**
+     * @return The virtual target's field x minus the robot's, in meters
+     */
+    public double getVirtualDX () {
+        return virtualDX;
+    }
+
+    /**
+     * @return The virtual target's field y minus the robot's, in meters
+     */
+    public double getVirtualDY () {
+        return virtualDY;
+    }
+
+    /**
+     * @return The distance to the center of the virtual target, in meters
+     */
+    public double getVirtualDistance () {
+        return Math.hypot(virtualDX, virtualDY);
+    }
+
+    /**
+     * @return The distance to the virtual target's vision tape, comparable
+     *     to {@link frc.robot.Vision#getMetersFromTarget()}, for looking up
+     *     the flywheel speed in a {@link ShootingMap}
+     */
+    public double getVirtualMetersFromTarget () {
+        return getVirtualDistance() - Targeting.HUB_VISION_TAPE_RADIUS;
+    }
+
+    /**
+     * @param headingRadians The robot's heading
+     * @return The angle between the front of the robot and the virtual target in degrees, right is positive
+     */
+    public double getVirtualYaw (double headingRadians) {
+        return Targeting.calculateYawToHub(virtualDX, virtualDY, headingRadians);
+    }
+
+    /**
+     * @return The cargo's time of flight to the virtual target, in seconds
+     */
+    public double getTimeOfFlight () {
+        return timeOfFlight;
+    }
+
+    /**
+     * @return How many iterations the last solution took
+     */
+    public int getIterations () {
+        return iterations;
+    }
+}
@@ -0,0 +1,241 @@
+package frc.robot.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * The flywheel speed and deflector state to shoot into the high hub
+ * from any distance, interpolated between calibrated shots.
+ *
+ * <p>
+ * The deflector changes the shot's trajectory completely, so speeds are
+ * never interpolated across it. The deflector state comes from the
+ * closest calibrated shot, and the speed is interpolated between the
+ * calibrated shots on either side that use that same state. Past the
+ * ends of a state's shots, their speed is held.
+ *
+ * <p>
+ * The shots are kept in sorted primitive arrays, so a lookup is a binary
+ * search and doesn't allocate anything.
+ *
+ * <p>
+ * The map is loaded from a CSV file in the deploy directory, so it can
+ * be retuned without rebuilding the code. Each line is a shot:
+ * {@code meters,rpm,deflector}, where meters is
+ * {@link frc.robot.Vision#getMetersFromTarget()} and deflector is true
+ * or false. Blank lines, lines starting with # and a
+ * {@code meters,rpm,deflector} header line before the first shot are
+ * skipped. Anything else is an error, so a typo can't quietly drop a shot
+ * or change its deflector state.
+ */
+public class ShootingMap {
+
+    private static final String[] HEADER = {"meters", "rpm", "deflector"};
+
+    private final double[] distances; // Sorted
+    private final boolean[] deflectors;
+
+    // Each deflector state's shots, sorted by distance
+    private final double[] deflectorDistances;
+    private final double[] deflectorRPMs;
+    private final double[] noDeflectorDistances;
+    private final double[] noDeflectorRPMs;
+
+    /**
+     * @param distances Where each calibrated shot was taken from, in meters from the target
+     * @param rpms The flywheel speed of each shot
+     * @param deflectors If the deflector was deployed for each shot
+     */
+    public ShootingMap (double[] distances, double[] rpms, boolean[] deflectors) {
+        if (distances.length == 0 || distances.length != rpms.length || distances.length != deflectors.length) {
+            throw new IllegalArgumentException("A shooting map needs at least one shot, and a speed and deflector state for each distance");
+        }
+
+        // Sort the shots by distance
+        Integer[] order = new Integer[distances.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(distances[a], distances[b]));
+
+        this.distances = new double[distances.length];
+        this.deflectors = new boolean[distances.length];
+        int deflectorCount = 0;
+        for (int i = 0; i < order.length; i++) {
+            this.distances[i] = distances[order[i]];
+            this.deflectors[i] = deflectors[order[i]];
+            if (this.deflectors[i]) {
+                deflectorCount++;
+            }
+        }
+
+        deflectorDistances = new double[deflectorCount];
+        deflectorRPMs = new double[deflectorCount];
+        noDeflectorDistances = new double[distances.length - deflectorCount];
+        noDeflectorRPMs = new double[distances.length - deflectorCount];
+        int deflectorIndex = 0;
+        int noDeflectorIndex = 0;
+        for (int i = 0; i < order.length; i++) {
+            if (deflectors[order[i]]) {
+                deflectorDistances[deflectorIndex] = distances[order[i]];
+                deflectorRPMs[deflectorIndex++] = rpms[order[i]];
+            } else {
+                noDeflectorDistances[noDeflectorIndex] = distances[order[i]];
+                noDeflectorRPMs[noDeflectorIndex++] = rpms[order[i]];
+            }
+        }
+    }
+
+    /**
+     * Read a shooting map from a CSV file
+     *
+     * @throws IOException If the file can't be read
+     * @throws IllegalArgumentException If a line isn't a shot, or there are no shots
+     */
+    public static ShootingMap load (Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        double[] distances = new double[lines.size()];
+        double[] rpms = new double[lines.size()];
+        boolean[] deflectors = new boolean[lines.size()];
+
+        int count = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            String[] fields = line.split(",");
+            if (fields.length != 3) {
+                throw new IllegalArgumentException(file.getFileName() + " line " + (i + 1) + ": expected meters,rpm,deflector");
+            }
+            if (count == 0 && isHeader(fields)) {
+                continue;
+            }
+            try {
+                distances[count] = Double.parseDouble(fields[0].trim());
+                rpms[count] = Double.parseDouble(fields[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(file.getFileName() + " line " + (i + 1) + ": " + e.getMessage());
+            }
+            String deflector = fields[2].trim();
+            if (!deflector.equalsIgnoreCase("true") && !deflector.equalsIgnoreCase("false")) {
+                throw new IllegalArgumentException(file.getFileName() + " line " + (i + 1) + ": deflector must be true or false, not " + deflector);
+            }
+            deflectors[count] = Boolean.parseBoolean(deflector);
+            count++;
+        }
+
+        return new ShootingMap(Arrays.copyOf(distances, count), Arrays.copyOf(rpms, count), Arrays.copyOf(deflectors, count));
+    }
+
+    private static boolean isHeader (String[] fields) {
+        for (int i = 0; i < HEADER.length; i++) {
+            if (!fields[i].trim().equalsIgnoreCase(HEADER[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read a shooting map from the deploy directory, or report the
+     * problem on the driver station and use the fallback if it can't be
+     *
+     * @param fileName The name of the file in the deploy directory
+     * @param fallback A map to use instead if the file is missing or broken
+     */
+    public static ShootingMap loadFromDeploy (String fileName, ShootingMap fallback) {
+        Path file = Filesystem.getDeployDirectory().toPath().resolve(fileName);
+        try {
+            return load(file);
+        } catch (IOException | IllegalArgumentException e) {
+            DriverStation.reportError("Could not load shooting map, using the fallback: " + e.getMessage(), false);
+            return fallback;
+        }
+    }
+
+    /**
+     * @param metersFromTarget The distance to the target
+     * @return If the deflector should be deployed
+     */
+    public boolean getDeflector (double metersFromTarget) {
+        int after = findFirstAtOrAfter(distances, metersFromTarget);
+        if (after == 0) {
+            return deflectors[0];
+        }
+        if (after == distances.length) {
+            return deflectors[distances.length - 1];
+        }
+        boolean afterIsCloser = distances[after] - metersFromTarget < metersFromTarget - distances[after - 1];
+        return afterIsCloser ? deflectors[after] : deflectors[after - 1];
+    }
+
+    /**
+     * @param metersFromTarget The distance to the target
+     * @return The flywheel speed in RPM, for the deflector state from {@link #getDeflector(double)}
+     */
+    public double getFlywheelRPM (double metersFromTarget) {
+        if (getDeflector(metersFromTarget)) {
+            return interpolate(deflectorDistances, deflectorRPMs, metersFromTarget);
+        } else {
+            return interpolate(noDeflectorDistances, noDeflectorRPMs, metersFromTarget);
+        }
+    }
+
+    /**
+     * @return The closest calibrated shot, in meters from the target
+     */
+    public double getMinDistance () {
+        return distances[0];
+    }
+
+    /**
+     * @return The furthest calibrated shot, in meters from the target
+     */
+    public double getMaxDistance () {
+        return distances[distances.length - 1];
+    }
+
+    /**
+     * @return If the distance is between the closest and furthest calibrated shots
+     */
+    public boolean isInRange (double metersFromTarget) {
+        return metersFromTarget >= getMinDistance() && metersFromTarget <= getMaxDistance();
+    }
+
+    private static double interpolate (double[] xs, double[] ys, double x) {
+        int after = findFirstAtOrAfter(xs, x);
+        if (after == 0) {
+            return ys[0];
+        }
+        if (after == xs.length) {
+            return ys[xs.length - 1];
+        }
+        double t = (x - xs[after - 1]) / (xs[after] - xs[after - 1]);
+        return ys[after - 1] + (ys[after] - ys[after - 1]) * t;
+    }
+
+    /**
+     * @return The index of the first value at or after x, or the length if there isn't one
+     */
+    private static int findFirstAtOrAfter (double[] sorted, double x) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
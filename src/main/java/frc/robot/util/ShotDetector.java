@@ -0,0 +1,332 @@
+package frc.robot.util;
+
+/**
+ * Detects each cargo leaving the shooter from the flywheel's speed and
+ * current, and keeps timing metrics for every shot.
+ *
+ * <p>
+ * A cargo takes a chunk of speed out of the flywheel, and the velocity
+ * loop answers with a burst of current. A drop in speed alone can be
+ * sensor noise or a lower setpoint, and a burst of current alone is the
+ * flywheel spinning up, so a shot is only counted when the speed falls
+ * by more than a threshold below its recent peak and the current spikes
+ * within a couple of samples of it. The peak is capped at the setpoint,
+ * so slowing down to a lower setpoint and then spinning up to a higher
+ * one doesn't look like a shot. The detector then waits for the
+ * speed to climb back out of the dip before it can count another shot,
+ * so one dip spread over several samples by the motor's velocity filter
+ * only counts once.
+ *
+ * <p>
+ * For each shot it records when the cargo left, the speed it left at,
+ * the gap since the previous shot in the same sequence, and how long the
+ * flywheel took to get back to its setpoint. A sequence is one run of
+ * the Shoot command, and the time from its start to its first shot is
+ * kept too. Shots are stored in parallel primitive arrays used as a ring
+ * buffer, so nothing is allocated while the robot runs.
+ */
+public class ShotDetector {
+
+    private static final int PEAK_WINDOW = 4; // Samples the drop is measured over, about the motor's velocity filter
+    private static final int CURRENT_WINDOW = 2; // Samples after a drop to wait for the current spike
+    private static final int RECOVERED_SAMPLES = 3; // Samples in a row within tolerance to count as recovered
+
+    private final double rpmDrop;
+    private final double currentSpike;
+    private final double recoveryTolerance;
+
+    // Recent speeds and setpoints, to find the peak before a drop. Filled from index 0 after a clear.
+    private final double[] recentRPM = new double[PEAK_WINDOW];
+    private final double[] recentReferenceRPM = new double[PEAK_WINDOW];
+    private int recentCount = 0;
+    private int recentHead = 0;
+    private double lowestRPM = 0; // Since the last shot, to tell when the dip is over
+
+    private boolean armed = true;
+    private int pendingSamples = 0; // Samples left to wait for the current after a drop, 0 if there's no drop
+    private double pendingTime = 0;
+    private double pendingReleaseRPM = 0;
+
+    private boolean recovering = false;
+    private int recoveredSamples = 0;
+    private double recoveredSince = 0;
+
+    // Stored shots, a ring buffer
+    private final int capacity;
+    private final double[] shotTimes; // Seconds
+    private final double[] releaseRPMs;
+    private final double[] gaps; // Seconds since the previous shot in the sequence, NaN for the first
+    private final double[] recoveryTimes; // Seconds, NaN until recovered or if the next shot came first
+    private int head = 0; // Where the next shot goes
+    private int totalShots = 0;
+
+    private boolean inSequence = false;
+    private double sequenceStartTime = 0;
+    private int sequenceShots = 0;
+    private double firstShotDelay = Double.NaN;
+
+    private boolean shotDetected = false;
+    private boolean recoveryDetected = false;
+
+    /**
+     * @param rpmDrop How far the speed has to fall below its recent peak to be a shot, in RPM
+     * @param currentSpike How much current the velocity loop has to draw right after the drop to be a shot, in amps
+     * @param recoveryTolerance How close to the setpoint counts as recovered, in RPM
+     * @param capacity How many shots to remember
+     */
+    public ShotDetector (double rpmDrop, double currentSpike, double recoveryTolerance, int capacity) {
+        this.rpmDrop = rpmDrop;
+        this.currentSpike = currentSpike;
+        this.recoveryTolerance = recoveryTolerance;
+        this.capacity = capacity;
+        shotTimes = new double[capacity];
+        releaseRPMs = new double[capacity];
+        gaps = new double[capacity];
+        recoveryTimes = new double[capacity];
+    }
+
+    /**
+     * Start timing a sequence of shots, e.g. when the Shoot command starts
+     *
+     * @param timestamp In seconds
+     */
+    public void startSequence (double timestamp) {
+        inSequence = true;
+        sequenceStartTime = timestamp;
+        sequenceShots = 0;
+        firstShotDelay = Double.NaN;
+    }
+
+    /**
+     * Stop timing the current sequence. Shots are still detected, but not
+     * timed against a start.
+     */
+    public void endSequence () {
+        inSequence = false;
+    }
+
+    /**
+     * Take in the latest measurements. Called once per loop.
+     *
+     * @param timestamp In seconds
+     * @param rpm The flywheel's measured speed
+     * @param amps The flywheel motor's stator current, positive when speeding the flywheel up
+     * @param referenceRPM The flywheel's setpoint, 0 when it's off
+     */
+    public void update (double timestamp, double rpm, double amps, double referenceRPM) {
+        shotDetected = false;
+        recoveryDetected = false;
+
+        if (referenceRPM == 0) {
+            // Nothing leaves a stopped flywheel on purpose
+            clearRecent();
+            pendingSamples = 0;
+            recovering = false;
+            armed = true;
+            return;
+        }
+
+        if (!armed) {
+            // Half the drop back up is well clear of the noise, so the dip is over
+            lowestRPM = Math.min(lowestRPM, rpm);
+            if (rpm - lowestRPM >= rpmDrop / 2) {
+                armed = true;
+                clearRecent();
+            }
+        }
+
+        // A big enough drop below the recent peak starts waiting for the current spike.
+        // Only speed below the setpoint at the time counts, so slowing down to a
+        // lower setpoint and then speeding up to a higher one isn't a shot.
+        if (armed && pendingSamples == 0 && recentCount > 0) {
+            double peak = Double.NEGATIVE_INFINITY;
+            double releaseRPM = 0;
+            for (int i = 0; i < recentCount; i++) {
+                double belowReference = Math.min(recentRPM[i], recentReferenceRPM[i]);
+                if (belowReference > peak) {
+                    peak = belowReference;
+                    releaseRPM = recentRPM[i];
+                }
+            }
+            if (peak - rpm >= rpmDrop) {
+                pendingSamples = CURRENT_WINDOW + 1;
+                pendingTime = timestamp;
+                pendingReleaseRPM = releaseRPM;
+            }
+        }
+
+        if (pendingSamples > 0) {
+            if (amps >= currentSpike) {
+                recordShot(pendingTime, pendingReleaseRPM);
+                pendingSamples = 0;
+                armed = false;
+                lowestRPM = rpm;
+            } else {
+                pendingSamples--;
+            }
+        }
+
+        if (recovering) {
+            updateRecovery(timestamp, rpm, referenceRPM);
+        }
+
+        recentRPM[recentHead] = rpm;
+        recentReferenceRPM[recentHead] = referenceRPM;
+        recentHead = (recentHead + 1) % PEAK_WINDOW;
+        recentCount = Math.min(recentCount + 1, PEAK_WINDOW);
+    }
+
+    private void clearRecent () {
+        recentCount = 0;
+        recentHead = 0;
+    }
+
+    private void recordShot (double timestamp, double releaseRPM) {
+        int last = (head - 1 + capacity) % capacity;
+        boolean hasPrevious = inSequence && sequenceShots > 0;
+
+        shotTimes[head] = timestamp;
+        releaseRPMs[head] = releaseRPM;
+        gaps[head] = hasPrevious ? timestamp - shotTimes[last] : Double.NaN;
+        recoveryTimes[head] = Double.NaN;
+        head = (head + 1) % capacity;
+        totalShots++;
+
+        if (inSequence) {
+            if (sequenceShots == 0) {
+                firstShotDelay = timestamp - sequenceStartTime;
+            }
+            sequenceShots++;
+        }
+
+        recovering = true;
+        recoveredSamples = 0;
+        shotDetected = true;
+    }
+
+    private void updateRecovery (double timestamp, double rpm, double referenceRPM) {
+        if (Math.abs(referenceRPM - rpm) > recoveryTolerance) {
+            recoveredSamples = 0;
+            return;
+        }
+
+        if (recoveredSamples == 0) {
+            recoveredSince = timestamp;
+        }
+        recoveredSamples++;
+        if (recoveredSamples >= RECOVERED_SAMPLES) {
+            int last = (head - 1 + capacity) % capacity;
+            recoveryTimes[last] = recoveredSince - shotTimes[last];
+            recovering = false;
+            recoveryDetected = true;
+        }
+    }
+
+    /**
+     * @return If the last {@link #update} detected a shot
+     */
+    public boolean wasShotDetected () {
+        return shotDetected;
+    }
+
+    /**
+     * @return If the last {@link #update} saw the flywheel recover from the last shot
+     */
+    public boolean wasRecoveryDetected () {
+        return recoveryDetected;
+    }
+
+    /**
+     * @return How many shots have been detected in total
+     */
+    public int getShotCount () {
+        return totalShots;
+    }
+
+    /**
+     * @return How many shots have been detected since the last {@link #startSequence}
+     */
+    public int getSequenceShotCount () {
+        return sequenceShots;
+    }
+
+    /**
+     * @return Seconds from the last {@link #startSequence} to its first shot, NaN until there is one
+     */
+    public double getFirstShotDelay () {
+        return firstShotDelay;
+    }
+
+    /**
+     * @return How many shots are stored, up to the capacity
+     */
+    public int getStoredShotCount () {
+        return Math.min(totalShots, capacity);
+    }
+
+    /**
+     * @param shotsAgo 0 for the most recent shot, up to {@link #getStoredShotCount()} - 1
+     * @return When the cargo left, in seconds
+     */
+    public double getShotTime (int shotsAgo) {
+        return shotTimes[index(shotsAgo)];
+    }
+
+    /**
+     * @param shotsAgo 0 for the most recent shot
+     * @return The flywheel's speed as the cargo left, in RPM
+     */
+    public double getReleaseRPM (int shotsAgo) {
+        return releaseRPMs[index(shotsAgo)];
+    }
+
+    /**
+     * @param shotsAgo 0 for the most recent shot
+     * @return Seconds since the previous shot in the same sequence, NaN for the first
+     */
+    public double getGap (int shotsAgo) {
+        return gaps[index(shotsAgo)];
+    }
+
+    /**
+     * @param shotsAgo 0 for the most recent shot
+     * @return Seconds from the shot until the flywheel was back within
+     *     tolerance, NaN if it hasn't recovered yet or the next shot came first
+     */
+    public double getRecoveryTime (int shotsAgo) {
+        return recoveryTimes[index(shotsAgo)];
+    }
+
+    /**
+     * @return The average gap between shots in the stored shots, in seconds, NaN if there are none
+     */
+    public double getAverageGap () {
+        return average(gaps);
+    }
+
+    /**
+     * @return The average recovery time of the stored shots, in seconds, NaN if there are none
+     */
+    public double getAverageRecoveryTime () {
+        return average(recoveryTimes);
+    }
+
+    private double average (double[] values) {
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < getStoredShotCount(); i++) {
+            if (!Double.isNaN(values[i])) {
+                sum += values[i];
+                count++;
+            }
+        }
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    private int index (int shotsAgo) {
+        if (shotsAgo < 0 || shotsAgo >= getStoredShotCount()) {
+            throw new IllegalArgumentException("Only " + getStoredShotCount() + " shots are stored, asked for " + shotsAgo + " shots ago");
+        }
+        return (head - 1 - shotsAgo + capacity) % capacity;
+    }
+}
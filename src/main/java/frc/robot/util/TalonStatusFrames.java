@@ -36,4 +36,15 @@ public class TalonStatusFrames {
 
         motor.setStatusFramePeriod(Status_1_General, 255);
     }
+
+    /**
+     * Raise the frequency of the frame carrying the selected sensor's
+     * position and velocity, for motors that are read by the odometry
+     * thread
+     *
+     * @param periodMs How often the frame should be sent in milliseconds
+     */
+    public static void configOdometryFrames(BaseTalon motor, int periodMs) {
+        motor.setStatusFramePeriod(Status_2_Feedback0, periodMs);
+    }
 }
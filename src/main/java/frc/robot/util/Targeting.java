@@ -0,0 +1,130 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.util.Units;
+import frc.robot.Constants;
+import friarLib2.vision.TargetTracker;
+
+/**
+ * The math used to aim at the hub, kept separate from the camera and
+ * drivetrain code so that it can be rerun on logged data.
+ *
+ * <p>
+ * Nothing in here touches hardware or NetworkTables, so it can be
+ * used from desktop tools like {@link frc.robot.tools.LogReplay}.
+ */
+public class Targeting {
+
+    public static final double HEIGHT_OF_CAMERA = 0.7747; // Meters
+    public static final double ANGLE_OF_CAMERA = 34.8; // Degrees
+    public static final double HEIGHT_OF_TARGET = Units.inchesToMeters(12*8 + 8); // Meters
+    public static final double CAMERA_HORIZONTAL_FOV = 59.6; // Degrees
+    public static final double CAMERA_VERTICAL_FOV = 49.7; // Degrees
+    public static final double CAMERA_MOUNT_YAW = 0; // Degrees, which way the camera faces on the robot, right is positive
+
+    // The camera is assumed to be at the center of the robot, facing forward
+    public static final double HUB_X = 8.23; // Meters, the center of the field
+    public static final double HUB_Y = 4.115; // Meters
+    public static final double HUB_VISION_TAPE_RADIUS = Units.inchesToMeters(53.375 / 2); // Meters, the tape ring is 4 ft 5.375 in across
+    public static final int HUB_VISION_TAPE_STRIPS = 16; // Evenly spaced around the ring
+    public static final double HUB_VISION_TAPE_WIDTH = Units.inchesToMeters(5); // Meters, each strip
+    public static final double HUB_VISION_TAPE_HEIGHT = Units.inchesToMeters(2); // Meters, each strip
+
+    /**
+     * Calculate the distance to the hub from how far above the camera's
+     * crosshair the vision tape is
+     *
+     * @param targetPitch The angle between the camera's crosshair and the target in degrees, up is positive
+     * @return The distance in meters from the target
+     */
+    public static double calculateMetersFromTarget (double targetPitch) {
+        return (HEIGHT_OF_TARGET - HEIGHT_OF_CAMERA) / Math.tan(Math.toRadians(ANGLE_OF_CAMERA + targetPitch));
+    }
+
+    /**
+     * @return A tracker for the hub, set up for how noisy the camera is
+     */
+    public static TargetTracker createHubTracker () {
+        return new TargetTracker(
+            0.5, // Yaw noise in degrees
+            0.1, // Distance noise in meters
+            20, // Yaw acceleration in degrees/second squared, besides the robot's own motion
+            1, // Distance acceleration in meters/second squared, besides the robot's own motion
+            0.5); // Seconds to keep predicting the hub after losing sight of it
+    }
+
+    /**
+     * Calculate the distance to the hub from its tracker
+     *
+     * @param hubTracker Tracking the distance to the center of the hub
+     * @param now The current time in seconds
+     * @param lastDistance What this returned last time
+     * @return The distance in meters from the target, or lastDistance if the hub has been out of sight for too long
+     */
+    public static double calculateMetersFromTarget (TargetTracker hubTracker, double now, double lastDistance) {
+        if (hubTracker.hasTrack(now)) {
+            return hubTracker.getDistance() - HUB_VISION_TAPE_RADIUS;
+        }
+        return lastDistance;
+    }
+
+    /**
+     * Calculate where the robot is on the field from where it sees the hub
+     *
+     * @param metersFromTarget The distance to the vision tape, from {@link #calculateMetersFromTarget(double)}
+     * @param targetYaw The angle between the camera's crosshair and the target in degrees, right is positive
+     * @param headingRadians The robot's heading on the field when the target was seen
+     * @param position Filled with the robot's x and y on the field in meters
+     */
+    public static void calculateRobotPosition (double metersFromTarget, double targetYaw, double headingRadians, double[] position) {
+        double directionToHub = headingRadians - Math.toRadians(targetYaw);
+        double metersFromHubCenter = metersFromTarget + HUB_VISION_TAPE_RADIUS;
+        position[0] = HUB_X - metersFromHubCenter * Math.cos(directionToHub);
+        position[1] = HUB_Y - metersFromHubCenter * Math.sin(directionToHub);
+    }
+
+    /**
+     * Calculate the angle to the hub from where it is relative to the robot,
+     * e.g. from an estimate of where it is on the field when the camera
+     * can't see it
+     *
+     * @param hubDX The hub's field x minus the robot's, in meters
+     * @param hubDY The hub's field y minus the robot's, in meters
+     * @param headingRadians The robot's heading
+     * @return The angle between the front of the robot and the hub in degrees, right is positive
+     */
+    public static double calculateYawToHub (double hubDX, double hubDY, double headingRadians) {
+        return -Math.toDegrees(MathUtil.angleModulus(Math.atan2(hubDY, hubDX) - headingRadians));
+    }
+
+    /**
+     * Calculate how fast the direction to the hub is turning because the
+     * robot is driving past it. Turning at this speed keeps the robot
+     * pointed at the hub while strafing, so the aim PID only has to fix
+     * what is left over.
+     *
+     * @param hubDX The hub's field x minus the robot's, in meters
+     * @param hubDY The hub's field y minus the robot's, in meters
+     * @param vx The robot's field relative x velocity in meters/second
+     * @param vy The robot's field relative y velocity in meters/second
+     * @return The rotational speed in radians/second, counterclockwise positive
+     */
+    public static double calculateAimFeedforward (double hubDX, double hubDY, double vx, double vy) {
+        double distanceSquared = hubDX * hubDX + hubDY * hubDY;
+        if (distanceSquared < HUB_VISION_TAPE_RADIUS * HUB_VISION_TAPE_RADIUS) {
+            return 0; // Too close for the direction to mean anything
+        }
+        return (hubDY * vx - hubDX * vy) / distanceSquared;
+    }
+
+    /**
+     * Calculate how fast to turn the robot to point it at the hub
+     *
+     * @param targetYaw The angle between the camera's crosshair and the target in degrees
+     * @return The rotational speed to command
+     */
+    public static double calculateAimSpeed (double targetYaw) {
+        Constants.Drive.VISION_AIM_PID.setSetpoint(1);
+        return Constants.Drive.VISION_AIM_PID.calculate(targetYaw);
+    }
+}
@@ -1,5 +1,6 @@
 package friarLib2.hardware;
 
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 
 /**
@@ -8,9 +9,38 @@ import edu.wpi.first.math.kinematics.SwerveModuleState;
 public interface SwerveModule {
     public void setState (SwerveModuleState state);
     public SwerveModuleState getState ();
-    
-    default public void outputToDashboard () {}
+
+    /**
+     * Set the state of the module without creating a SwerveModuleState.
+     * The state should already be optimized against the module's
+     * current angle.
+     *
+     * @param speedMetersPerSecond The target speed of the wheel
+     * @param angleDegrees The target angle of the module, not wrapped
+     */
+    default public void setOptimizedState (double speedMetersPerSecond, double angleDegrees) {
+        setState(new SwerveModuleState(speedMetersPerSecond, Rotation2d.fromDegrees(angleDegrees)));
+    }
+
+    /**
+     * @return The speed of the wheel in meters/second
+     */
+    default public double getSpeedMetersPerSecond () {
+        return getState().speedMetersPerSecond;
+    }
+
+    /**
+     * @return The angle of the module in degrees, not wrapped
+     */
+    default public double getAngleDegrees () {
+        return getState().angle.getDegrees();
+    }
+
+    /**
+     * Read the module's sensors. Called once per loop, before getState().
+     */
+    default public void updateInputs () {}
 
     default public boolean steeringHasSlipped () { return false; }
     default public void zeroSteering () {}
-}
\ No newline at end of file
+}
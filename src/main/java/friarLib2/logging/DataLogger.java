@@ -0,0 +1,449 @@
+package friarLib2.logging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Records timestamped samples to a compact binary file on the robot.
+ *
+ * <p>
+ * Samples are written into a preallocated, off-heap ring buffer, so
+ * logging a value from the main loop is just a few memory writes and
+ * never touches the disk. A background thread drains the buffer to the
+ * log file with NIO channel writes. If the buffer ever fills up (the disk
+ * is too slow or missing), new samples are dropped and counted instead of
+ * blocking the main loop.
+ *
+ * <p>
+ * Only one thread (the main robot thread) should log samples. Channels
+ * may be added at any time, from any thread.
+ *
+ * <p>
+ * The logging thread calls {@link #beginLoop()} at the start of each of
+ * its loops. Once a file holds the maximum number of bytes, the next loop
+ * starts a new file ({@code _2}, {@code _3}... added to the name), so a
+ * loop's samples are never split between files. Whenever a file is
+ * started, the oldest logs in the directory are deleted until the
+ * directory is back under its budget. Logging can also be paused with
+ * {@link #setPaused(boolean)}, which takes effect at the next loop.
+ *
+ * <p>
+ * File format (big endian):
+ * <pre>
+ * header:     "3309LOG" magic, 1 byte version
+ * definition: short -1, short channel ID, short name length, UTF-8 name
+ * sample:     short channel ID, long FPGA timestamp in microseconds, double value
+ * </pre>
+ * A channel's definition is always written before any of its samples.
+ */
+public class DataLogger {
+
+    static final byte[] MAGIC = "3309LOG".getBytes(StandardCharsets.US_ASCII);
+    static final byte VERSION = 1;
+    static final short DEFINITION_TAG = -1;
+    static final int SAMPLE_SIZE = 2 + 8 + 8; // Channel ID, timestamp, value
+
+    private static final long FLUSH_PERIOD_NANOS = 20_000_000; // How long the writer thread sleeps when the buffer is empty
+    private static final long FORCE_PERIOD_NANOS = 1_000_000_000; // How often to make sure the data is on disk, in case the robot loses power
+    private static final String EXTENSION = ".bin";
+
+    // Files being written by any logger, so cleaning up never deletes one
+    private static final Set<Path> openFiles = ConcurrentHashMap.newKeySet();
+
+    private final int capacity; // In samples
+    private final ByteBuffer ring;
+    private final ByteBuffer drainView;
+
+    // Single producer, single consumer: only the main thread writes
+    // writeCount and only the writer thread writes readCount
+    private volatile long writeCount = 0;
+    private volatile long readCount = 0;
+    private long droppedCount = 0;
+
+    // The logging thread asks for a new file to start at the sample
+    // splitIndex, and the writer thread sets handledSplit once it has
+    private volatile long splitIndex = 0;
+    private volatile long handledSplit = 0;
+    private int part = 1;
+    private long fileStartCount = 0;
+    private boolean loopPaused = false;
+    private boolean wasPaused = false;
+    private boolean startedLoop = false;
+    private volatile boolean paused = false;
+
+    private final ConcurrentLinkedQueue<Channel> pendingDefinitions = new ConcurrentLinkedQueue<>();
+    private final List<Channel> writtenDefinitions = new ArrayList<>(); // Only used by the writer thread, to repeat them in each new file
+    private short nextChannelID = 0;
+
+    private Thread writerThread;
+    private volatile boolean running = false;
+    private Path directory;
+    private String baseName;
+    private long maxFileBytes;
+    private long directoryBudget;
+    private Path filePath;
+    private FileChannel file; // Only used by the writer thread
+    private int filePart = 1;
+
+    /**
+     * @param capacity How many samples the ring buffer can hold before
+     *     new samples get dropped
+     */
+    public DataLogger (int capacity) {
+        this.capacity = capacity;
+        ring = ByteBuffer.allocateDirect(capacity * SAMPLE_SIZE);
+        drainView = ring.duplicate();
+    }
+
+    /**
+     * Create a new channel to log samples to
+     *
+     * @param name A unique name for the channel, e.g. "Flywheel RPM"
+     * @return The channel
+     */
+    public synchronized Channel addChannel (String name) {
+        Channel channel = new Channel(this, nextChannelID++, name);
+        pendingDefinitions.add(channel);
+        return channel;
+    }
+
+    /**
+     * Open a new log file in the specified directory and start the
+     * background writer thread
+     *
+     * @param directory Where to put the log file. Will be created if it doesn't exist.
+     * @param baseName The name of the log file, without the extension
+     * @param maxFileBytes How big a file can get before the next loop starts a new one
+     * @param directoryBudget How many bytes of logs to keep in the directory.
+     *     The oldest are deleted when a file is started.
+     */
+    public void start (Path directory, String baseName, long maxFileBytes, long directoryBudget) {
+        if (running) {
+            return;
+        }
+        this.directory = directory;
+        this.baseName = baseName;
+        this.maxFileBytes = maxFileBytes;
+        this.directoryBudget = directoryBudget;
+
+        FileChannel firstFile;
+        try {
+            Files.createDirectories(directory);
+            firstFile = openFile(baseName + EXTENSION);
+        } catch (IOException e) {
+            DriverStation.reportError("Could not open data log: " + e.getMessage(), false);
+            return;
+        }
+
+        running = true;
+        writerThread = new Thread(() -> runWriter(firstFile), "DataLogger");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Stop the writer thread after writing out everything that has
+     * been logged so far
+     */
+    public void stop () {
+        running = false;
+        if (writerThread != null) {
+            LockSupport.unpark(writerThread);
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writerThread = null;
+        }
+    }
+
+    /**
+     * @return How many samples were dropped because the buffer was full
+     */
+    public long getDroppedCount () {
+        return droppedCount;
+    }
+
+    /**
+     * Stop or resume logging samples, from the logging thread's next
+     * loop. Samples logged while paused are thrown away. Safe to call
+     * from any thread.
+     */
+    public void setPaused (boolean paused) {
+        this.paused = paused;
+    }
+
+    /**
+     * Mark the start of a loop. Only call from the thread that logs samples.
+     *
+     * <p>
+     * Starts a new file here if the current one is full, and applies
+     * {@link #setPaused(boolean)}.
+     *
+     * @return If this loop is the first in a file or the first after a
+     *     pause, so anything a reader needs to pick up from here, rather
+     *     than from the start of the log, should be logged again
+     */
+    public boolean beginLoop () {
+        loopPaused = paused;
+        if (loopPaused) {
+            wasPaused = true;
+            return false;
+        }
+
+        boolean fresh = !startedLoop || wasPaused;
+        startedLoop = true;
+        wasPaused = false;
+
+        long written = writeCount;
+        // Only ask for a split once the writer thread has handled the last one
+        if (running && (written - fileStartCount) * SAMPLE_SIZE >= maxFileBytes && handledSplit == splitIndex) {
+            fileStartCount = written;
+            splitIndex = written;
+            part++;
+            fresh = true;
+        }
+        return fresh;
+    }
+
+    /**
+     * @return Which file the logging thread's samples are going to, starting at 1
+     */
+    public int getPart () {
+        return part;
+    }
+
+    /**
+     * Copy a sample into the ring buffer. Allocation free and never blocks.
+     */
+    private void write (short channelID, double value) {
+        if (loopPaused) {
+            return;
+        }
+        long written = writeCount;
+        if (written - readCount >= capacity) {
+            droppedCount++;
+            return;
+        }
+
+        int offset = (int) (written % capacity) * SAMPLE_SIZE;
+        ring.putShort(offset, channelID);
+        ring.putLong(offset + 2, RobotController.getFPGATime());
+        ring.putDouble(offset + 10, value);
+
+        writeCount = written + 1; // Publishes the sample to the writer thread
+    }
+
+    private void runWriter (FileChannel firstFile) {
+        file = firstFile;
+        long lastForce = System.nanoTime();
+        try {
+            while (running) {
+                if (drain() == 0) {
+                    LockSupport.parkNanos(FLUSH_PERIOD_NANOS);
+                }
+
+                if (System.nanoTime() - lastForce >= FORCE_PERIOD_NANOS) {
+                    file.force(false);
+                    lastForce = System.nanoTime();
+                }
+            }
+            drain();
+            file.force(false);
+            file.close();
+        } catch (IOException e) {
+            running = false;
+            DriverStation.reportError("Data log stopped: " + e.getMessage(), false);
+        } finally {
+            openFiles.remove(filePath);
+        }
+    }
+
+    /**
+     * Create a log file, write its header and the definition of every
+     * channel so far, then delete old logs to make room
+     */
+    private FileChannel openFile (String fileName) throws IOException {
+        filePath = directory.resolve(fileName);
+        openFiles.add(filePath);
+        FileChannel file = FileChannel.open(
+            filePath,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 1);
+        header.put(MAGIC).put(VERSION).flip();
+        writeFully(file, header);
+        for (Channel channel : writtenDefinitions) {
+            writeDefinition(file, channel);
+        }
+
+        deleteOldLogs();
+        return file;
+    }
+
+    /**
+     * Finish the current file and start the next part
+     */
+    private FileChannel nextFile (FileChannel file, int nextPart) throws IOException {
+        file.force(false);
+        file.close();
+        openFiles.remove(filePath);
+        return openFile(baseName + "_" + nextPart + EXTENSION);
+    }
+
+    /**
+     * Delete the oldest logs in the directory, other than ones still
+     * being written, until they fit in the budget
+     */
+    private void deleteOldLogs () {
+        List<Path> logs;
+        try (Stream<Path> children = Files.list(directory)) {
+            logs = children.filter(path -> path.toString().endsWith(EXTENSION)).collect(Collectors.toList());
+        } catch (IOException e) {
+            DriverStation.reportError("Could not list old data logs: " + e.getMessage(), false);
+            return;
+        }
+
+        long total = 0;
+        List<Path> deletable = new ArrayList<>();
+        List<FileTime> modifiedTimes = new ArrayList<>();
+        for (Path log : logs) {
+            try {
+                total += Files.size(log);
+                if (!openFiles.contains(log)) {
+                    deletable.add(log);
+                    modifiedTimes.add(Files.getLastModifiedTime(log));
+                }
+            } catch (IOException e) {
+                // Deleted by the other logger since it was listed
+            }
+        }
+
+        while (total > directoryBudget && !deletable.isEmpty()) {
+            int oldest = 0;
+            for (int i = 1; i < deletable.size(); i++) {
+                if (modifiedTimes.get(i).compareTo(modifiedTimes.get(oldest)) < 0) {
+                    oldest = i;
+                }
+            }
+            Path log = deletable.remove(oldest);
+            modifiedTimes.remove(oldest);
+            try {
+                long size = Files.size(log);
+                Files.delete(log);
+                total -= size;
+            } catch (IOException e) {
+                // Deleted by the other logger since it was listed
+            }
+        }
+    }
+
+    /**
+     * Write any new channel definitions and samples to the file, starting
+     * a new file where the logging thread asked for one
+     *
+     * @return The number of samples written
+     */
+    private int drain () throws IOException {
+        // Read the write count before the definitions so that every
+        // sample we write has its definition written first
+        long written = writeCount;
+        long split = splitIndex;
+
+        Channel channel;
+        while ((channel = pendingDefinitions.poll()) != null) {
+            writeDefinition(file, channel);
+            writtenDefinitions.add(channel);
+        }
+
+        long read = readCount;
+        int total = (int) (written - read);
+        while (read < written) {
+            if (read == split && split > handledSplit) {
+                filePart++;
+                file = nextFile(file, filePart);
+                handledSplit = split;
+            }
+
+            // Write up to the end of the ring or the next split, then wrap around
+            long end = split > read && split < written ? split : written;
+            int start = (int) (read % capacity);
+            int count = (int) Math.min(end - read, capacity - start);
+
+            drainView.clear();
+            drainView.position(start * SAMPLE_SIZE);
+            drainView.limit((start + count) * SAMPLE_SIZE);
+            writeFully(file, drainView);
+
+            read += count;
+            readCount = read; // Frees the space for the main thread
+        }
+        return total;
+    }
+
+    private static void writeDefinition (FileChannel file, Channel channel) throws IOException {
+        byte[] name = channel.name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer definition = ByteBuffer.allocate(6 + name.length);
+        definition.putShort(DEFINITION_TAG).putShort(channel.id).putShort((short) name.length).put(name).flip();
+        writeFully(file, definition);
+    }
+
+    private static void writeFully (FileChannel file, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            file.write(buffer);
+        }
+    }
+
+    /**
+     * A named stream of samples in the log
+     */
+    public static class Channel {
+        private final DataLogger logger;
+        private final short id;
+        private final String name;
+
+        private Channel (DataLogger logger, short id, String name) {
+            this.logger = logger;
+            this.id = id;
+            this.name = name;
+        }
+
+        /**
+         * Record a sample with the current timestamp
+         */
+        public void log (double value) {
+            logger.write(id, value);
+        }
+
+        /**
+         * Record a sample with the current timestamp. Stored as 1 or 0.
+         */
+        public void log (boolean value) {
+            logger.write(id, value ? 1 : 0);
+        }
+
+        public String getName () {
+            return name;
+        }
+    }
+}
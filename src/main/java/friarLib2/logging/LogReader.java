@@ -0,0 +1,130 @@
+package friarLib2.logging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads log files written by {@link DataLogger} back into memory.
+ *
+ * <p>
+ * Intended for desktop tools, so it doesn't depend on anything that
+ * needs the robot's native libraries.
+ */
+public class LogReader {
+
+    /**
+     * Read every channel in a log file
+     *
+     * @param file The log file
+     * @return The channels, keyed by name, in the order they were defined
+     * @throws IOException If the file can't be read or isn't a log file
+     */
+    public static Map<String, Channel> read (Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+
+        byte[] magic = new byte[DataLogger.MAGIC.length];
+        if (buffer.remaining() < magic.length + 1) {
+            throw new IOException(file + " is not a data log");
+        }
+        buffer.get(magic);
+        byte version = buffer.get();
+        if (!Arrays.equals(magic, DataLogger.MAGIC) || version != DataLogger.VERSION) {
+            throw new IOException(file + " is not a version " + DataLogger.VERSION + " data log");
+        }
+
+        Map<String, Channel> channelsByName = new LinkedHashMap<>();
+        Map<Short, Channel> channelsByID = new HashMap<>();
+
+        // The robot can lose power partway through writing anything, so
+        // a cut off tag, definition or sample ends the log
+        while (buffer.remaining() >= 2) {
+            short tag = buffer.getShort();
+            if (tag == DataLogger.DEFINITION_TAG) {
+                if (buffer.remaining() < 4) {
+                    break;
+                }
+                short id = buffer.getShort();
+                short nameLength = buffer.getShort();
+                if (nameLength < 0 || buffer.remaining() < nameLength) {
+                    break;
+                }
+                byte[] name = new byte[nameLength];
+                buffer.get(name);
+
+                // Channels with the same name are merged into one
+                Channel channel = channelsByName.computeIfAbsent(new String(name, StandardCharsets.UTF_8), Channel::new);
+                channelsByID.put(id, channel);
+            } else {
+                if (buffer.remaining() < DataLogger.SAMPLE_SIZE - 2) {
+                    break;
+                }
+                long timestamp = buffer.getLong();
+                double value = buffer.getDouble();
+
+                Channel channel = channelsByID.get(tag);
+                if (channel != null) {
+                    channel.add(timestamp, value);
+                }
+            }
+        }
+
+        return channelsByName;
+    }
+
+    /**
+     * All the samples logged to a single channel
+     */
+    public static class Channel {
+        private final String name;
+        private long[] timestamps = new long[256];
+        private double[] values = new double[256];
+        private int size = 0;
+
+        private Channel (String name) {
+            this.name = name;
+        }
+
+        private void add (long timestamp, double value) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            timestamps[size] = timestamp;
+            values[size] = value;
+            size++;
+        }
+
+        public String getName () {
+            return name;
+        }
+
+        /**
+         * @return How many samples are in the channel
+         */
+        public int size () {
+            return size;
+        }
+
+        /**
+         * @return The FPGA timestamp of the sample in microseconds
+         */
+        public long getTimestamp (int index) {
+            return timestamps[index];
+        }
+
+        public double getValue (int index) {
+            return values[index];
+        }
+
+        public boolean getBoolean (int index) {
+            return values[index] != 0;
+        }
+    }
+}
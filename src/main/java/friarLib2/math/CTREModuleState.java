@@ -29,6 +29,26 @@ public class CTREModuleState {
     return new SwerveModuleState(targetSpeed, Rotation2d.fromDegrees(targetAngle));
   }
 
+  /**
+   * The same as {@link #optimize(SwerveModuleState, Rotation2d)}, but for every module at once
+   * and without creating any objects.
+   *
+   * @param speeds The desired module speeds, modified in place
+   * @param anglesDegrees The desired module angles, modified in place
+   * @param currentAnglesDegrees The current module angles
+   */
+  public static void optimize(double[] speeds, double[] anglesDegrees, double[] currentAnglesDegrees) {
+    for (int i = 0; i < speeds.length; i++) {
+      double targetAngle = placeInAppropriate0To360Scope(currentAnglesDegrees[i], anglesDegrees[i]);
+      double delta = targetAngle - currentAnglesDegrees[i];
+      if (Math.abs(delta) > 90) {
+        speeds[i] = -speeds[i];
+        targetAngle = delta > 90 ? targetAngle - 180 : targetAngle + 180;
+      }
+      anglesDegrees[i] = targetAngle;
+    }
+  }
+
   /**
      * @param scopeReference Current Angle
      * @param newAngle Target Angle
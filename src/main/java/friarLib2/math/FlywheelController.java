@@ -0,0 +1,281 @@
+package friarLib2.math;
+
+/**
+ * Controls a flywheel's velocity with a model of how it responds to
+ * voltage, instead of a velocity PID loop.
+ *
+ * <p>
+ * The flywheel is modelled from its characterization constants: the
+ * voltage to spin it is kS + kV * speed + kA * acceleration. From that:
+ *
+ * <ul>
+ * <li>A feedforward applies the voltage the model says holds the
+ * reference speed, so the feedback only has to fix what's left over.</li>
+ * <li>A steady state Kalman filter blends the model's prediction with
+ * the measured speed, so the feedback isn't fighting sensor noise, and a
+ * sudden drop bigger than the noise (a ball leaving) is believed
+ * straight away. It also estimates a voltage error: how many volts the real
+ * flywheel needs on top of the model. Adding that to the output gets
+ * rid of steady state error from a slightly wrong model or a sagging
+ * battery, without an integrator that can wind up and overshoot.</li>
+ * <li>An LQR gain, worked out from how much speed error and voltage are
+ * acceptable, pushes the estimate to the reference as hard as the
+ * voltage limit allows. The gain is reduced to allow for the delay in
+ * the measured speed, so it doesn't oscillate.</li>
+ * </ul>
+ *
+ * <p>
+ * Because the model knows how the flywheel will respond, it can also
+ * predict how long until the flywheel reaches the reference, by running
+ * the control law forward from the estimate. See {@link #predictTimeToReference}.
+ *
+ * <p>
+ * The Riccati equations for both gains are solved once in the
+ * constructor with plain doubles. Each {@link #calculate} is then a
+ * handful of multiplications with nothing allocated. Speeds are in RPM
+ * and voltages in volts.
+ */
+public class FlywheelController {
+
+    private static final int MAX_RICCATI_ITERATIONS = 10000;
+    private static final double CONVERGED = 1e-12;
+    private static final double JUMP_STD_DEVS = 5; // Innovations bigger than this many measurement standard deviations are sudden changes in speed
+    private static final int MIN_CONSISTENT_SAMPLES = 2; // Measurements that have to agree with the model before predicting from it
+
+    private final double kS;
+    private final double kV;
+    private final double maxVoltage;
+    private final double period;
+
+    // Discrete model: speed' = a * speed + b * (volts - friction - voltage error)
+    private final double a;
+    private final double b;
+
+    private final double feedbackGain; // Volts per RPM of error
+    private final double speedKalmanGain;
+    private final double voltageErrorKalmanGain;
+    private final double jumpThreshold;
+
+    private double reference = 0;
+    private double estimate = 0;
+    private double voltageError = 0;
+    private double lastVoltage = 0;
+    private boolean coasting = true;
+    private int consistentSamples = 0;
+
+    /**
+     * @param kS The voltage to overcome friction
+     * @param kV Volts per RPM
+     * @param kA Volts per RPM/second
+     * @param modelStdDev How far off the model's prediction of the speed can be, in RPM/second (balls, etc.)
+     * @param voltageErrorStdDev How quickly the voltage error can change, in volts/second
+     * @param measurementStdDev How noisy the measured speed is, in RPM
+     * @param speedTolerance The speed error that is worth full voltage to the LQR, in RPM. Smaller is more aggressive.
+     * @param maxVoltage The most voltage to apply
+     * @param measurementDelay How old each measured speed is when it's read, in seconds
+     * @param period How often {@link #calculate} is called, in seconds
+     */
+    public FlywheelController (double kS, double kV, double kA, double modelStdDev, double voltageErrorStdDev, double measurementStdDev,
+                               double speedTolerance, double maxVoltage, double measurementDelay, double period) {
+        this.kS = kS;
+        this.kV = kV;
+        this.maxVoltage = maxVoltage;
+        this.period = period;
+        this.jumpThreshold = JUMP_STD_DEVS * measurementStdDev;
+
+        // Discretize d(speed)/dt = -kV/kA * speed + 1/kA * volts
+        double continuousA = -kV / kA;
+        a = Math.exp(continuousA * period);
+        b = (a - 1) / continuousA / kA;
+
+        // LQR: minimize sum of (error / speedTolerance)^2 + (volts / maxVoltage)^2
+        double q = 1 / (speedTolerance * speedTolerance);
+        double r = 1 / (maxVoltage * maxVoltage);
+        double p = q;
+        for (int i = 0; i < MAX_RICCATI_ITERATIONS; i++) {
+            double next = a * a * p - (a * b * p) * (a * b * p) / (r + b * b * p) + q;
+            boolean converged = Math.abs(next - p) <= CONVERGED * Math.abs(next);
+            p = next;
+            if (converged) {
+                break;
+            }
+        }
+        double gain = a * b * p / (r + b * b * p);
+
+        // The measurement is old, so the error it shows has already been partly corrected
+        gain *= Math.pow(a - b * gain, measurementDelay / period);
+        feedbackGain = gain;
+
+        // Kalman filter on [speed, voltage error], iterated to its steady state gains
+        double speedVariance = modelStdDev * modelStdDev * period;
+        double voltageErrorVariance = voltageErrorStdDev * voltageErrorStdDev * period;
+        double measurementVariance = measurementStdDev * measurementStdDev;
+        double p00 = speedVariance, p01 = 0, p11 = voltageErrorVariance;
+        double speedGain = 0;
+        double voltageErrorGain = 0;
+        for (int i = 0; i < MAX_RICCATI_ITERATIONS; i++) {
+            // Predict: F P F' + Q, with F = [[a, -b], [0, 1]]
+            double m00 = a * a * p00 - 2 * a * b * p01 + b * b * p11 + speedVariance;
+            double m01 = a * p01 - b * p11;
+            double m11 = p11 + voltageErrorVariance;
+
+            // Correct with a measurement of the speed
+            double nextSpeedGain = m00 / (m00 + measurementVariance);
+            double nextVoltageErrorGain = m01 / (m00 + measurementVariance);
+            p00 = (1 - nextSpeedGain) * m00;
+            p01 = (1 - nextSpeedGain) * m01;
+            p11 = m11 - nextVoltageErrorGain * m01;
+
+            boolean converged = Math.abs(nextSpeedGain - speedGain) <= CONVERGED && Math.abs(nextVoltageErrorGain - voltageErrorGain) <= CONVERGED;
+            speedGain = nextSpeedGain;
+            voltageErrorGain = nextVoltageErrorGain;
+            if (converged) {
+                break;
+            }
+        }
+        speedKalmanGain = speedGain;
+        voltageErrorKalmanGain = voltageErrorGain;
+    }
+
+    /**
+     * @param rpm The speed to spin at. 0 lets the flywheel coast.
+     */
+    public void setReference (double rpm) {
+        reference = rpm;
+    }
+
+    public double getReference () {
+        return reference;
+    }
+
+    /**
+     * Start the estimate from a known speed and forget the voltage error
+     */
+    public void reset (double measuredRPM) {
+        estimate = measuredRPM;
+        voltageError = 0;
+        lastVoltage = 0;
+        coasting = true;
+        consistentSamples = 0;
+    }
+
+    /**
+     * Take in the latest measured speed and work out the voltage to apply
+     * until the next call
+     *
+     * @param measuredRPM The flywheel's measured speed
+     * @return The voltage to apply, 0 when coasting
+     */
+    public double calculate (double measuredRPM) {
+        if (coasting) {
+            // The motors weren't driving the flywheel, so the model doesn't apply
+            estimate = measuredRPM;
+            consistentSamples = 0;
+        } else {
+            // Predict where the last voltage took the flywheel, then correct with the measurement
+            estimate = a * estimate + b * (lastVoltage - frictionVoltage(estimate) - voltageError);
+            double innovation = measuredRPM - estimate;
+            if (Math.abs(innovation) > jumpThreshold) {
+                // Something hit the flywheel. That's not a change in the voltage it needs.
+                estimate = measuredRPM;
+                consistentSamples = 0;
+            } else {
+                consistentSamples++;
+                estimate += speedKalmanGain * innovation;
+                voltageError += voltageErrorKalmanGain * innovation;
+                voltageError = Math.max(-maxVoltage, Math.min(maxVoltage, voltageError));
+            }
+        }
+
+        coasting = reference == 0;
+        if (coasting) {
+            lastVoltage = 0;
+        } else {
+            double feedforward = frictionVoltage(reference) + kV * reference + voltageError;
+            double voltage = feedforward + feedbackGain * (reference - estimate);
+            lastVoltage = Math.max(-maxVoltage, Math.min(maxVoltage, voltage));
+        }
+        return lastVoltage;
+    }
+
+    /**
+     * Predict how long until the flywheel is within tolerance of the
+     * reference, by running the model and control law forward from the
+     * estimate. The model settles without overshooting, so once it is
+     * within tolerance it stays there.
+     *
+     * <p>
+     * Nothing is predicted until the last few measurements have agreed
+     * with the model, e.g. right after a ball leaves.
+     *
+     * @param tolerance How close to the reference counts, in RPM
+     * @param maxTime How far ahead to look, in seconds
+     * @return The time in seconds, 0 if it's already within tolerance, or
+     *     infinity if it's coasting, the measurements don't agree with the
+     *     model yet, or it won't get there within the max time
+     */
+    public double predictTimeToReference (double tolerance, double maxTime) {
+        if (coasting || consistentSamples < MIN_CONSISTENT_SAMPLES) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double speed = estimate;
+        double feedforward = frictionVoltage(reference) + kV * reference + voltageError;
+        int maxSteps = (int) Math.ceil(maxTime / period);
+        for (int step = 0; step <= maxSteps; step++) {
+            if (Math.abs(reference - speed) <= tolerance) {
+                return step * period;
+            }
+            double voltage = Math.max(-maxVoltage, Math.min(maxVoltage, feedforward + feedbackGain * (reference - speed)));
+            speed = a * speed + b * (voltage - frictionVoltage(speed) - voltageError);
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private double frictionVoltage (double rpm) {
+        return rpm == 0 ? 0 : Math.copySign(kS, rpm);
+    }
+
+    /**
+     * @return The filtered speed, in RPM
+     */
+    public double getEstimate () {
+        return estimate;
+    }
+
+    /**
+     * @return The reference minus the filtered speed, in RPM
+     */
+    public double getError () {
+        return reference - estimate;
+    }
+
+    /**
+     * @return How many volts the flywheel needs on top of the model,
+     *     positive when it is heavier or draggier than the model
+     */
+    public double getVoltageError () {
+        return voltageError;
+    }
+
+    /**
+     * @return The voltage returned by the last {@link #calculate}
+     */
+    public double getVoltage () {
+        return lastVoltage;
+    }
+
+    /**
+     * @return The LQR's gain after latency compensation, in volts per RPM
+     */
+    public double getFeedbackGain () {
+        return feedbackGain;
+    }
+
+    /**
+     * @return The steady state Kalman gain for the speed, from 0 (trust the model) to 1 (trust the measurement)
+     */
+    public double getKalmanGain () {
+        return speedKalmanGain;
+    }
+}
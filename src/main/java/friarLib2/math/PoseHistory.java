@@ -0,0 +1,232 @@
+package friarLib2.math;
+
+import java.lang.invoke.VarHandle;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * A fixed size history of timestamped robot poses that can be asked
+ * where the robot was at any time in the recent past.
+ *
+ * <p>
+ * Poses are stored in parallel primitive arrays used as a ring buffer,
+ * so adding a pose overwrites the oldest one and never allocates. Lookups
+ * binary search the timestamps and interpolate between the two poses on
+ * either side, which is O(log n) and also allocation free when using
+ * {@link #getPose(double, double[])}.
+ *
+ * <p>
+ * Only one thread may add poses, but any thread can look them up without
+ * locking. The writer bumps a sequence number before and after each
+ * change (a seqlock), and a reader that sees the number change while it
+ * was reading just tries again.
+ */
+public class PoseHistory {
+
+    private final int capacity;
+    private final double[] timestamps;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] thetas; // Radians
+
+    private int head = 0; // Where the next pose goes
+    private int count = 0;
+
+    // Odd while the writer is changing the buffer
+    private volatile long sequence = 0;
+
+    /**
+     * @param capacity How many poses to remember
+     */
+    public PoseHistory (int capacity) {
+        this.capacity = capacity;
+        timestamps = new double[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        thetas = new double[capacity];
+    }
+
+    /**
+     * Add a pose. Timestamps must increase, so older poses are ignored.
+     * Must only be called from one thread.
+     *
+     * @param timestamp When the robot was at the pose, in seconds
+     * @param x In meters
+     * @param y In meters
+     * @param thetaRadians The robot's heading
+     */
+    public void add (double timestamp, double x, double y, double thetaRadians) {
+        if (count > 0 && timestamp <= timestamps[(head - 1 + capacity) % capacity]) {
+            return;
+        }
+
+        long start = sequence;
+        sequence = start + 1;
+        VarHandle.storeStoreFence(); // Don't let the writes below move before the sequence change
+
+        timestamps[head] = timestamp;
+        xs[head] = x;
+        ys[head] = y;
+        thetas[head] = thetaRadians;
+        head = (head + 1) % capacity;
+        count = Math.min(count + 1, capacity);
+
+        sequence = start + 2;
+    }
+
+    /**
+     * Add a pose. Must only be called from one thread.
+     */
+    public void add (double timestamp, Pose2d pose) {
+        add(timestamp, pose.getX(), pose.getY(), pose.getRotation().getRadians());
+    }
+
+    /**
+     * Forget every pose, e.g. when the odometry is reset and the old
+     * poses no longer line up with the new ones. Must only be called from
+     * the thread that adds poses.
+     */
+    public void clear () {
+        long start = sequence;
+        sequence = start + 1;
+        VarHandle.storeStoreFence();
+
+        count = 0;
+
+        sequence = start + 2;
+    }
+
+    /**
+     * Find where the robot was at the specified time, interpolating
+     * between the poses on either side. Times before the oldest pose or
+     * after the newest one get that pose. Does not allocate anything.
+     *
+     * @param timestamp In seconds
+     * @param pose Filled with the x and y in meters and the heading in radians
+     * @return False (and leaves the pose alone) if the history is empty
+     */
+    public boolean getPose (double timestamp, double[] pose) {
+        while (true) {
+            long start = sequence;
+            if ((start & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+
+            double x = 0;
+            double y = 0;
+            double theta = 0;
+            int n = count;
+            if (n > 0) {
+                int oldest = (head - n + capacity) % capacity;
+
+                // Find the first pose at or after the timestamp
+                int low = 0;
+                int high = n;
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    if (timestamps[(oldest + middle) % capacity] < timestamp) {
+                        low = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+
+                int after = (oldest + Math.min(low, n - 1)) % capacity;
+                int before = (oldest + Math.max(low - 1, 0)) % capacity;
+                double span = timestamps[after] - timestamps[before];
+                double t = span > 0 ? MathUtil.clamp((timestamp - timestamps[before]) / span, 0, 1) : 0;
+
+                x = xs[before] + (xs[after] - xs[before]) * t;
+                y = ys[before] + (ys[after] - ys[before]) * t;
+                theta = thetas[before] + MathUtil.angleModulus(thetas[after] - thetas[before]) * t;
+            }
+
+            VarHandle.loadLoadFence(); // Finish reading the buffer before checking the sequence again
+            if (sequence == start) {
+                if (n == 0) {
+                    return false;
+                }
+                pose[0] = x;
+                pose[1] = y;
+                pose[2] = theta;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Get the newest pose. Does not allocate anything.
+     *
+     * @param pose Filled with the x and y in meters and the heading in radians
+     * @return False (and leaves the pose alone) if the history is empty
+     */
+    public boolean getLatestPose (double[] pose) {
+        while (true) {
+            long start = sequence;
+            if ((start & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+
+            int n = count;
+            int newest = (head - 1 + capacity) % capacity;
+            double x = xs[newest];
+            double y = ys[newest];
+            double theta = thetas[newest];
+
+            VarHandle.loadLoadFence();
+            if (sequence == start) {
+                if (n == 0) {
+                    return false;
+                }
+                pose[0] = x;
+                pose[1] = y;
+                pose[2] = theta;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * The same as {@link #getPose(double, double[])}, but creates a Pose2d
+     *
+     * @return Null if the history is empty
+     */
+    public Pose2d getPose (double timestamp) {
+        double[] pose = new double[3];
+        return getPose(timestamp, pose) ? new Pose2d(pose[0], pose[1], new Rotation2d(pose[2])) : null;
+    }
+
+    /**
+     * @return The time of the oldest pose in seconds, or NaN if the history is empty
+     */
+    public double getOldestTimestamp () {
+        while (true) {
+            long start = sequence;
+            int n = count;
+            double timestamp = n > 0 ? timestamps[(head - n + capacity) % capacity] : Double.NaN;
+            VarHandle.loadLoadFence();
+            if ((start & 1) == 0 && sequence == start) {
+                return timestamp;
+            }
+        }
+    }
+
+    /**
+     * @return The time of the newest pose in seconds, or NaN if the history is empty
+     */
+    public double getNewestTimestamp () {
+        while (true) {
+            long start = sequence;
+            int n = count;
+            double timestamp = n > 0 ? timestamps[(head - 1 + capacity) % capacity] : Double.NaN;
+            VarHandle.loadLoadFence();
+            if ((start & 1) == 0 && sequence == start) {
+                return timestamp;
+            }
+        }
+    }
+}
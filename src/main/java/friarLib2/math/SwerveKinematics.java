@@ -0,0 +1,184 @@
+package friarLib2.math;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Swerve drive inverse kinematics that works on primitive arrays instead
+ * of ChassisSpeeds and SwerveModuleState objects, so it can run every
+ * loop without allocating anything.
+ *
+ * <p>
+ * Works for any number of modules. Module speeds and angles are written
+ * into arrays owned by the caller, indexed in the same order as the
+ * module locations passed to the constructor.
+ *
+ * <p>
+ * Also does the forward kinematics for odometry, turning how far each
+ * module has rolled into how far the robot has moved.
+ */
+public class SwerveKinematics {
+
+    private final double[] moduleX;
+    private final double[] moduleY;
+
+    // Inverse of (A^T A), where A maps the robot's motion to each module's
+    // motion. Used to find the robot motion that best fits the modules.
+    private final double[][] forwardMatrix;
+
+    /**
+     * @param moduleLocations The location of each module relative to the
+     *     center of the robot, in meters
+     */
+    public SwerveKinematics (Translation2d... moduleLocations) {
+        moduleX = new double[moduleLocations.length];
+        moduleY = new double[moduleLocations.length];
+        for (int i = 0; i < moduleLocations.length; i++) {
+            moduleX[i] = moduleLocations[i].getX();
+            moduleY[i] = moduleLocations[i].getY();
+        }
+        forwardMatrix = calculateForwardMatrix();
+    }
+
+    /**
+     * Each module contributes the rows [1, 0, -y] and [0, 1, x] to A. A^T A
+     * is only 3x3, so it is inverted once here by cofactors.
+     */
+    private double[][] calculateForwardMatrix () {
+        double n = moduleX.length;
+        double sumX = 0;
+        double sumY = 0;
+        double sumSquares = 0;
+        for (int i = 0; i < moduleX.length; i++) {
+            sumX += moduleX[i];
+            sumY += moduleY[i];
+            sumSquares += moduleX[i] * moduleX[i] + moduleY[i] * moduleY[i];
+        }
+
+        double[][] m = {
+            {n, 0, -sumY},
+            {0, n, sumX},
+            {-sumY, sumX, sumSquares}
+        };
+
+        double det = m[0][0] * (m[1][1] * m[2][2] - m[1][2] * m[2][1])
+                   - m[0][1] * (m[1][0] * m[2][2] - m[1][2] * m[2][0])
+                   + m[0][2] * (m[1][0] * m[2][1] - m[1][1] * m[2][0]);
+
+        double[][] inverse = new double[3][3];
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                // Transposed cofactor, using the cyclic trick for 3x3 matrices
+                int r1 = (col + 1) % 3, r2 = (col + 2) % 3;
+                int c1 = (row + 1) % 3, c2 = (row + 2) % 3;
+                inverse[row][col] = (m[r1][c1] * m[r2][c2] - m[r1][c2] * m[r2][c1]) / det;
+            }
+        }
+        return inverse;
+    }
+
+    public int getModuleCount () {
+        return moduleX.length;
+    }
+
+    /**
+     * Calculate the speed and direction of each module
+     *
+     * <p>
+     * If the robot is told to stop, every speed is set to zero and the
+     * angles are left alone, so the modules don't all snap back to zero
+     * degrees.
+     *
+     * @param vx Forward speed of the robot in meters/second
+     * @param vy Leftward speed of the robot in meters/second
+     * @param omega Counterclockwise rotational speed of the robot in radians/second
+     * @param speeds Filled with the speed of each module in meters/second
+     * @param anglesDegrees Filled with the angle of each module in degrees
+     */
+    public void toModuleStates (double vx, double vy, double omega, double[] speeds, double[] anglesDegrees) {
+        if (vx == 0 && vy == 0 && omega == 0) {
+            for (int i = 0; i < moduleX.length; i++) {
+                speeds[i] = 0;
+            }
+            return;
+        }
+
+        for (int i = 0; i < moduleX.length; i++) {
+            double moduleVX = vx - omega * moduleY[i];
+            double moduleVY = vy + omega * moduleX[i];
+            speeds[i] = Math.hypot(moduleVX, moduleVY);
+            anglesDegrees[i] = Math.toDegrees(Math.atan2(moduleVY, moduleVX));
+        }
+    }
+
+    /**
+     * Convert field-relative speeds to robot-relative speeds and calculate
+     * the speed and direction of each module
+     *
+     * @param vx Speed of the robot away from the driver station in meters/second
+     * @param vy Leftward speed of the robot (from the driver's perspective) in meters/second
+     * @param omega Counterclockwise rotational speed of the robot in radians/second
+     * @param headingDegrees The robot's heading on the field
+     * @param speeds Filled with the speed of each module in meters/second
+     * @param anglesDegrees Filled with the angle of each module in degrees
+     */
+    public void toModuleStatesFieldRelative (double vx, double vy, double omega, double headingDegrees, double[] speeds, double[] anglesDegrees) {
+        double heading = Math.toRadians(headingDegrees);
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        toModuleStates(vx * cos + vy * sin, -vx * sin + vy * cos, omega, speeds, anglesDegrees);
+    }
+
+    /**
+     * Calculate how far the robot moved from how far each module rolled
+     *
+     * <p>
+     * The modules rarely agree exactly (wheels slip and skid), so this
+     * finds the least squares fit. Works the same for speeds: pass module
+     * speeds instead of distances to get the chassis speeds.
+     *
+     * @param distances How far each module rolled in meters
+     * @param anglesDegrees The angle of each module in degrees
+     * @param displacement Filled with the robot's forward and leftward
+     *     movement in meters and its counterclockwise rotation in radians,
+     *     all relative to the robot
+     */
+    public void toRobotDisplacement (double[] distances, double[] anglesDegrees, double[] displacement) {
+        double sumDX = 0;
+        double sumDY = 0;
+        double sumMoment = 0;
+        for (int i = 0; i < moduleX.length; i++) {
+            double angle = Math.toRadians(anglesDegrees[i]);
+            double dx = distances[i] * Math.cos(angle);
+            double dy = distances[i] * Math.sin(angle);
+            sumDX += dx;
+            sumDY += dy;
+            sumMoment += -moduleY[i] * dx + moduleX[i] * dy;
+        }
+
+        for (int row = 0; row < 3; row++) {
+            displacement[row] = forwardMatrix[row][0] * sumDX + forwardMatrix[row][1] * sumDY + forwardMatrix[row][2] * sumMoment;
+        }
+    }
+
+    /**
+     * Scale every module speed down by the same amount so that none of
+     * them are faster than the max speed. Keeps the robot moving in the
+     * requested direction when it is asked to go faster than it can.
+     *
+     * @param speeds The module speeds, modified in place
+     * @param maxSpeed The fastest any module can go
+     */
+    public static void desaturateWheelSpeeds (double[] speeds, double maxSpeed) {
+        double fastest = 0;
+        for (int i = 0; i < speeds.length; i++) {
+            fastest = Math.max(fastest, Math.abs(speeds[i]));
+        }
+
+        if (fastest > maxSpeed) {
+            double scale = maxSpeed / fastest;
+            for (int i = 0; i < speeds.length; i++) {
+                speeds[i] *= scale;
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package friarLib2.profiling;
+
+/**
+ * A fixed-size histogram of durations in nanoseconds.
+ *
+ * <p>
+ * Buckets are log-linear: every power of two is split into 16 buckets,
+ * so any recorded value is off by at most ~6%. Recording a value is a
+ * couple of bit operations and an array increment, with no allocation.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount = 0;
+    private long max = 0;
+
+    /**
+     * Add a duration to the histogram
+     *
+     * @param nanos The duration in nanoseconds
+     */
+    public void record (long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts[bucketIndex(nanos)]++;
+        totalCount++;
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    /**
+     * @param percentile Between 0 and 100
+     * @return The approximate duration in nanoseconds that the specified
+     *     percentage of recorded values are below, or zero if nothing
+     *     has been recorded
+     */
+    public long getPercentile (double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(percentile / 100.0 * totalCount);
+        rank = Math.max(1, Math.min(rank, totalCount));
+
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return The longest duration recorded, in nanoseconds
+     */
+    public long getMax () {
+        return max;
+    }
+
+    /**
+     * @return How many durations have been recorded
+     */
+    public long getCount () {
+        return totalCount;
+    }
+
+    /**
+     * Clear all recorded values
+     */
+    public void reset () {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = 0;
+        }
+        totalCount = 0;
+        max = 0;
+    }
+
+    private static int bucketIndex (long nanos) {
+        if (nanos < SUB_BUCKET_COUNT) {
+            return (int) nanos;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(nanos); // Position of the highest set bit
+        int subBucket = (int) (nanos >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long bucketUpperBound (int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long lowerBound = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
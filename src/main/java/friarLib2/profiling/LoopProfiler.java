@@ -0,0 +1,181 @@
+package friarLib2.profiling;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import friarLib2.telemetry.Telemetry;
+import friarLib2.telemetry.TelemetryLevel;
+
+/**
+ * Times each part of the robot loop so that loop overruns can be traced
+ * back to whatever caused them.
+ *
+ * <p>
+ * Code is timed with {@link Section}s. Subsystems wrap their periodic()
+ * in a section, and every scheduled command's execute() gets a section
+ * automatically through the CommandScheduler's execute callback. Button
+ * polling is timed as one section. Every section keeps a histogram of how
+ * long it took each loop, and its p50, p99 and max are published as
+ * debug telemetry.
+ *
+ * <p>
+ * When a loop takes longer than the loop period, the section that took
+ * the longest during that loop is reported as the worst offender.
+ *
+ * <p>
+ * Once a section exists, timing it does not allocate, so the profiler
+ * doesn't add GC pauses to the loop it is measuring.
+ */
+public class LoopProfiler {
+
+    private static final ArrayList<Section> sections = new ArrayList<>();
+    private static final IdentityHashMap<Command, Section> commandSections = new IdentityHashMap<>();
+
+    private static final Section loopSection = addSection("Robot loop");
+    private static final Section buttonSection = addSection("Button polling");
+
+    private static long loopPeriodNanos = 20_000_000;
+    private static long commandMark; // When the current command started executing
+
+    private static String worstOffenderName = "None";
+    private static double worstOffenderMillis = 0;
+    private static double overrunLoopMillis = 0;
+    private static int overrunCount = 0;
+
+    static {
+        Telemetry.addString("Loop overrun worst offender", TelemetryLevel.competition, 10, () -> worstOffenderName);
+        Telemetry.addNumber("Loop overrun worst offender ms", TelemetryLevel.competition, 10, () -> worstOffenderMillis);
+        Telemetry.addNumber("Loop overrun loop time ms", TelemetryLevel.practice, 10, () -> overrunLoopMillis);
+        Telemetry.addNumber("Loop overrun count", TelemetryLevel.practice, 10, () -> overrunCount);
+    }
+
+    /**
+     * Hook the profiler into the CommandScheduler. Call this before any
+     * triggers are created, then call {@link #finishButtonPolling()}
+     * after they have all been created.
+     *
+     * @param loopPeriodSeconds The robot's loop period
+     */
+    public static void install (double loopPeriodSeconds) {
+        loopPeriodNanos = (long) (loopPeriodSeconds * 1e9);
+
+        CommandScheduler scheduler = CommandScheduler.getInstance();
+
+        // Buttons are polled in the order they were added, so this runs before all of the triggers
+        scheduler.addButton(buttonSection::start);
+
+        // Called right after each command's execute()
+        scheduler.onCommandExecute(command -> {
+            long now = System.nanoTime();
+            Section section = commandSections.get(command);
+            if (section == null) {
+                section = addSection(command.getName() + ".execute");
+                commandSections.put(command, section);
+            }
+            section.record(now - commandMark);
+            commandMark = now;
+        });
+    }
+
+    /**
+     * Add the marker for the end of button polling. Must be called after
+     * all of the triggers have been created.
+     */
+    public static void finishButtonPolling () {
+        CommandScheduler.getInstance().addButton(() -> {
+            buttonSection.stop();
+            commandMark = System.nanoTime();
+        });
+    }
+
+    /**
+     * Create a new section to time a part of the loop
+     *
+     * @param name The name shown on the dashboard and in overrun reports
+     */
+    public static Section addSection (String name) {
+        Section section = new Section(name);
+        sections.add(section);
+        return section;
+    }
+
+    /**
+     * Call at the very start of robotPeriodic()
+     */
+    public static void startLoop () {
+        for (int i = 0; i < sections.size(); i++) {
+            sections.get(i).nanosThisLoop = 0;
+        }
+        loopSection.start();
+        commandMark = System.nanoTime();
+    }
+
+    /**
+     * Call at the very end of robotPeriodic()
+     */
+    public static void endLoop () {
+        loopSection.stop();
+
+        if (loopSection.nanosThisLoop > loopPeriodNanos) {
+            Section worst = null;
+            for (int i = 0; i < sections.size(); i++) {
+                Section section = sections.get(i);
+                if (section != loopSection && (worst == null || section.nanosThisLoop > worst.nanosThisLoop)) {
+                    worst = section;
+                }
+            }
+
+            overrunCount++;
+            overrunLoopMillis = loopSection.nanosThisLoop / 1e6;
+            if (worst != null) {
+                worstOffenderName = worst.name;
+                worstOffenderMillis = worst.nanosThisLoop / 1e6;
+                DriverStation.reportWarning("Loop overrun (" + overrunLoopMillis + " ms): " + worstOffenderName + " took " + worstOffenderMillis + " ms", false);
+            }
+        }
+    }
+
+    /**
+     * A named part of the loop. Call {@link #start()} before the code
+     * and {@link #stop()} after it.
+     */
+    public static class Section {
+        private final String name;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private long startTime;
+        private long nanosThisLoop;
+
+        private Section (String name) {
+            this.name = name;
+
+            String key = "Loop profiler/" + name;
+            Telemetry.addNumber(key + " p50 ms", TelemetryLevel.debug, 50, () -> histogram.getPercentile(50) / 1e6);
+            Telemetry.addNumber(key + " p99 ms", TelemetryLevel.debug, 50, () -> histogram.getPercentile(99) / 1e6);
+            Telemetry.addNumber(key + " max ms", TelemetryLevel.debug, 50, () -> histogram.getMax() / 1e6);
+        }
+
+        public void start () {
+            startTime = System.nanoTime();
+        }
+
+        public void stop () {
+            record(System.nanoTime() - startTime);
+        }
+
+        private void record (long nanos) {
+            histogram.record(nanos);
+            nanosThisLoop += nanos;
+        }
+
+        public String getName () {
+            return name;
+        }
+
+        public LatencyHistogram getHistogram () {
+            return histogram;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package friarLib2.telemetry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * A faster replacement for SmartDashboard.putNumber() and friends.
+ *
+ * <p>
+ * Instead of pushing values every loop, each signal is registered once
+ * with a key and a supplier. The key is resolved to a NetworkTableEntry
+ * when the signal is registered, so no string concatenation or table
+ * lookups happen in the main loop. Once per loop, {@link #update()}
+ * samples every signal in a single pass and only writes the values that
+ * have changed since the last time they were published.
+ *
+ * <p>
+ * Every signal declares a {@link TelemetryLevel} and a divisor. Signals
+ * above the current level are never sampled (so their suppliers don't
+ * cost any CAN reads), and a signal with a divisor of N is only sampled
+ * every Nth loop. The level is set at startup with {@link #init} and can
+ * be changed from the "Telemetry level" menu on the dashboard.
+ *
+ * <p>
+ * Signals are published under the "SmartDashboard" table so existing
+ * dashboard layouts keep working.
+ */
+public class Telemetry {
+
+    private static final NetworkTable table = NetworkTableInstance.getDefault().getTable("SmartDashboard");
+
+    private static final ArrayList<Signal> signals = new ArrayList<>();
+    private static final HashMap<String, Integer> signalIndices = new HashMap<>();
+
+    private static final SendableChooser<TelemetryLevel> levelChooser = new SendableChooser<>();
+    private static TelemetryLevel level = TelemetryLevel.debug;
+
+    /**
+     * Set the starting telemetry level and put the level menu on the
+     * dashboard
+     *
+     * @param startingLevel The level to use until it is changed on the dashboard
+     */
+    public static void init (TelemetryLevel startingLevel) {
+        level = startingLevel;
+        for (TelemetryLevel option : TelemetryLevel.values()) {
+            if (option == startingLevel) {
+                levelChooser.setDefaultOption(option.name(), option);
+            } else {
+                levelChooser.addOption(option.name(), option);
+            }
+        }
+        SmartDashboard.putData("Telemetry level", levelChooser);
+    }
+
+    /**
+     * @return The level of telemetry currently being published
+     */
+    public static TelemetryLevel getLevel () {
+        return level;
+    }
+
+    /**
+     * Publish a number on the dashboard every loop at the practice level
+     *
+     * @param key The dashboard key
+     * @param supplier Called to get the value
+     */
+    public static void addNumber (String key, DoubleSupplier supplier) {
+        addNumber(key, TelemetryLevel.practice, 1, supplier);
+    }
+
+    /**
+     * Publish a number on the dashboard
+     *
+     * @param key The dashboard key
+     * @param level The lowest telemetry level that publishes this value
+     * @param divisor Publish every this many loops
+     * @param supplier Called to get the value
+     */
+    public static void addNumber (String key, TelemetryLevel level, int divisor, DoubleSupplier supplier) {
+        register(new NumberSignal(table.getEntry(key), level, divisor, supplier), key);
+    }
+
+    /**
+     * Publish a boolean on the dashboard every loop at the practice level
+     *
+     * @param key The dashboard key
+     * @param supplier Called to get the value
+     */
+    public static void addBoolean (String key, BooleanSupplier supplier) {
+        addBoolean(key, TelemetryLevel.practice, 1, supplier);
+    }
+
+    /**
+     * Publish a boolean on the dashboard
+     *
+     * @param key The dashboard key
+     * @param level The lowest telemetry level that publishes this value
+     * @param divisor Publish every this many loops
+     * @param supplier Called to get the value
+     */
+    public static void addBoolean (String key, TelemetryLevel level, int divisor, BooleanSupplier supplier) {
+        register(new BooleanSignal(table.getEntry(key), level, divisor, supplier), key);
+    }
+
+    /**
+     * Publish a string on the dashboard every loop at the practice level
+     *
+     * @param key The dashboard key
+     * @param supplier Called to get the value
+     */
+    public static void addString (String key, Supplier<String> supplier) {
+        addString(key, TelemetryLevel.practice, 1, supplier);
+    }
+
+    /**
+     * Publish a string on the dashboard
+     *
+     * @param key The dashboard key
+     * @param level The lowest telemetry level that publishes this value
+     * @param divisor Publish every this many loops
+     * @param supplier Called to get the value
+     */
+    public static void addString (String key, TelemetryLevel level, int divisor, Supplier<String> supplier) {
+        register(new StringSignal(table.getEntry(key), level, divisor, supplier), key);
+    }
+
+    /**
+     * Registering a key that already exists replaces the old signal, so
+     * commands can safely re-register their signals every time they start
+     */
+    private static void register (Signal signal, String key) {
+        Integer index = signalIndices.get(key);
+
+        // Stagger signals with the same divisor so they don't all land on the same loop
+        signal.loopsUntilPublish = 1 + (index != null ? index : signals.size()) % signal.divisor;
+
+        if (index != null) {
+            signals.set(index, signal);
+        } else {
+            signalIndices.put(key, signals.size());
+            signals.add(signal);
+        }
+    }
+
+    /**
+     * Sample every signal that is due this loop and write the changed
+     * values to NetworkTables. Should be called exactly once per robot
+     * loop.
+     */
+    public static void update () {
+        TelemetryLevel selected = levelChooser.getSelected();
+        if (selected != null) {
+            level = selected;
+        }
+
+        for (int i = 0; i < signals.size(); i++) {
+            Signal signal = signals.get(i);
+            if (--signal.loopsUntilPublish <= 0) {
+                signal.loopsUntilPublish = signal.divisor;
+                if (signal.level.compareTo(level) <= 0) {
+                    signal.publish();
+                }
+            }
+        }
+    }
+
+    /**
+     * A single value on the dashboard with a cached entry handle
+     */
+    private static abstract class Signal {
+        protected final NetworkTableEntry entry;
+        protected boolean hasPublished = false;
+
+        final TelemetryLevel level;
+        final int divisor;
+        int loopsUntilPublish;
+
+        protected Signal (NetworkTableEntry entry, TelemetryLevel level, int divisor) {
+            this.entry = entry;
+            this.level = level;
+            this.divisor = Math.max(divisor, 1);
+        }
+
+        /**
+         * Sample the supplier and write the value if it changed
+         */
+        abstract void publish ();
+    }
+
+    private static class NumberSignal extends Signal {
+        private final DoubleSupplier supplier;
+        private long lastBits;
+
+        NumberSignal (NetworkTableEntry entry, TelemetryLevel level, int divisor, DoubleSupplier supplier) {
+            super(entry, level, divisor);
+            this.supplier = supplier;
+        }
+
+        @Override
+        void publish () {
+            double value = supplier.getAsDouble();
+            long bits = Double.doubleToLongBits(value); // Compare bits so NaN counts as unchanged
+            if (!hasPublished || bits != lastBits) {
+                entry.setDouble(value);
+                lastBits = bits;
+                hasPublished = true;
+            }
+        }
+    }
+
+    private static class BooleanSignal extends Signal {
+        private final BooleanSupplier supplier;
+        private boolean lastValue;
+
+        BooleanSignal (NetworkTableEntry entry, TelemetryLevel level, int divisor, BooleanSupplier supplier) {
+            super(entry, level, divisor);
+            this.supplier = supplier;
+        }
+
+        @Override
+        void publish () {
+            boolean value = supplier.getAsBoolean();
+            if (!hasPublished || value != lastValue) {
+                entry.setBoolean(value);
+                lastValue = value;
+                hasPublished = true;
+            }
+        }
+    }
+
+    private static class StringSignal extends Signal {
+        private final Supplier<String> supplier;
+        private String lastValue;
+
+        StringSignal (NetworkTableEntry entry, TelemetryLevel level, int divisor, Supplier<String> supplier) {
+            super(entry, level, divisor);
+            this.supplier = supplier;
+        }
+
+        @Override
+        void publish () {
+            String value = Objects.toString(supplier.get(), ""); // NetworkTables can't hold null
+            if (!hasPublished || !Objects.equals(value, lastValue)) {
+                entry.setString(value);
+                lastValue = value;
+                hasPublished = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package friarLib2.telemetry;
+
+/**
+ * How much telemetry to publish. Each level includes every level
+ * before it.
+ */
+public enum TelemetryLevel {
+    competition, // Only what the drivers need during a match
+    practice, // Values used for tuning on the practice field
+    debug // Everything, including raw sensor readings
+}
@@ -5,17 +5,21 @@ import edu.wpi.first.math.geometry.Translation2d;
 
 /**
  * Represents a 2d vector
+ *
+ * <p>
+ * The direction is stored as a primitive, so moving an existing vector
+ * with the set methods doesn't allocate anything.
  */
 public class Vector3309 {
     private double xComponent;
     private double yComponent;
-    private Rotation2d direction;
+    private double directionRadians;
     private double magnitude;
 
-    private Vector3309 (double xComponent, double yComponent, Rotation2d direction, double magnitude) {
+    private Vector3309 (double xComponent, double yComponent, double directionRadians, double magnitude) {
         this.xComponent = xComponent;
         this.yComponent = yComponent;
-        this.direction = direction;
+        this.directionRadians = directionRadians;
         this.magnitude = magnitude;
     }
 
@@ -40,10 +44,7 @@ public class Vector3309 {
      * @return A new Vector3309
      */
     public static Vector3309 fromRadialCoords (Rotation2d theta, double magnitude) {
-        double xComponent = magnitude * Math.sin(theta.getRadians());
-        double yComponent = magnitude * Math.cos(theta.getRadians());
-
-        return new Vector3309(xComponent, yComponent, theta, magnitude);
+        return new Vector3309().setRadialCoords(theta.getRadians(), magnitude);
     }
 
     /**
@@ -54,12 +55,11 @@ public class Vector3309 {
      * @return Self
      */
     public Vector3309 setCartesianCoords (double xCoordinate, double yCoordinate) {
-        Rotation2d direction = new Rotation2d(Math.atan2(yCoordinate, xCoordinate));
         double magnitude = Math.sqrt((yCoordinate * yCoordinate) + (xCoordinate * xCoordinate));
 
         xComponent = xCoordinate;
         yComponent = yCoordinate;
-        this.direction = direction;
+        directionRadians = Math.atan2(yCoordinate, xCoordinate);
         this.magnitude = magnitude;
 
         return this;
@@ -73,12 +73,20 @@ public class Vector3309 {
      * @return Self
      */
     public Vector3309 setRadialCoords (Rotation2d theta, double magnitude) {
-        double xComponent = magnitude * Math.sin(theta.getRadians());
-        double yComponent = magnitude * Math.cos(theta.getRadians());
+        return setRadialCoords(theta.getRadians(), magnitude);
+    }
 
-        this.xComponent = xComponent;
-        this.yComponent = yComponent;
-        direction = theta;
+    /**
+     * Move the vector to the specified coordinates
+     * 
+     * @param thetaRadians
+     * @param magnitude
+     * @return Self
+     */
+    public Vector3309 setRadialCoords (double thetaRadians, double magnitude) {
+        xComponent = magnitude * Math.sin(thetaRadians);
+        yComponent = magnitude * Math.cos(thetaRadians);
+        directionRadians = thetaRadians;
         this.magnitude = magnitude;
 
         return this;
@@ -90,7 +98,7 @@ public class Vector3309 {
      * @return A new vector with magnitude of one
      */
     public Vector3309 normalize () {
-        return fromRadialCoords(direction, 1);
+        return new Vector3309().setRadialCoords(directionRadians, 1);
     }
 
     /**
@@ -102,7 +110,7 @@ public class Vector3309 {
     public Vector3309 capMagnitude (double maxValue) {
         double newMagnitude = (magnitude < maxValue) ? magnitude : maxValue;
 
-        return Vector3309.fromRadialCoords(direction, newMagnitude);
+        return new Vector3309().setRadialCoords(directionRadians, newMagnitude);
     }
 
     /**
@@ -112,7 +120,7 @@ public class Vector3309 {
      * @return A new, porperly scaled vector
      */
     public Vector3309 scale (double factor) {
-        return Vector3309.fromRadialCoords(direction, magnitude * factor);
+        return new Vector3309().setRadialCoords(directionRadians, magnitude * factor);
     }
 
     public Translation2d getCartesanCoords () {
@@ -136,15 +144,15 @@ public class Vector3309 {
     }
 
     public Rotation2d getDirection () {
-        return direction;
+        return new Rotation2d(directionRadians);
     }
 
     public double getDegrees () {
-        return direction.getDegrees();
+        return Math.toDegrees(directionRadians);
     }
 
     public double getRadians () {
-        return direction.getDegrees();
+        return directionRadians;
     }
 
     public double getMagnitude () {
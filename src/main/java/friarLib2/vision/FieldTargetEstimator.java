@@ -0,0 +1,116 @@
+package friarLib2.vision;
+
+/**
+ * Estimates where a fixed target is on the field by averaging the
+ * positions that each sighting puts it at.
+ *
+ * <p>
+ * A sighting is the target's yaw and distance from the robot, combined
+ * with where the robot was when the frame was captured. The estimate is
+ * in the same frame as those robot poses, so the odometry doesn't need
+ * to know where it is on the field, only stay consistent with itself.
+ * Once the estimate exists, the robot can keep pointing at the target
+ * with the odometry alone while the camera can't see it.
+ *
+ * <p>
+ * Sightings are averaged equally at first. After that each one moves
+ * the estimate by a fixed fraction, so the odometry drifting over a
+ * match is followed. Sightings too far from an established estimate are
+ * ignored, unless there are several in a row, in which case the estimate
+ * starts over from the latest one. Nothing is allocated and no
+ * exceptions are thrown.
+ */
+public class FieldTargetEstimator {
+
+    private static final int ESTABLISHED_SIGHTINGS = 3; // Sightings are only rejected after this many have been averaged
+    private static final int MAX_CONSECUTIVE_REJECTIONS = 5; // Then the estimate is assumed to be wrong and started over
+
+    private final double minimumGain;
+    private final double maxError;
+
+    private double x = 0;
+    private double y = 0;
+    private int sightingCount = 0;
+    private int rejectedCount = 0;
+    private int consecutiveRejections = 0;
+
+    /**
+     * @param minimumGain The smallest fraction of the way each sighting moves the estimate, from 0 to 1
+     * @param maxError How far in meters a sighting can be from an established estimate before it is ignored
+     */
+    public FieldTargetEstimator (double minimumGain, double maxError) {
+        this.minimumGain = minimumGain;
+        this.maxError = maxError;
+    }
+
+    /**
+     * Add a sighting of the target
+     *
+     * @param robotX Where the robot was when the frame was captured, in meters
+     * @param robotY In meters
+     * @param robotHeadingRadians The robot's heading when the frame was captured
+     * @param targetYaw The angle to the target in degrees, right is positive
+     * @param distance The distance from the robot to the target in meters
+     * @return If the sighting was used
+     */
+    public boolean addSighting (double robotX, double robotY, double robotHeadingRadians, double targetYaw, double distance) {
+        double direction = robotHeadingRadians - Math.toRadians(targetYaw);
+        double sightingX = robotX + distance * Math.cos(direction);
+        double sightingY = robotY + distance * Math.sin(direction);
+
+        double errorX = sightingX - x;
+        double errorY = sightingY - y;
+        if (sightingCount >= ESTABLISHED_SIGHTINGS && Math.hypot(errorX, errorY) > maxError) {
+            rejectedCount++;
+            consecutiveRejections++;
+            if (consecutiveRejections < MAX_CONSECUTIVE_REJECTIONS) {
+                return false;
+            }
+            sightingCount = 0;
+        }
+
+        consecutiveRejections = 0;
+        sightingCount++;
+        double gain = Math.max(1.0 / sightingCount, minimumGain);
+        x += errorX * gain;
+        y += errorY * gain;
+        return true;
+    }
+
+    /**
+     * Forget the estimate, e.g. because the odometry was reset and the
+     * old estimate is in a different frame
+     */
+    public void reset () {
+        x = 0;
+        y = 0;
+        sightingCount = 0;
+        consecutiveRejections = 0;
+    }
+
+    public boolean hasEstimate () {
+        return sightingCount > 0;
+    }
+
+    /**
+     * @return The target's x in meters, in the same frame as the robot poses
+     */
+    public double getX () {
+        return x;
+    }
+
+    /**
+     * @return The target's y in meters, in the same frame as the robot poses
+     */
+    public double getY () {
+        return y;
+    }
+
+    public int getSightingCount () {
+        return sightingCount;
+    }
+
+    public int getRejectedCount () {
+        return rejectedCount;
+    }
+}
@@ -0,0 +1,222 @@
+package friarLib2.vision;
+
+/**
+ * Finds the center of a ring of vision tape, like the 2022 hub's, from
+ * every strip of the ring the camera can see.
+ *
+ * <p>
+ * Each strip's yaw and pitch are projected out from the camera until
+ * they reach the height of the tape, which puts the strip on the floor
+ * plan relative to the robot. A circle with the ring's radius is then
+ * fitted through those points with a few Gauss-Newton iterations. Using
+ * every strip averages out the noise in each one, and the center of the
+ * ring doesn't move around as strips come in and out of view the way
+ * the closest strip does.
+ *
+ * <p>
+ * Strips that are far off the fitted circle (reflections, or two strips
+ * merged into one) are dropped and the circle is refitted without them.
+ *
+ * <p>
+ * The camera is assumed to be at the center of the robot, facing
+ * forward. Angles are in degrees, with yaw right positive and pitch up
+ * positive. Nothing is allocated after construction.
+ */
+public class HubCircleSolver {
+
+    private static final int MAX_ITERATIONS = 10;
+    private static final double CONVERGED = 1e-4; // Meters, stop iterating once the center moves less than this
+    private static final double OUTLIER_RESIDUAL = 0.15; // Meters from the circle
+    private static final int MIN_STRIPS_FOR_OUTLIERS = 3;
+
+    private final double cameraPitch; // Radians
+    private final double heightAboveCamera;
+    private final double radius;
+
+    private final double[] forwards;
+    private final double[] lefts;
+    private int pointCount = 0;
+
+    private double centerForward = 0;
+    private double centerLeft = 0;
+    private double rmsResidual = 0;
+
+    /**
+     * @param cameraHeight How high the camera's lens is off the floor, in meters
+     * @param cameraPitch How far the camera is tilted up, in degrees
+     * @param targetHeight How high the tape is off the floor, in meters
+     * @param radius The radius of the ring of tape, in meters
+     * @param maxStrips The most strips that will be given to {@link #solve}
+     */
+    public HubCircleSolver (double cameraHeight, double cameraPitch, double targetHeight, double radius, int maxStrips) {
+        this.cameraPitch = Math.toRadians(cameraPitch);
+        this.heightAboveCamera = targetHeight - cameraHeight;
+        this.radius = radius;
+        forwards = new double[maxStrips];
+        lefts = new double[maxStrips];
+    }
+
+    /**
+     * Find the center of the ring
+     *
+     * @param yaws The yaw of each strip in degrees, right is positive
+     * @param pitches The pitch of each strip in degrees, up is positive
+     * @param count How many strips are in the arrays
+     * @return False if none of the strips could be projected (e.g. they
+     *     are below the horizon), in which case the last solution is kept
+     */
+    public boolean solve (double[] yaws, double[] pitches, int count) {
+        pointCount = 0;
+        for (int i = 0; i < Math.min(count, forwards.length); i++) {
+            projectStrip(yaws[i], pitches[i]);
+        }
+        if (pointCount == 0) {
+            return false;
+        }
+
+        fit();
+
+        // Drop the worst strip if it doesn't belong on the circle and try again
+        if (pointCount >= MIN_STRIPS_FOR_OUTLIERS) {
+            int worst = 0;
+            double worstResidual = 0;
+            for (int i = 0; i < pointCount; i++) {
+                double residual = Math.abs(Math.hypot(forwards[i] - centerForward, lefts[i] - centerLeft) - radius);
+                if (residual > worstResidual) {
+                    worst = i;
+                    worstResidual = residual;
+                }
+            }
+            if (worstResidual > OUTLIER_RESIDUAL) {
+                pointCount--;
+                forwards[worst] = forwards[pointCount];
+                lefts[worst] = lefts[pointCount];
+                fit();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Project a strip onto the plane of the tape and add it to the points
+     */
+    private void projectStrip (double yaw, double pitch) {
+        // Direction to the strip in the camera's frame, scaled so forward is 1
+        double left = -Math.tan(Math.toRadians(yaw));
+        double up = Math.tan(Math.toRadians(pitch));
+
+        // Tilt it up by the camera's pitch
+        double cos = Math.cos(cameraPitch);
+        double sin = Math.sin(cameraPitch);
+        double robotForward = cos - up * sin;
+        double robotUp = sin + up * cos;
+        if (robotUp <= 1e-6 || robotForward <= 0) {
+            return; // Never reaches the height of the tape in front of the robot
+        }
+
+        double scale = heightAboveCamera / robotUp;
+        forwards[pointCount] = robotForward * scale;
+        lefts[pointCount] = left * scale;
+        pointCount++;
+    }
+
+    /**
+     * Least squares fit of the circle's center to the points, with the
+     * radius fixed
+     */
+    private void fit () {
+        // Start behind the middle of the points, the ring's center is further away than the strips facing the camera
+        double meanForward = 0;
+        double meanLeft = 0;
+        for (int i = 0; i < pointCount; i++) {
+            meanForward += forwards[i];
+            meanLeft += lefts[i];
+        }
+        meanForward /= pointCount;
+        meanLeft /= pointCount;
+        double meanDistance = Math.hypot(meanForward, meanLeft);
+        centerForward = meanForward + radius * meanForward / meanDistance;
+        centerLeft = meanLeft + radius * meanLeft / meanDistance;
+
+        if (pointCount == 1) {
+            rmsResidual = 0;
+            return;
+        }
+
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            // Normal equations for the residuals |point - center| - radius
+            double jtj00 = 0, jtj01 = 0, jtj11 = 0;
+            double jtr0 = 0, jtr1 = 0;
+            for (int i = 0; i < pointCount; i++) {
+                double dForward = forwards[i] - centerForward;
+                double dLeft = lefts[i] - centerLeft;
+                double distance = Math.hypot(dForward, dLeft);
+                if (distance < 1e-9) {
+                    continue;
+                }
+                double j0 = -dForward / distance;
+                double j1 = -dLeft / distance;
+                double residual = distance - radius;
+                jtj00 += j0 * j0;
+                jtj01 += j0 * j1;
+                jtj11 += j1 * j1;
+                jtr0 += j0 * residual;
+                jtr1 += j1 * residual;
+            }
+
+            double determinant = jtj00 * jtj11 - jtj01 * jtj01;
+            if (Math.abs(determinant) < 1e-12) {
+                break; // The points are all in a line with the center, so only the distance along it is known
+            }
+            double stepForward = -(jtj11 * jtr0 - jtj01 * jtr1) / determinant;
+            double stepLeft = -(jtj00 * jtr1 - jtj01 * jtr0) / determinant;
+            centerForward += stepForward;
+            centerLeft += stepLeft;
+            if (Math.abs(stepForward) + Math.abs(stepLeft) < CONVERGED) {
+                break;
+            }
+        }
+
+        double sumSquares = 0;
+        for (int i = 0; i < pointCount; i++) {
+            double residual = Math.hypot(forwards[i] - centerForward, lefts[i] - centerLeft) - radius;
+            sumSquares += residual * residual;
+        }
+        rmsResidual = Math.sqrt(sumSquares / pointCount);
+    }
+
+    /**
+     * @return The distance from the camera to the center of the ring, in meters
+     */
+    public double getCenterDistance () {
+        return Math.hypot(centerForward, centerLeft);
+    }
+
+    /**
+     * @return The distance from the camera to the near side of the ring, in meters
+     */
+    public double getTargetDistance () {
+        return getCenterDistance() - radius;
+    }
+
+    /**
+     * @return The angle to the center of the ring in degrees, right is positive
+     */
+    public double getYaw () {
+        return -Math.toDegrees(Math.atan2(centerLeft, centerForward));
+    }
+
+    /**
+     * @return How many strips were used in the last solution
+     */
+    public int getStripCount () {
+        return pointCount;
+    }
+
+    /**
+     * @return The root mean square distance in meters of the strips from the fitted circle
+     */
+    public double getRmsResidual () {
+        return rmsResidual;
+    }
+}
@@ -1,49 +1,200 @@
 package friarLib2.vision;
 
+import edu.wpi.first.networktables.EntryListenerFlags;
+import edu.wpi.first.networktables.EntryNotification;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.Timer;
 
 /**
- * Wrapper for the limelight's networktables API, which can be found at 
+ * Wrapper for the limelight's networktables API, which can be found at
  * https://docs.limelightvision.io/en/latest/networktables_api.html
+ *
+ * <p>
+ * Instead of polling NetworkTables, a listener on the pipeline latency
+ * (tl), which the limelight writes exactly once per camera frame, is told
+ * whenever a frame arrives. It reads the other target values and
+ * publishes them together as one {@link Frame}, and the main loop picks
+ * up the newest frame in {@link #update()}, only doing any work when
+ * there is a new one.
+ *
+ * <p>
+ * NetworkTables stores a frame's values one at a time, and doesn't
+ * promise the listener runs after all of them are stored, so a frame can
+ * still pair the latency with a value from the frame before or after it.
+ * Listening to one key makes that a rare edge instead of something most
+ * frames do. NetworkTables also doesn't send a value that hasn't changed,
+ * so a frame with exactly the same latency as the one before it is
+ * missed, and its values are picked up with the next frame.
+ *
+ * <p>
+ * Frames are stamped with when they arrived on the robot, which makes
+ * the capture time much more accurate than subtracting the pipeline
+ * latency from whenever the main loop happened to look.
  */
 public class LimelightCamera implements VisionCamera {
 
+    private static final double CAPTURE_LATENCY = 0.011; // Seconds, added on top of the pipeline latency according to the docs
+
+    /**
+     * Everything the limelight sent about one camera frame
+     */
+    private static class Frame {
+        final boolean hasTarget;
+        final double x;
+        final double y;
+        final double area;
+        final double skew;
+        final double pipelineLatency; // Seconds
+        final double arrivalTime; // FPGA seconds
+
+        Frame (boolean hasTarget, double x, double y, double area, double skew, double pipelineLatency, double arrivalTime) {
+            this.hasTarget = hasTarget;
+            this.x = x;
+            this.y = y;
+            this.area = area;
+            this.skew = skew;
+            this.pipelineLatency = pipelineLatency;
+            this.arrivalTime = arrivalTime;
+        }
+    }
+
+    private final NetworkTable table;
+    private final NetworkTableEntry tv;
+    private final NetworkTableEntry tx;
+    private final NetworkTableEntry ty;
+    private final NetworkTableEntry ta;
+    private final NetworkTableEntry ts;
+    private final NetworkTableEntry tl;
+    private final int listenerHandle;
+
+    // Written only by the NetworkTables listener thread
+    private volatile Frame latestFrame = null;
+    private volatile long frameCount = 0;
+
+    // The frame the main loop is using
+    private Frame frame = null;
+    private final VisionTarget target = new VisionTarget();
+    private final VisionTarget[] targets = {target}; // Limelight only supports one target
+    private final VisionTarget[] noTargets = {};
+    private final VisionTarget noTarget = new VisionTarget();
+
+    public LimelightCamera () {
+        this("limelight");
+    }
+
+    /**
+     * @param tableName The limelight's NetworkTables name, if it has been changed
+     */
+    public LimelightCamera (String tableName) {
+        table = NetworkTableInstance.getDefault().getTable(tableName);
+        tv = table.getEntry("tv");
+        tx = table.getEntry("tx");
+        ty = table.getEntry("ty");
+        ta = table.getEntry("ta");
+        ts = table.getEntry("ts");
+        tl = table.getEntry("tl");
+
+        listenerHandle = tl.addListener(
+            this::onFrame,
+            EntryListenerFlags.kNew | EntryListenerFlags.kUpdate | EntryListenerFlags.kImmediate);
+    }
+
+    /**
+     * Called on the NetworkTables listener thread whenever the pipeline
+     * latency is written, which is once per camera frame. Every call is a
+     * new frame, even if its values are the same as the last one's.
+     */
+    private void onFrame (EntryNotification notification) {
+        if (!notification.value.isDouble()) {
+            return;
+        }
+        double pipelineLatency = notification.value.getDouble() / 1000.0;
+        boolean hasTarget = tv.getDouble(0) == 1;
+        double x = tx.getDouble(0);
+        double y = ty.getDouble(0);
+        double area = ta.getDouble(0);
+        double skew = ts.getDouble(0);
+
+        latestFrame = new Frame(hasTarget, x, y, area, skew, pipelineLatency, Timer.getFPGATimestamp());
+        frameCount++;
+    }
+
+    /**
+     * Pick up the newest frame from the listener
+     */
+    @Override
+    public void update() {
+        Frame newest = latestFrame;
+        if (newest == frame) {
+            return;
+        }
+
+        frame = newest;
+        target.set(frame.x, frame.y, frame.area, frame.skew, target.getPose());
+    }
+
     @Override
     public boolean hasTargets() {
-        return NetworkTableInstance.getDefault().getTable("limelight").getEntry("tv").getDouble(0) == 1;
+        return frame != null && frame.hasTarget;
     }
 
+    /**
+     * @return The target, or an empty array if there isn't one. The array is shared, so don't modify it.
+     */
     @Override
     public VisionTarget[] getTargets() {
-
-        VisionTarget target = new VisionTarget(
-            NetworkTableInstance.getDefault().getTable("limelight").getEntry("tx").getDouble(0), 
-            NetworkTableInstance.getDefault().getTable("limelight").getEntry("ty").getDouble(0), 
-            NetworkTableInstance.getDefault().getTable("limelight").getEntry("ta").getDouble(0), 
-            NetworkTableInstance.getDefault().getTable("limelight").getEntry("ts").getDouble(0));
-
-        VisionTarget[] targets = {target}; //Limelight only supports one target
-        
-        return targets;
+        return hasTargets() ? targets : noTargets;
     }
 
     @Override
     public VisionTarget getBestTarget() {
-        return getTargets()[0];
+        return hasTargets() ? target : noTarget;
+    }
+
+    /**
+     * The arrival time minus the pipeline and capture latency. Network
+     * latency is not accounted for.
+     */
+    @Override
+    public double getTimestamp() {
+        return frame != null ? frame.arrivalTime - frame.pipelineLatency - CAPTURE_LATENCY : 0;
+    }
+
+    /**
+     * @return The FPGA time in seconds that the current frame arrived on the robot
+     */
+    public double getFrameArrivalTime () {
+        return frame != null ? frame.arrivalTime : 0;
+    }
+
+    /**
+     * @return How many frames have arrived, to see how many the main loop skips
+     */
+    public long getFrameCount () {
+        return frameCount;
+    }
+
+    /**
+     * Stop listening for frames
+     */
+    public void close () {
+        tl.removeListener(listenerHandle);
     }
 
     @Override
     public void setPipeline(String pipelineName) {
-        NetworkTableInstance.getDefault().getTable("limelight").getEntry("pipeline").setNumber(Integer.parseInt(pipelineName));
+        table.getEntry("pipeline").setNumber(Integer.parseInt(pipelineName));
     }
 
     @Override
     public void setLights(LedMode mode) {
         switch (mode) {
-            case on: NetworkTableInstance.getDefault().getTable("limelight").getEntry("ledMode").setNumber(3); break;
-            case off: NetworkTableInstance.getDefault().getTable("limelight").getEntry("ledMode").setNumber(1); break;
-            case blink: NetworkTableInstance.getDefault().getTable("limelight").getEntry("ledMode").setNumber(2); break;
-            case currentPipeline: NetworkTableInstance.getDefault().getTable("limelight").getEntry("ledMode").setNumber(0); break;
+            case on: table.getEntry("ledMode").setNumber(3); break;
+            case off: table.getEntry("ledMode").setNumber(1); break;
+            case blink: table.getEntry("ledMode").setNumber(2); break;
+            case currentPipeline: table.getEntry("ledMode").setNumber(0); break;
         }
     }
 }
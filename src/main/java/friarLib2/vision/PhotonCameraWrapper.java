@@ -1,15 +1,40 @@
 package friarLib2.vision;
 
+import java.util.Arrays;
 import java.util.List;
 
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
 import org.photonvision.PhotonCamera;
 import org.photonvision.targeting.PhotonPipelineResult;
 import org.photonvision.targeting.PhotonTrackedTarget;
 import org.photonvision.common.hardware.VisionLEDMode;
 
+/**
+ * A PhotonVision camera.
+ *
+ * <p>
+ * PhotonLib decodes the whole pipeline result from NetworkTables every
+ * time it is asked for it, so {@link #update()} first checks when the
+ * camera's raw result entry last changed, and only fetches and decodes
+ * the result when a new one has been written. Its targets are copied out
+ * into target objects that are reused for every frame. The targets
+ * returned by this class are only valid until the next new frame.
+ */
 public class PhotonCameraWrapper implements VisionCamera {
 
+    private static final int MAX_TARGETS = 16;
+
     private PhotonCamera camera;
+    private final NetworkTableEntry rawBytes; // Where PhotonLib reads the serialized result from
+    private long lastChange = 0;
+
+    private final VisionTarget[] slots = new VisionTarget[MAX_TARGETS];
+    private final VisionTarget[][] targetArrays = new VisionTarget[MAX_TARGETS + 1][]; // Indexed by target count, created as needed
+    private final VisionTarget noTarget = new VisionTarget();
+    private int targetCount = 0;
+    private double timestamp = 0;
 
     /**
      * Initializes the PhotonCamera object 
@@ -18,6 +43,39 @@ public class PhotonCameraWrapper implements VisionCamera {
      */
     public PhotonCameraWrapper (String name) {
         camera = new PhotonCamera(name);
+        rawBytes = NetworkTableInstance.getDefault().getTable("photonvision").getSubTable(name).getEntry("rawBytes");
+
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new VisionTarget();
+        }
+    }
+
+    /**
+     * Fetch and decode the latest result, if a new one has arrived
+     */
+    @Override
+    public void update() {
+        long change = rawBytes.getLastChange();
+        if (change == lastChange) {
+            return;
+        }
+        lastChange = change;
+
+        PhotonPipelineResult result = camera.getLatestResult();
+        timestamp = result.getTimestampSeconds();
+
+        //Parse the PhotonTrackedTargets into the reused visionTargets
+        List<PhotonTrackedTarget> targetList = result.getTargets();
+        targetCount = Math.min(targetList.size(), MAX_TARGETS);
+        for (int i = 0; i < targetCount; i++) {
+            PhotonTrackedTarget target = targetList.get(i);
+            slots[i].set(
+                target.getYaw(),
+                target.getPitch(),
+                target.getArea(),
+                target.getSkew(),
+                target.getCameraToTarget());
+        }
     }
 
     /**
@@ -25,41 +83,34 @@ public class PhotonCameraWrapper implements VisionCamera {
      */
     @Override
     public boolean hasTargets() {
-        return camera.getLatestResult().hasTargets();
+        return targetCount > 0;
     }
 
     /**
-     * @return an array of visionTarget objects
+     * @return an array of visionTarget objects. The array is shared, so don't modify it.
      */
     @Override
     public VisionTarget[] getTargets() {
-        //Get the list of targets
-        PhotonPipelineResult result = camera.getLatestResult();
-        List<PhotonTrackedTarget> targetList = result.getTargets();
-
-        //Parse the PhotonTrackedTarget into visionTarget
-        VisionTarget[] targets = new VisionTarget[targetList.size()];
-        for (int i = 0; i < targets.length; i++) {
-            targets[i] = new VisionTarget(
-                targetList.get(i).getYaw(), 
-                targetList.get(i).getPitch(), 
-                targetList.get(i).getArea(), 
-                targetList.get(i).getSkew(),
-                targetList.get(i).getCameraToTarget());
-            }
-        return targets;
+        if (targetArrays[targetCount] == null) {
+            targetArrays[targetCount] = Arrays.copyOf(slots, targetCount);
+        }
+        return targetArrays[targetCount];
     }
 
     /**
-     * @return the object with index 0
+     * @return the object with index 0, or an empty target if there are none
      */
     @Override
     public VisionTarget getBestTarget() {
-        try {
-            return getTargets()[0];
-        } catch (IndexOutOfBoundsException e) {
-            return new VisionTarget();
-        }
+        return targetCount > 0 ? slots[0] : noTarget;
+    }
+
+    /**
+     * @return when the latest result was captured, as calculated by PhotonLib from the pipeline's latency
+     */
+    @Override
+    public double getTimestamp() {
+        return timestamp;
     }
 
     /**
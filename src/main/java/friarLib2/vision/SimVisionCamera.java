@@ -0,0 +1,329 @@
+package friarLib2.vision;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * A simulated camera that works out what a real one would see from the
+ * simulated robot's pose, so vision code can run in the desktop simulator
+ * or in headless tools.
+ *
+ * <p>
+ * Targets are flat rectangles at fixed places on the field, facing a
+ * direction. Every frame, each target that faces the camera and is in its
+ * field of view gets a yaw and pitch in degrees (like PhotonVision and the
+ * limelight report) and an area in percent of the image. Targets are
+ * sorted biggest first, so the best target is the closest one.
+ *
+ * <p>
+ * Frames are captured at a fixed rate and only show up after the
+ * latency, stamped with their capture time. Each angle gets Gaussian
+ * noise, and whole frames are dropped at random. Everything is
+ * preallocated, so updating doesn't create any garbage.
+ *
+ * <p>
+ * The camera is assumed to be at the center of the robot, facing forward.
+ */
+public class SimVisionCamera implements VisionCamera {
+
+    private static final int MAX_TARGETS = 16;
+    private static final double MAX_VISIBLE_ANGLE = Math.toRadians(70); // Targets turned further from the camera than this are too thin to see
+
+    private final Supplier<Pose2d> robotPose;
+    private final double cameraHeight;
+    private final double cameraPitch; // Radians
+    private final double horizontalFOV; // Degrees
+    private final double verticalFOV; // Degrees
+    private final Random random;
+
+    private double framePeriod = 1.0 / 30;
+    private double latency = 0.03;
+    private double angleNoise = 0;
+    private double dropoutChance = 0;
+
+    // The targets on the field
+    private int fieldTargetCount = 0;
+    private final double[] fieldX = new double[MAX_TARGETS];
+    private final double[] fieldY = new double[MAX_TARGETS];
+    private final double[] fieldZ = new double[MAX_TARGETS];
+    private final double[] facing = new double[MAX_TARGETS]; // Radians
+    private final double[] targetArea = new double[MAX_TARGETS]; // Square meters
+
+    /**
+     * A captured frame waiting out the latency
+     */
+    private static class Frame {
+        double captureTime;
+        double deliveryTime = Double.POSITIVE_INFINITY;
+        int count;
+        final double[] yaws = new double[MAX_TARGETS];
+        final double[] pitches = new double[MAX_TARGETS];
+        final double[] areas = new double[MAX_TARGETS];
+    }
+
+    private Frame[] frames = new Frame[0];
+    private int nextFrame = 0;
+    private double nextCaptureTime = Double.NEGATIVE_INFINITY;
+
+    // The frame being shown
+    private final VisionTarget[] slots = new VisionTarget[MAX_TARGETS];
+    private final VisionTarget[][] targetArrays = new VisionTarget[MAX_TARGETS + 1][];
+    private final VisionTarget noTarget = new VisionTarget();
+    private int targetCount = 0;
+    private double timestamp = 0;
+
+    // Scratch space for sorting a frame
+    private final int[] order = new int[MAX_TARGETS];
+    private final double[] sortedYaws = new double[MAX_TARGETS];
+    private final double[] sortedPitches = new double[MAX_TARGETS];
+    private final double[] sortedAreas = new double[MAX_TARGETS];
+
+    /**
+     * @param robotPose Where the simulated robot is on the field
+     * @param cameraHeight How high the camera's lens is off the floor, in meters
+     * @param cameraPitch How far the camera is tilted up, in degrees
+     * @param horizontalFOV In degrees
+     * @param verticalFOV In degrees
+     * @param seed For the noise and dropouts, so runs can be repeated
+     */
+    public SimVisionCamera (Supplier<Pose2d> robotPose, double cameraHeight, double cameraPitch, double horizontalFOV, double verticalFOV, long seed) {
+        this.robotPose = robotPose;
+        this.cameraHeight = cameraHeight;
+        this.cameraPitch = Math.toRadians(cameraPitch);
+        this.horizontalFOV = horizontalFOV;
+        this.verticalFOV = verticalFOV;
+        random = new Random(seed);
+
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new VisionTarget();
+        }
+        allocateFrames();
+    }
+
+    /**
+     * Put a target on the field
+     *
+     * @param x The center of the target on the field, in meters
+     * @param y In meters
+     * @param z How high the center of the target is off the floor, in meters
+     * @param facingRadians The direction the target faces on the field
+     * @param width In meters
+     * @param height In meters
+     */
+    public void addTarget (double x, double y, double z, double facingRadians, double width, double height) {
+        if (fieldTargetCount >= MAX_TARGETS) {
+            throw new IllegalStateException("A simulated camera can only have " + MAX_TARGETS + " targets");
+        }
+        fieldX[fieldTargetCount] = x;
+        fieldY[fieldTargetCount] = y;
+        fieldZ[fieldTargetCount] = z;
+        facing[fieldTargetCount] = facingRadians;
+        targetArea[fieldTargetCount] = width * height;
+        fieldTargetCount++;
+    }
+
+    /**
+     * @param framesPerSecond How often the camera captures a frame
+     */
+    public void setFrameRate (double framesPerSecond) {
+        framePeriod = 1 / framesPerSecond;
+        allocateFrames();
+    }
+
+    /**
+     * @param seconds How long after a frame is captured it shows up
+     */
+    public void setLatency (double seconds) {
+        latency = seconds;
+        allocateFrames();
+    }
+
+    /**
+     * @param degrees The standard deviation of the noise added to every yaw and pitch
+     */
+    public void setAngleNoise (double degrees) {
+        angleNoise = degrees;
+    }
+
+    /**
+     * @param chance How likely each frame is to see nothing, from 0 to 1
+     */
+    public void setDropoutChance (double chance) {
+        dropoutChance = chance;
+    }
+
+    /**
+     * Make room for every frame that can be waiting out the latency at once
+     */
+    private void allocateFrames () {
+        frames = new Frame[(int) Math.ceil(latency / framePeriod) + 2];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = new Frame();
+        }
+        nextFrame = 0;
+    }
+
+    @Override
+    public void update () {
+        update(Timer.getFPGATimestamp());
+    }
+
+    /**
+     * Capture a frame if it's time to, and show the newest frame that has
+     * made it through the latency
+     *
+     * @param now The current time in seconds
+     */
+    public void update (double now) {
+        if (now >= nextCaptureTime) {
+            capture(frames[nextFrame], now);
+            nextFrame = (nextFrame + 1) % frames.length;
+            if (nextCaptureTime < now - framePeriod) {
+                nextCaptureTime = now; // Fell behind, or just started
+            }
+            nextCaptureTime += framePeriod;
+        }
+
+        Frame newest = null;
+        for (Frame frame : frames) {
+            if (frame.deliveryTime <= now && frame.captureTime > timestamp && (newest == null || frame.captureTime > newest.captureTime)) {
+                newest = frame;
+            }
+        }
+        if (newest == null) {
+            return;
+        }
+
+        timestamp = newest.captureTime;
+        targetCount = newest.count;
+        for (int i = 0; i < targetCount; i++) {
+            slots[i].set(newest.yaws[i], newest.pitches[i], newest.areas[i], 0, slots[i].getPose());
+        }
+    }
+
+    /**
+     * Work out what the camera sees from where the robot is now
+     */
+    private void capture (Frame frame, double now) {
+        frame.captureTime = now;
+        frame.deliveryTime = now + latency;
+        frame.count = 0;
+        if (random.nextDouble() < dropoutChance) {
+            return;
+        }
+
+        Pose2d pose = robotPose.get();
+        double heading = pose.getRotation().getRadians();
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        double pitchCos = Math.cos(cameraPitch);
+        double pitchSin = Math.sin(cameraPitch);
+        double viewplaneArea = 4 * Math.tan(Math.toRadians(horizontalFOV) / 2) * Math.tan(Math.toRadians(verticalFOV) / 2);
+
+        int count = 0;
+        for (int i = 0; i < fieldTargetCount; i++) {
+            double dx = fieldX[i] - pose.getX();
+            double dy = fieldY[i] - pose.getY();
+
+            // Skip targets facing away from the camera
+            double facingCos = -(dx * Math.cos(facing[i]) + dy * Math.sin(facing[i])) / Math.hypot(dx, dy);
+            if (facingCos < Math.cos(MAX_VISIBLE_ANGLE)) {
+                continue;
+            }
+
+            // Into the camera's frame
+            double forward = dx * cos + dy * sin;
+            double left = -dx * sin + dy * cos;
+            double up = fieldZ[i] - cameraHeight;
+            double cameraForward = forward * pitchCos + up * pitchSin;
+            double cameraUp = -forward * pitchSin + up * pitchCos;
+            if (cameraForward <= 0) {
+                continue;
+            }
+
+            double yaw = -Math.toDegrees(Math.atan(left / cameraForward));
+            double pitch = Math.toDegrees(Math.atan(cameraUp / cameraForward));
+            if (Math.abs(yaw) > horizontalFOV / 2 || Math.abs(pitch) > verticalFOV / 2) {
+                continue;
+            }
+
+            double distanceSquared = forward * forward + left * left + up * up;
+            frame.yaws[count] = yaw + random.nextGaussian() * angleNoise;
+            frame.pitches[count] = pitch + random.nextGaussian() * angleNoise;
+            frame.areas[count] = 100 * targetArea[i] * facingCos / distanceSquared / viewplaneArea;
+            count++;
+        }
+        frame.count = count;
+
+        sortByArea(frame);
+    }
+
+    /**
+     * Put the biggest targets first, like PhotonVision does by default
+     */
+    private void sortByArea (Frame frame) {
+        for (int i = 0; i < frame.count; i++) {
+            order[i] = i;
+        }
+        for (int i = 1; i < frame.count; i++) {
+            int index = order[i];
+            int j = i - 1;
+            while (j >= 0 && frame.areas[order[j]] < frame.areas[index]) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = index;
+        }
+
+        for (int i = 0; i < frame.count; i++) {
+            sortedYaws[i] = frame.yaws[order[i]];
+            sortedPitches[i] = frame.pitches[order[i]];
+            sortedAreas[i] = frame.areas[order[i]];
+        }
+        System.arraycopy(sortedYaws, 0, frame.yaws, 0, frame.count);
+        System.arraycopy(sortedPitches, 0, frame.pitches, 0, frame.count);
+        System.arraycopy(sortedAreas, 0, frame.areas, 0, frame.count);
+    }
+
+    @Override
+    public boolean hasTargets () {
+        return targetCount > 0;
+    }
+
+    /**
+     * @return The targets in the current frame. The array is shared, so don't modify it.
+     */
+    @Override
+    public VisionTarget[] getTargets () {
+        if (targetArrays[targetCount] == null) {
+            targetArrays[targetCount] = Arrays.copyOf(slots, targetCount);
+        }
+        return targetArrays[targetCount];
+    }
+
+    /**
+     * @return The biggest target, or an empty target if there are none
+     */
+    @Override
+    public VisionTarget getBestTarget () {
+        return targetCount > 0 ? slots[0] : noTarget;
+    }
+
+    /**
+     * @return When the current frame was captured
+     */
+    @Override
+    public double getTimestamp () {
+        return timestamp;
+    }
+
+    @Override
+    public void setPipeline (String pipelineName) {}
+
+    @Override
+    public void setLights (LedMode mode) {}
+}
@@ -0,0 +1,264 @@
+package friarLib2.vision;
+
+/**
+ * Tracks a vision target's yaw and distance from the robot with a pair
+ * of constant velocity Kalman filters, one for each.
+ *
+ * <p>
+ * Between camera frames the track is moved by the robot's own motion
+ * (from odometry), so it keeps pointing at the right place through short
+ * dropouts and while the robot turns. Observations that are too far from
+ * the prediction for the filter's current uncertainty are thrown out as
+ * bad readings. If several in a row are thrown out, the filter assumes
+ * the track was wrong and starts over from the next observation.
+ *
+ * <p>
+ * Everything is done with primitive fields: nothing is allocated after
+ * construction and no exceptions are thrown.
+ *
+ * <p>
+ * Yaw follows the camera convention: degrees, with targets to the right
+ * positive. The target is assumed to be seen from the center of the robot.
+ */
+public class TargetTracker {
+
+    private static final double GATE = 9; // Observations more than 3 standard deviations from the prediction are rejected
+    private static final int MAX_CONSECUTIVE_REJECTIONS = 3;
+    private static final double INITIAL_RATE_VARIANCE = 100;
+    private static final double HIT_RATE_SMOOTHING = 0.2;
+
+    private final double yawNoiseVariance;
+    private final double distanceNoiseVariance;
+    private final double yawProcessNoise;
+    private final double distanceProcessNoise;
+    private final double maxCoastTime;
+
+    // Yaw state and covariance
+    private double yaw;
+    private double yawRate;
+    private double yawP00, yawP01, yawP11;
+
+    // Distance state and covariance
+    private double distance;
+    private double distanceRate;
+    private double distanceP00, distanceP01, distanceP11;
+
+    private boolean initialized = false;
+    private double filterTime = 0;
+    private double lastObservationTime = Double.NEGATIVE_INFINITY;
+    private int consecutiveRejections = 0;
+    private double hitRate = 0;
+
+    private final double[] moved = new double[2];
+
+    /**
+     * @param yawStdDev How noisy each yaw observation is, in degrees
+     * @param distanceStdDev How noisy each distance observation is, in meters
+     * @param yawAcceleration How quickly the target's yaw changes speed, in degrees/second squared, not counting the robot's own motion
+     * @param distanceAcceleration How quickly the target's distance changes speed, in meters/second squared, not counting the robot's own motion
+     * @param maxCoastTime How long in seconds to keep predicting the target without seeing it
+     */
+    public TargetTracker (double yawStdDev, double distanceStdDev, double yawAcceleration, double distanceAcceleration, double maxCoastTime) {
+        yawNoiseVariance = yawStdDev * yawStdDev;
+        distanceNoiseVariance = distanceStdDev * distanceStdDev;
+        yawProcessNoise = yawAcceleration * yawAcceleration;
+        distanceProcessNoise = distanceAcceleration * distanceAcceleration;
+        this.maxCoastTime = maxCoastTime;
+    }
+
+    /**
+     * Move the track forward in time. Call once per loop, whether or not
+     * the target was seen.
+     *
+     * @param timestamp The current time in seconds
+     * @param robotDX How far the robot moved forward since the last call, in meters
+     * @param robotDY How far the robot moved left since the last call, in meters
+     * @param robotDTheta How far the robot turned counterclockwise since the last call, in radians
+     */
+    public void predict (double timestamp, double robotDX, double robotDY, double robotDTheta) {
+        double dt = timestamp - filterTime;
+        filterTime = timestamp;
+        if (!initialized || dt <= 0) {
+            return;
+        }
+
+        compensateForRobotMotion(yaw, distance, robotDX, robotDY, robotDTheta, moved);
+        yaw = moved[0] + yawRate * dt;
+        distance = moved[1] + distanceRate * dt;
+
+        // P = F P F^T + Q, with F = [1 dt; 0 1] and Q from white noise acceleration
+        double dt2 = dt * dt;
+        double dt3 = dt2 * dt;
+        yawP00 += 2 * dt * yawP01 + dt2 * yawP11 + yawProcessNoise * dt3 / 3;
+        yawP01 += dt * yawP11 + yawProcessNoise * dt2 / 2;
+        yawP11 += yawProcessNoise * dt;
+        distanceP00 += 2 * dt * distanceP01 + dt2 * distanceP11 + distanceProcessNoise * dt3 / 3;
+        distanceP01 += dt * distanceP11 + distanceProcessNoise * dt2 / 2;
+        distanceP11 += distanceProcessNoise * dt;
+    }
+
+    /**
+     * Correct the track with an observation of the target. The observation
+     * must already be brought up to the time of the last {@link #predict},
+     * e.g. with {@link #compensateForRobotMotion} using the robot's
+     * motion since the frame was captured.
+     *
+     * @param captureTime When the frame was captured, in seconds
+     * @param observedYaw In degrees, right is positive
+     * @param observedDistance In meters
+     * @return If the observation was used
+     */
+    public boolean addObservation (double captureTime, double observedYaw, double observedDistance) {
+        if (!initialized || captureTime - lastObservationTime > maxCoastTime) {
+            initialize(observedYaw, observedDistance);
+            lastObservationTime = captureTime;
+            hitRate = HIT_RATE_SMOOTHING;
+            return true;
+        }
+
+        double yawInnovation = wrapDegrees(observedYaw - yaw);
+        double distanceInnovation = observedDistance - distance;
+        double yawS = yawP00 + yawNoiseVariance;
+        double distanceS = distanceP00 + distanceNoiseVariance;
+
+        if (yawInnovation * yawInnovation / yawS > GATE || distanceInnovation * distanceInnovation / distanceS > GATE) {
+            hitRate += (0 - hitRate) * HIT_RATE_SMOOTHING;
+            consecutiveRejections++;
+            if (consecutiveRejections >= MAX_CONSECUTIVE_REJECTIONS) {
+                initialize(observedYaw, observedDistance);
+                lastObservationTime = captureTime;
+                return true;
+            }
+            return false;
+        }
+
+        double k0 = yawP00 / yawS;
+        double k1 = yawP01 / yawS;
+        yaw = wrapDegrees(yaw + k0 * yawInnovation);
+        yawRate += k1 * yawInnovation;
+        yawP11 -= k1 * yawP01;
+        yawP01 *= 1 - k0;
+        yawP00 *= 1 - k0;
+
+        k0 = distanceP00 / distanceS;
+        k1 = distanceP01 / distanceS;
+        distance += k0 * distanceInnovation;
+        distanceRate += k1 * distanceInnovation;
+        distanceP11 -= k1 * distanceP01;
+        distanceP01 *= 1 - k0;
+        distanceP00 *= 1 - k0;
+
+        hitRate += (1 - hitRate) * HIT_RATE_SMOOTHING;
+        consecutiveRejections = 0;
+        lastObservationTime = captureTime;
+        return true;
+    }
+
+    private void initialize (double observedYaw, double observedDistance) {
+        yaw = observedYaw;
+        yawRate = 0;
+        yawP00 = yawNoiseVariance;
+        yawP01 = 0;
+        yawP11 = INITIAL_RATE_VARIANCE;
+
+        distance = observedDistance;
+        distanceRate = 0;
+        distanceP00 = distanceNoiseVariance;
+        distanceP01 = 0;
+        distanceP11 = INITIAL_RATE_VARIANCE;
+
+        initialized = true;
+        consecutiveRejections = 0;
+    }
+
+    /**
+     * Forget the target
+     */
+    public void reset () {
+        initialized = false;
+        lastObservationTime = Double.NEGATIVE_INFINITY;
+        hitRate = 0;
+    }
+
+    /**
+     * @param now The current time in seconds
+     * @return If the target has been seen recently enough to trust the track
+     */
+    public boolean hasTrack (double now) {
+        return initialized && now - lastObservationTime <= maxCoastTime;
+    }
+
+    /**
+     * How much to trust the track, from 0 to 1. Falls as more observations
+     * are rejected and as time passes without seeing the target.
+     *
+     * @param now The current time in seconds
+     */
+    public double getConfidence (double now) {
+        if (!hasTrack(now)) {
+            return 0;
+        }
+        return hitRate * (1 - getTimeSinceObservation(now) / maxCoastTime);
+    }
+
+    /**
+     * @param now The current time in seconds
+     * @return Seconds since the target was last seen
+     */
+    public double getTimeSinceObservation (double now) {
+        return now - lastObservationTime;
+    }
+
+    public double getYaw () {
+        return yaw;
+    }
+
+    public double getYawRate () {
+        return yawRate;
+    }
+
+    public double getYawStdDev () {
+        return Math.sqrt(yawP00);
+    }
+
+    public double getDistance () {
+        return distance;
+    }
+
+    public double getDistanceRate () {
+        return distanceRate;
+    }
+
+    public double getDistanceStdDev () {
+        return Math.sqrt(distanceP00);
+    }
+
+    /**
+     * Work out where a target seen from one robot pose appears from
+     * another, e.g. to bring an old camera frame up to date
+     *
+     * @param yaw In degrees, right is positive
+     * @param distance In meters
+     * @param robotDX How far the robot moved forward since, in meters
+     * @param robotDY How far the robot moved left since, in meters
+     * @param robotDTheta How far the robot turned counterclockwise since, in radians
+     * @param yawAndDistance Filled with the new yaw and distance
+     */
+    public static void compensateForRobotMotion (double yaw, double distance, double robotDX, double robotDY, double robotDTheta, double[] yawAndDistance) {
+        double yawRadians = Math.toRadians(yaw);
+        double forward = distance * Math.cos(yawRadians) - robotDX;
+        double left = -distance * Math.sin(yawRadians) - robotDY;
+
+        double cos = Math.cos(robotDTheta);
+        double sin = Math.sin(robotDTheta);
+        double newForward = forward * cos + left * sin;
+        double newLeft = -forward * sin + left * cos;
+
+        yawAndDistance[0] = -Math.toDegrees(Math.atan2(newLeft, newForward));
+        yawAndDistance[1] = Math.hypot(newForward, newLeft);
+    }
+
+    private static double wrapDegrees (double degrees) {
+        return degrees - 360 * Math.floor((degrees + 180) / 360);
+    }
+}
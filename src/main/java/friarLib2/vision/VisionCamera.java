@@ -4,11 +4,34 @@ package friarLib2.vision;
  * A wrapper for a vision system. This is inteded to make it easy to switch between different vision
  * systems but keep the same API. For example, if we want to switch between PhotonVision and Limelight,
  * we can do so without needing to change too much code
+ *
+ * <p>
+ * Cameras are read by {@link #update()}, which a {@link VisionManager}
+ * calls from its camera worker every poll period, on one of the
+ * manager's threads. The getters return the results of the last read,
+ * and belong to that worker too: once the manager is started, only the
+ * worker and the {@link VisionManager.FrameProcessor} it runs may call
+ * them. Other code uses the measurements the manager hands over.
+ * {@link #setPipeline} and {@link #setLights} only send settings to the
+ * camera, so they can be called from any thread.
  */
 public interface VisionCamera {
+    /**
+     * Read the latest frame from the camera. Called by the camera's
+     * {@link VisionManager} worker every poll period, never from two
+     * threads at once.
+     */
+    public default void update () {}
+
     public boolean hasTargets ();
     public VisionTarget[] getTargets ();
     public VisionTarget getBestTarget ();
+
+    /**
+     * @return The FPGA time in seconds that the current targets were
+     *     captured at, accounting for processing and network latency
+     */
+    public double getTimestamp ();
     public void setPipeline (String pipelineName);
     public void setLights (LedMode mode);
 }
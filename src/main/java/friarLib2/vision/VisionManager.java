@@ -0,0 +1,211 @@
+package friarLib2.vision;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Reads any number of cameras and processes their frames on a pool of
+ * worker threads, so adding cameras doesn't slow down the main loop.
+ *
+ * <p>
+ * Each camera is polled by a worker at a fixed rate. When the camera has
+ * a new frame with targets in it, the camera's {@link FrameProcessor}
+ * turns the frame into a {@link VisionMeasurement} on the worker thread,
+ * and the measurement goes into a lock-free queue shared by every
+ * camera. Once per loop, {@link #update()} empties the queue without
+ * ever waiting on the workers, and sorts what it found by capture time.
+ *
+ * <p>
+ * Once the manager is started, each camera belongs to its worker: the
+ * main loop must only use the measurements, not the cameras themselves.
+ */
+public class VisionManager {
+
+    private static final int MAX_QUEUED = 64; // Measurements past this are dropped if the main loop stops collecting them
+
+    /**
+     * Turns a camera frame into a measurement. Each camera needs its own
+     * processor, since it is run on that camera's worker thread.
+     */
+    public interface FrameProcessor {
+        /**
+         * @param camera The camera, already updated with a new frame that has targets
+         * @param cameraName The name the camera was added with
+         * @return The measurement, or null to ignore the frame
+         */
+        VisionMeasurement process (VisionCamera camera, String cameraName);
+    }
+
+    /**
+     * Polls one camera, on whichever worker thread is free
+     */
+    private class CameraWorker implements Runnable {
+        final String name;
+        final VisionCamera camera;
+        final FrameProcessor processor;
+        double lastTimestamp = Double.NaN;
+
+        CameraWorker (String name, VisionCamera camera, FrameProcessor processor) {
+            this.name = name;
+            this.camera = camera;
+            this.processor = processor;
+        }
+
+        @Override
+        public void run () {
+            // An exception would silently cancel the polling, so report it and keep going
+            try {
+                camera.update();
+                double timestamp = camera.getTimestamp();
+                if (timestamp == lastTimestamp) {
+                    return;
+                }
+                lastTimestamp = timestamp;
+
+                if (camera.hasTargets()) {
+                    VisionMeasurement measurement = processor.process(camera, name);
+                    if (measurement != null) {
+                        publish(measurement);
+                    }
+                }
+            } catch (RuntimeException e) {
+                DriverStation.reportError("Vision camera " + name + ": " + e, false);
+            }
+        }
+    }
+
+    private final int threadCount;
+    private final double pollPeriod;
+    private final List<CameraWorker> workers = new ArrayList<>();
+    private ScheduledExecutorService executor = null;
+
+    private final ConcurrentLinkedQueue<VisionMeasurement> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    // Only touched by the main loop
+    private final ArrayList<VisionMeasurement> measurements = new ArrayList<>();
+    private final List<VisionMeasurement> measurementsView = Collections.unmodifiableList(measurements);
+
+    /**
+     * @param threadCount How many worker threads to share between the cameras
+     * @param pollPeriod How often in seconds to check each camera for a new frame
+     */
+    public VisionManager (int threadCount, double pollPeriod) {
+        this.threadCount = threadCount;
+        this.pollPeriod = pollPeriod;
+    }
+
+    /**
+     * Add a camera. Must be done before {@link #start()}.
+     *
+     * @param name What to call the camera in measurements and errors
+     * @param camera The camera
+     * @param processor Turns the camera's frames into measurements
+     */
+    public void addCamera (String name, VisionCamera camera, FrameProcessor processor) {
+        if (executor != null) {
+            throw new IllegalStateException("Cameras must be added before the vision manager is started");
+        }
+        workers.add(new CameraWorker(name, camera, processor));
+    }
+
+    /**
+     * Start polling the cameras
+     */
+    public void start () {
+        if (executor != null) {
+            return;
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newScheduledThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "Vision " + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long periodMicros = Math.round(pollPeriod * 1e6);
+        for (int i = 0; i < workers.size(); i++) {
+            // Spread the cameras out so they don't all want a thread at the same time
+            long offset = periodMicros * i / workers.size();
+            executor.scheduleAtFixedRate(workers.get(i), offset, periodMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    /**
+     * Stop polling the cameras, waiting for any processing that has
+     * already started to finish
+     */
+    public void stop () {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    /**
+     * Called on the worker threads. Never blocks.
+     */
+    private void publish (VisionMeasurement measurement) {
+        if (queuedCount.incrementAndGet() > MAX_QUEUED) {
+            queuedCount.decrementAndGet();
+            droppedCount.incrementAndGet();
+            return;
+        }
+        queue.offer(measurement);
+    }
+
+    /**
+     * Collect every measurement made since the last call, from every
+     * camera. Called once per loop, before the command scheduler runs.
+     * Never waits for the workers.
+     */
+    public void update () {
+        measurements.clear();
+        VisionMeasurement measurement;
+        while ((measurement = queue.poll()) != null) {
+            queuedCount.decrementAndGet();
+
+            // Sort by capture time as they come in, there are only ever a few
+            int i = measurements.size();
+            measurements.add(measurement);
+            while (i > 0 && measurements.get(i - 1).getTimestamp() > measurement.getTimestamp()) {
+                measurements.set(i, measurements.get(i - 1));
+                i--;
+            }
+            measurements.set(i, measurement);
+        }
+    }
+
+    /**
+     * @return Every measurement collected by the last {@link #update()},
+     *     oldest capture first
+     */
+    public List<VisionMeasurement> getMeasurements () {
+        return measurementsView;
+    }
+
+    /**
+     * @return How many measurements were dropped because the main loop
+     *     wasn't collecting them
+     */
+    public long getDroppedCount () {
+        return droppedCount.get();
+    }
+}
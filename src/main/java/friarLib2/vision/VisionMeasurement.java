@@ -0,0 +1,60 @@
+package friarLib2.vision;
+
+import java.util.Arrays;
+
+/**
+ * Where one camera frame put the target, relative to the robot. Made on
+ * a {@link VisionManager} worker thread and handed to the main loop, so
+ * it can't be changed once it's made.
+ */
+public class VisionMeasurement {
+
+    private final String cameraName;
+    private final double timestamp;
+    private final double yaw;
+    private final double distance;
+    private final int targetCount;
+    private final double residual;
+    private final double bestTargetYaw;
+    private final double bestTargetPitch;
+    private final double[] stripYaws;
+    private final double[] stripPitches;
+
+    /**
+     * @param cameraName Which camera saw the target
+     * @param timestamp The FPGA time in seconds the frame was captured at
+     * @param yaw The angle from the front of the robot to the target in degrees, right is positive
+     * @param distance From the center of the robot to the target in meters
+     * @param targetCount How many of the frame's targets went into the measurement
+     * @param residual How badly the targets fit together, in meters (0 if there was only one)
+     * @param bestTargetYaw The yaw of the frame's best target in degrees, right is positive, e.g. for logging
+     * @param bestTargetPitch The pitch of the frame's best target in degrees, up is positive, e.g. for logging
+     * @param stripYaws The yaw of every target in the frame, e.g. for logging. Copied.
+     * @param stripPitches The pitch of every target in the frame. Copied.
+     * @param stripCount How many of the entries in stripYaws and stripPitches are used
+     */
+    public VisionMeasurement (String cameraName, double timestamp, double yaw, double distance, int targetCount, double residual, double bestTargetYaw, double bestTargetPitch, double[] stripYaws, double[] stripPitches, int stripCount) {
+        this.cameraName = cameraName;
+        this.timestamp = timestamp;
+        this.yaw = yaw;
+        this.distance = distance;
+        this.targetCount = targetCount;
+        this.residual = residual;
+        this.bestTargetYaw = bestTargetYaw;
+        this.bestTargetPitch = bestTargetPitch;
+        this.stripYaws = Arrays.copyOf(stripYaws, stripCount);
+        this.stripPitches = Arrays.copyOf(stripPitches, stripCount);
+    }
+
+    public String getCameraName () {return cameraName;}
+    public double getTimestamp () {return timestamp;}
+    public double getYaw () {return yaw;}
+    public double getDistance () {return distance;}
+    public int getTargetCount () {return targetCount;}
+    public double getResidual () {return residual;}
+    public double getBestTargetYaw () {return bestTargetYaw;}
+    public double getBestTargetPitch () {return bestTargetPitch;}
+    public int getStripCount () {return stripYaws.length;}
+    public double getStripYaw (int index) {return stripYaws[index];}
+    public double getStripPitch (int index) {return stripPitches[index];}
+}
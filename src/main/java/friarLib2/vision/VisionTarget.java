@@ -37,6 +37,18 @@ public class VisionTarget {
         this.pose = pose;
     }
 
+    /**
+     * Overwrite the target in place, so cameras can reuse the same
+     * target objects every frame instead of creating new ones
+     */
+    void set (double x, double y, double area, double skew, Transform2d pose) {
+        this.x = x;
+        this.y = y;
+        this.area = area;
+        this.skew = skew;
+        this.pose = pose;
+    }
+
     public double getX () {return x;}
     public double getY () {return y;}
     public double getArea () {return area;}
@@ -27,25 +27,31 @@ public class PixelToAngle {
         viewplaneHeight = 2.0 * Math.tan(Math.toRadians(verticalFOV) / 2.0);
     }
 
+    /**
+     * @return The angle in degrees between the crosshair and the target, right is positive
+     */
     public double calculateXAngle (VisionTarget target) {
         // Normalize pixel coordinates so that they range from -1 to 1, with (0, 0) being the center of the image
-        double normalizedX = (target.getX() - (resolutionX / 2.0)) / resolutionX;
+        double normalizedX = (target.getX() - (resolutionX / 2.0)) / (resolutionX / 2.0);
 
         // Compute viewport coordinates
         double x = (viewplaneWidth / 2.0) * normalizedX;
 
         // Compute angles
-        return Math.atan2(1.0, x);
+        return Math.toDegrees(Math.atan(x));
     }
 
+    /**
+     * @return The angle in degrees between the crosshair and the target, up is positive
+     */
     public double calculateYAngle (VisionTarget target) {
         // Normalize pixel coordinates so that they range from -1 to 1, with (0, 0) being the center of the image
-        double normalizedY = ((resolutionY / 2.0) - target.getY()) / resolutionY;
+        double normalizedY = ((resolutionY / 2.0) - target.getY()) / (resolutionY / 2.0);
 
         // Compute viewport coordinates
         double y = (viewplaneHeight / 2.0) * normalizedY;
 
         // Compute angles
-        return Math.atan2(1.0, y);
+        return Math.toDegrees(Math.atan(y));
     }
 }
@@ -0,0 +1,132 @@
+package frc.robot.util;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+public class ShootingMapTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void loadsShotsSkippingCommentsBlankLinesAndHeader () throws IOException {
+        ShootingMap map = load(
+            "# A comment",
+            "meters,rpm,deflector",
+            "",
+            "2.0,1800,true",
+            "  1.0 , 1500 , TRUE  ",
+            "# Another comment",
+            "3.0,2600,false");
+
+        assertEquals(1.0, map.getMinDistance(), DELTA);
+        assertEquals(3.0, map.getMaxDistance(), DELTA);
+        assertEquals(1500, map.getFlywheelRPM(1.0), DELTA);
+        assertEquals(1800, map.getFlywheelRPM(2.0), DELTA);
+        assertEquals(2600, map.getFlywheelRPM(3.0), DELTA);
+        assertTrue(map.getDeflector(1.0));
+        assertFalse(map.getDeflector(3.0));
+    }
+
+    @Test
+    public void headerIsMatchedIgnoringCaseAndSpaces () throws IOException {
+        ShootingMap map = load("Meters, RPM, Deflector", "1.0,1500,true");
+        assertEquals(1500, map.getFlywheelRPM(1.0), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void otherTextIsAnError () throws IOException {
+        load("distance,speed,hood", "1.0,1500,true");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void headerAfterTheFirstShotIsAnError () throws IOException {
+        load("1.0,1500,true", "meters,rpm,deflector", "2.0,1800,true");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongNumberOfFieldsIsAnError () throws IOException {
+        load("1.0,1500");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void badNumberIsAnError () throws IOException {
+        load("1.0,15OO,true");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void badDeflectorIsAnError () throws IOException {
+        load("1.0,1500,yes");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noShotsIsAnError () throws IOException {
+        load("# Nothing yet", "meters,rpm,deflector");
+    }
+
+    @Test
+    public void interpolatesWithinADeflectorState () {
+        ShootingMap map = new ShootingMap(
+            new double[] {1, 2, 3, 4},
+            new double[] {1500, 1800, 2600, 3000},
+            new boolean[] {true, true, false, false});
+
+        assertEquals(1650, map.getFlywheelRPM(1.5), DELTA);
+        assertEquals(2800, map.getFlywheelRPM(3.5), DELTA);
+    }
+
+    @Test
+    public void doesNotInterpolateAcrossDeflectorStates () {
+        ShootingMap map = new ShootingMap(
+            new double[] {1, 2, 3, 4},
+            new double[] {1500, 1800, 2600, 3000},
+            new boolean[] {true, true, false, false});
+
+        // Closer to the last deflector shot, so its speed is held
+        assertTrue(map.getDeflector(2.4));
+        assertEquals(1800, map.getFlywheelRPM(2.4), DELTA);
+
+        // Closer to the first shot without the deflector
+        assertFalse(map.getDeflector(2.6));
+        assertEquals(2600, map.getFlywheelRPM(2.6), DELTA);
+    }
+
+    @Test
+    public void interpolatesBetweenShotsOfTheSameStateAroundAnother () {
+        ShootingMap map = new ShootingMap(
+            new double[] {1, 2, 3},
+            new double[] {1500, 2500, 2100},
+            new boolean[] {true, false, true});
+
+        // The shot at 3 m is closest, so the 1 and 3 m deflector shots are used
+        assertTrue(map.getDeflector(2.6));
+        assertEquals(1980, map.getFlywheelRPM(2.6), DELTA);
+    }
+
+    @Test
+    public void holdsTheEndsOutsideTheMap () {
+        ShootingMap map = new ShootingMap(
+            new double[] {3, 1, 2},
+            new double[] {2600, 1500, 1800},
+            new boolean[] {false, true, true});
+
+        assertEquals(1500, map.getFlywheelRPM(0.5), DELTA);
+        assertEquals(2600, map.getFlywheelRPM(5), DELTA);
+        assertFalse(map.isInRange(0.5));
+        assertTrue(map.isInRange(2.5));
+    }
+
+    private static ShootingMap load (String... lines) throws IOException {
+        Path file = Files.createTempFile("shooting_map", ".csv");
+        try {
+            Files.write(file, String.join("\n", lines).getBytes());
+            return ShootingMap.load(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
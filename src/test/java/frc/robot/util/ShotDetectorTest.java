@@ -0,0 +1,166 @@
+package frc.robot.util;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.function.DoubleUnaryOperator;
+
+import org.junit.Test;
+
+import frc.robot.subsystems.io.ShooterIOSim;
+import friarLib2.math.FlywheelController;
+
+import static frc.robot.Constants.Shooter.*;
+
+/**
+ * Runs the detector on the simulated flywheel under its state space
+ * controller, with the measurement noise the controller is tuned for.
+ * Nothing that isn't a ball should count as a shot: pre-spin ramps, the
+ * shooting map's setpoint changing as the robot drives, or noise.
+ */
+public class ShotDetectorTest {
+
+    private static final double SIM_PERIOD = 0.001; // Seconds
+    private static final double NOISE = FLYWHEEL_MEASUREMENT_STD_DEV; // RPM, standard deviation
+    private static final double SHOT_DROP = 250; // RPM each ball takes out of the flywheel
+    private static final int SEEDS = 20;
+    private static final String[] FLYWHEEL_NAMES = {"Matches model", "Off model"};
+
+    /**
+     * The flywheel, its controller and the detector, stepped together.
+     * The controller and detector run every main loop, on the flywheel's
+     * speed plus noise.
+     */
+    private static class Harness {
+        final ShooterIOSim flywheel;
+        final FlywheelController controller = new FlywheelController(
+            FLYWHEEL_KS, FLYWHEEL_KV, FLYWHEEL_KA,
+            FLYWHEEL_MODEL_STD_DEV, FLYWHEEL_VOLTAGE_ERROR_STD_DEV, FLYWHEEL_MEASUREMENT_STD_DEV,
+            FLYWHEEL_LQR_TOLERANCE, FLYWHEEL_MAX_VOLTAGE,
+            FLYWHEEL_MEASUREMENT_DELAY, FLYWHEEL_CONTROL_PERIOD);
+        final ShotDetector detector = new ShotDetector(SHOT_DETECTION_RPM_DROP, SHOT_DETECTION_CURRENT, SHOT_RECOVERY_TOLERANCE, SHOT_HISTORY_SIZE);
+        final Random random;
+        double t = 0;
+        double volts = 0;
+        double nextLoopTime = 0;
+
+        Harness (ShooterIOSim flywheel, long seed) {
+            this.flywheel = flywheel;
+            random = new Random(seed);
+        }
+
+        /**
+         * Run until a time, changing the reference each loop
+         *
+         * @param reference The reference at each loop, given the last one
+         */
+        void runUntil (double endTime, DoubleUnaryOperator reference) {
+            while (t < endTime) {
+                if (t >= nextLoopTime) {
+                    controller.setReference(reference.applyAsDouble(controller.getReference()));
+                    double measured = flywheel.getFlywheelRPM() + random.nextGaussian() * NOISE;
+                    volts = controller.calculate(measured);
+                    detector.update(t, measured, flywheel.getStatorCurrent(), controller.getReference());
+                    nextLoopTime += FLYWHEEL_CONTROL_PERIOD;
+                }
+                if (controller.getReference() == 0) {
+                    flywheel.stopFlywheel();
+                } else {
+                    flywheel.setFlywheelVoltage(volts);
+                }
+                flywheel.simulate(SIM_PERIOD);
+                t += SIM_PERIOD;
+            }
+        }
+
+        void hold (double duration, double rpm) {
+            runUntil(t + duration, last -> rpm);
+        }
+
+        /**
+         * Ramp the way PreSpinFlywheel's slew rate limiter does
+         */
+        void ramp (double duration, double rpm) {
+            double step = PRE_SPIN_RAMP_RATE * FLYWHEEL_CONTROL_PERIOD;
+            runUntil(t + duration, last -> last + Math.max(-step, Math.min(step, rpm - last)));
+        }
+    }
+
+    private static ShooterIOSim createFlywheel (int index) {
+        if (index == 0) {
+            return new ShooterIOSim(FLYWHEEL_KS, FLYWHEEL_KV, FLYWHEEL_KA);
+        }
+        return new ShooterIOSim(FLYWHEEL_KS * 1.3, FLYWHEEL_KV * 1.1, FLYWHEEL_KA * 1.25); // Heavier and draggier than the model
+    }
+
+    @Test
+    public void preSpinRampsAreNotShots () {
+        for (int f = 0; f < FLYWHEEL_NAMES.length; f++) {
+            for (int seed = 0; seed < SEEDS; seed++) {
+                Harness harness = new Harness(createFlywheel(f), seed);
+                double longest = 3450;
+                double idle = longest * PRE_SPIN_IDLE_FRACTION;
+
+                // Approach the hub, come into range, back out, and coast
+                harness.ramp(3, idle);
+                harness.ramp(2, 2800);
+                harness.ramp(2, 3450);
+                harness.ramp(2, 2000);
+                harness.ramp(2, idle);
+                harness.hold(3, 0);
+                harness.ramp(3, 2800);
+
+                assertEquals(FLYWHEEL_NAMES[f] + " seed " + seed, 0, harness.detector.getShotCount());
+            }
+        }
+    }
+
+    @Test
+    public void shootingMapSetpointChangesAreNotShots () {
+        for (int f = 0; f < FLYWHEEL_NAMES.length; f++) {
+            for (int seed = 0; seed < SEEDS; seed++) {
+                Harness harness = new Harness(createFlywheel(f), seed);
+                Random setpoints = new Random(seed + 1000);
+
+                // Driving around the hub while shooting, the map's speed jumps between shots
+                harness.hold(2, 2800);
+                for (int i = 0; i < 30; i++) {
+                    harness.hold(0.1 + setpoints.nextDouble() * 0.9, 1350 + setpoints.nextDouble() * 2100);
+                }
+
+                assertEquals(FLYWHEEL_NAMES[f] + " seed " + seed, 0, harness.detector.getShotCount());
+            }
+        }
+    }
+
+    @Test
+    public void noiseAtSpeedIsNotShots () {
+        for (int f = 0; f < FLYWHEEL_NAMES.length; f++) {
+            for (double rpm : new double[] {1350, 2000, 2800, 3450}) {
+                for (int seed = 0; seed < SEEDS; seed++) {
+                    Harness harness = new Harness(createFlywheel(f), seed);
+                    harness.hold(10, rpm);
+                    assertEquals(FLYWHEEL_NAMES[f] + " at " + rpm + " seed " + seed, 0, harness.detector.getShotCount());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void countsEveryBallInTheSameConditions () {
+        for (int f = 0; f < FLYWHEEL_NAMES.length; f++) {
+            for (int seed = 0; seed < SEEDS; seed++) {
+                Harness harness = new Harness(createFlywheel(f), seed);
+                harness.hold(2, 2800);
+                harness.detector.startSequence(harness.t);
+                for (int i = 0; i < 5; i++) {
+                    harness.flywheel.shootBall(SHOT_DROP);
+                    harness.hold(0.6, 2800);
+                }
+
+                assertEquals(FLYWHEEL_NAMES[f] + " seed " + seed, 5, harness.detector.getSequenceShotCount());
+                assertEquals(0.6, harness.detector.getAverageGap(), 2 * FLYWHEEL_CONTROL_PERIOD);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package friarLib2.vision.utility;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import friarLib2.vision.VisionTarget;
+
+/**
+ * Compares the converter against the pinhole camera's angles, worked out
+ * for every whole pixel
+ */
+public class PixelToAngleTest {
+
+    private static final double RESOLUTION_X = 320;
+    private static final double RESOLUTION_Y = 240;
+    private static final double HORIZONTAL_FOV = 54;
+    private static final double VERTICAL_FOV = 41;
+    private static final double DELTA = 1e-9;
+
+    private final PixelToAngle converter = new PixelToAngle(RESOLUTION_X, RESOLUTION_Y, HORIZONTAL_FOV, VERTICAL_FOV);
+
+    @Test
+    public void matchesPinholeAngles () {
+        // The edge of the image is half the FOV away, so a pixel's tangent is its share of that edge's tangent
+        double edgeX = Math.tan(Math.toRadians(HORIZONTAL_FOV / 2));
+        double edgeY = Math.tan(Math.toRadians(VERTICAL_FOV / 2));
+        for (int pixelX = 0; pixelX <= RESOLUTION_X; pixelX++) {
+            for (int pixelY = 0; pixelY <= RESOLUTION_Y; pixelY++) {
+                VisionTarget target = new VisionTarget(pixelX, pixelY, 0, 0);
+                double expectedX = Math.toDegrees(Math.atan(edgeX * (pixelX - RESOLUTION_X / 2) / (RESOLUTION_X / 2)));
+                double expectedY = Math.toDegrees(Math.atan(edgeY * (RESOLUTION_Y / 2 - pixelY) / (RESOLUTION_Y / 2)));
+                assertEquals(expectedX, converter.calculateXAngle(target), DELTA);
+                assertEquals(expectedY, converter.calculateYAngle(target), DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void centerIsStraightAhead () {
+        VisionTarget center = new VisionTarget(RESOLUTION_X / 2, RESOLUTION_Y / 2, 0, 0);
+        assertEquals(0, converter.calculateXAngle(center), DELTA);
+        assertEquals(0, converter.calculateYAngle(center), DELTA);
+    }
+
+    @Test
+    public void edgesAreHalfTheFOV () {
+        assertEquals(HORIZONTAL_FOV / 2, converter.calculateXAngle(new VisionTarget(RESOLUTION_X, RESOLUTION_Y / 2, 0, 0)), DELTA);
+        assertEquals(-HORIZONTAL_FOV / 2, converter.calculateXAngle(new VisionTarget(0, RESOLUTION_Y / 2, 0, 0)), DELTA);
+        assertEquals(VERTICAL_FOV / 2, converter.calculateYAngle(new VisionTarget(RESOLUTION_X / 2, 0, 0, 0)), DELTA);
+        assertEquals(-VERTICAL_FOV / 2, converter.calculateYAngle(new VisionTarget(RESOLUTION_X / 2, RESOLUTION_Y, 0, 0)), DELTA);
+    }
+}